@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.htmlparser.AttributeContextHtmlparser;
+import com.bc.meta.selector.jsoup.AttributeContextJsoup;
+import com.bc.meta.selector.scanner.AttributeContextHeadTag;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.scanner.HeadTagScanner;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Function;
+import org.htmlparser.Node;
+import org.htmlparser.Parser;
+import org.htmlparser.Tag;
+import org.htmlparser.filters.NodeClassFilter;
+import org.htmlparser.util.ParserException;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+
+/**
+ * The html parsers measured, each with a selector for its node type.
+ * The node type differs by parser, so each is bound in a {@link Selection}.
+ */
+public enum Adapter {
+
+    /** The built-in {@link HeadTagScanner}, which stops at the end of the head */
+    SCANNER {
+        @Override
+        public Selection<HeadTag> selection(Collection<String> configFilePaths) throws IOException, ParseException {
+            final AttributeContextHeadTag attributeContext = new AttributeContextHeadTag();
+            return new Selection<>(Benchmarks.selector(attributeContext, attributeContext, configFilePaths), 
+                    HeadTagScanner::new);
+        }
+    },
+
+    /** jsoup, which parses the whole document. The elements of the head are selected from. */
+    JSOUP {
+        @Override
+        public Selection<Element> selection(Collection<String> configFilePaths) throws IOException, ParseException {
+            final AttributeContextJsoup attributeContext = new AttributeContextJsoup(true);
+            return new Selection<>(Benchmarks.selector(attributeContext, attributeContext, configFilePaths), 
+                    (html) -> Jsoup.parse(html).head().getAllElements().iterator());
+        }
+    },
+
+    /** htmlparser, which parses the whole document. All tags are selected from. */
+    HTMLPARSER {
+        @Override
+        public Selection<Node> selection(Collection<String> configFilePaths) throws IOException, ParseException {
+            final AttributeContextHtmlparser attributeContext = new AttributeContextHtmlparser(true);
+            return new Selection<>(Benchmarks.selector(attributeContext, attributeContext, configFilePaths), 
+                    (html) -> {
+                        try{
+                            final Parser parser = Parser.createParser(html, StandardCharsets.UTF_8.name());
+                            return Arrays.asList(parser.extractAllNodesThatMatch(
+                                    new NodeClassFilter(Tag.class)).toNodeArray()).iterator();
+                        }catch(ParserException e) {
+                            throw new RuntimeException(e);
+                        }
+                    });
+        }
+    };
+
+    /**
+     * A selector and the parser of the nodes it selects from.
+     * @param <N> The type of the nodes
+     */
+    public static final class Selection<N> {
+
+        private final Selector<N> selector;
+
+        private final Function<String, Iterator<N>> parser;
+
+        private Selection(Selector<N> selector, Function<String, Iterator<N>> parser) {
+            this.selector = Objects.requireNonNull(selector);
+            this.parser = Objects.requireNonNull(parser);
+        }
+
+        /**
+         * @param <RESULT> The type of the result
+         * @param html The html to parse and select from
+         * @param names The names of the properties to select
+         * @param collector The collector of the result
+         * @return The result
+         */
+        public <RESULT> RESULT select(String html, Collection<String> names, Selector.Collector<RESULT> collector) {
+            return selector.select(this.parse(html), names, collector);
+        }
+
+        public Selector<N> getSelector() {
+            return selector;
+        }
+
+        /**
+         * @param html The html to parse
+         * @return The nodes of the html to select from
+         */
+        public Iterator<N> parse(String html) {
+            return parser.apply(html);
+        }
+    }
+
+    /**
+     * @param configFilePaths The configs of the selector
+     * @return A selector of {@link Benchmarks#PROPERTY_NAMES} for the nodes 
+     * of this parser, and the parser
+     */
+    public abstract Selection<?> selection(Collection<String> configFilePaths) throws IOException, ParseException;
+}
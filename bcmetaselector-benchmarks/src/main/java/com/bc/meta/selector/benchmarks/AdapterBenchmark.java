@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.util.SampleConfigPaths;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The built-in head tag scanner versus the jsoup and htmlparser adapters: 
+ * parsing and selecting from a document, and selecting from nodes parsed 
+ * beforehand.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+@State(Scope.Benchmark)
+public class AdapterBenchmark {
+
+    @Param({"SCANNER", "JSOUP", "HTMLPARSER"})
+    public Adapter adapter;
+
+    @Param({Benchmarks.OPENGRAPH, Benchmarks.LARGE})
+    public String fixture;
+
+    private String html;
+
+    private Adapter.Selection<?> selection;
+
+    private Supplier<Map<String, Object>> selectParsed;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        this.html = Benchmarks.fixture(fixture);
+        this.selection = adapter.selection(SampleConfigPaths.APP_ARTICLE_LIST);
+        this.selectParsed = this.selectParsed(selection);
+    }
+
+    /** Captures the node type of the selection, which the selector and the parsed nodes share */
+    private <N> Supplier<Map<String, Object>> selectParsed(Adapter.Selection<N> selection) {
+        final Selector<N> selector = selection.getSelector();
+        final List<N> nodes = new ArrayList<>();
+        selection.parse(html).forEachRemaining(nodes::add);
+        return () -> selector.select(nodes.iterator(), Benchmarks.PROPERTY_NAMES, Collectors.toMap());
+    }
+
+    @Benchmark
+    public Map<String, Object> parseAndSelect() {
+        return selection.select(html, Benchmarks.PROPERTY_NAMES, Collectors.toMap());
+    }
+
+    @Benchmark
+    public Map<String, Object> select() {
+        return selectParsed.get();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import java.util.Set;
+
+/**
+ * The bean selected into by the bean collector. Has a property for each of
+ * {@link Benchmarks#PROPERTY_NAMES}.
+ */
+public class ArticleBean {
+
+    private String title;
+    private String author;
+    private String publisher;
+    private String type;
+    private Set<String> tagSet;
+    private Set<String> categorySet;
+    private String description;
+    private String datePublished;
+    private String dateModified;
+    private Set<String> imageLinkSet;
+    private String locale;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getPublisher() {
+        return publisher;
+    }
+
+    public void setPublisher(String publisher) {
+        this.publisher = publisher;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Set<String> getTagSet() {
+        return tagSet;
+    }
+
+    public void setTagSet(Set<String> tagSet) {
+        this.tagSet = tagSet;
+    }
+
+    public Set<String> getCategorySet() {
+        return categorySet;
+    }
+
+    public void setCategorySet(Set<String> categorySet) {
+        this.categorySet = categorySet;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getDatePublished() {
+        return datePublished;
+    }
+
+    public void setDatePublished(String datePublished) {
+        this.datePublished = datePublished;
+    }
+
+    public String getDateModified() {
+        return dateModified;
+    }
+
+    public void setDateModified(String dateModified) {
+        this.dateModified = dateModified;
+    }
+
+    public Set<String> getImageLinkSet() {
+        return imageLinkSet;
+    }
+
+    public void setImageLinkSet(Set<String> imageLinkSet) {
+        this.imageLinkSet = imageLinkSet;
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    public void setLocale(String locale) {
+        this.locale = locale;
+    }
+}
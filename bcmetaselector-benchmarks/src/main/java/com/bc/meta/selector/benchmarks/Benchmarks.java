@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.impl.ArticleMetaNameIsMultiValue;
+import com.bc.meta.selector.AttributeTestProvider;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.SelectorBuilder;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.scanner.HeadTagScanner;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * The fixtures and selectors shared by the benchmarks. Fixtures are stored
+ * offline, so that results depend only on the code being measured.
+ */
+public final class Benchmarks {
+
+    /** The html fixtures, by name, under <code>benchmarks/fixtures</code> */
+    public static final String OPENGRAPH = "opengraph";
+    public static final String SCHEMA = "schema";
+    public static final String LARGE = "large";
+
+    /** Exact attribute rules, and the same rules as regular expressions */
+    public static final String EXACT_CONFIG = "benchmarks/configs/exact.json";
+    public static final String REGEX_CONFIG = "benchmarks/configs/regex.json";
+
+    /** The properties selected, all of which {@link ArticleBean} has */
+    public static final List<String> PROPERTY_NAMES = Collections.unmodifiableList(Arrays.asList(
+            ArticleMetaNames.TITLE, ArticleMetaNames.AUTHOR, ArticleMetaNames.PUBLISHER,
+            ArticleMetaNames.TYPE, ArticleMetaNames.TAG_SET, ArticleMetaNames.CATEGORY_SET,
+            ArticleMetaNames.DESCRIPTION, ArticleMetaNames.DATE_PUBLISHED, ArticleMetaNames.DATE_MODIFIED,
+            ArticleMetaNames.IMAGELINK_SET, ArticleMetaNames.LOCALE));
+
+    private Benchmarks() { }
+
+    /**
+     * @param name The name of the fixture e.g {@link #OPENGRAPH}
+     * @return The html of the fixture
+     */
+    public static String fixture(String name) {
+        final String location = "benchmarks/fixtures/" + name + ".html";
+        try(InputStream in = Benchmarks.class.getClassLoader().getResourceAsStream(location)) {
+            Objects.requireNonNull(in, "Fixture not found: " + location);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte [] buffer = new byte[8192];
+            int n;
+            while((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param html The html to scan
+     * @return The head tags of the html
+     */
+    public static List<HeadTag> scan(String html) {
+        final List<HeadTag> output = new ArrayList<>();
+        final HeadTagScanner scanner = new HeadTagScanner(html);
+        while(scanner.hasNext()) {
+            output.add(scanner.next());
+        }
+        return output;
+    }
+
+    public static <E> Selector<E> selector(AttributeTestProvider<E> attributeContext, 
+            BiFunction<String, E, String> nodeValueExtractor, Collection<String> configFilePaths) 
+            throws IOException, ParseException {
+
+        final SelectorBuilder<E, String, Object> builder = Selector.builder();
+
+        return builder.filter()
+                .attributeContext(attributeContext)
+                .configFilePaths(configFilePaths)
+                .propertyNames(PROPERTY_NAMES)
+                .back()
+                .multiValueTest(new ArticleMetaNameIsMultiValue())
+                .nodeValueExtractor(nodeValueExtractor)
+                .build();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import com.bc.meta.selector.PropertySchema;
+import com.bc.meta.selector.SelectionContext;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.scanner.AttributeContextHeadTag;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.util.SampleConfigPaths;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Selection of the same document into each type of collector. The context
+ * is reused, as it would be per thread; the other collectors are created
+ * per document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+@State(Scope.Thread)
+public class CollectorBenchmark {
+
+    @Param({"map", "bean", "slots", "metadata", "context"})
+    public String collector;
+
+    @Param({Benchmarks.OPENGRAPH, Benchmarks.LARGE})
+    public String fixture;
+
+    private Selector<HeadTag> selector;
+
+    private PropertySchema schema;
+
+    private SelectionContext context;
+
+    private List<HeadTag> nodes;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        final AttributeContextHeadTag attributeContext = new AttributeContextHeadTag();
+        this.selector = Benchmarks.selector(attributeContext, attributeContext, SampleConfigPaths.APP_ARTICLE_LIST);
+        this.schema = selector.schema(Benchmarks.PROPERTY_NAMES);
+        this.context = new SelectionContext(schema);
+        this.nodes = Benchmarks.scan(Benchmarks.fixture(fixture));
+    }
+
+    @Benchmark
+    public Object select() {
+        switch(collector) {
+            case "map": 
+                return selector.select(nodes.iterator(), Benchmarks.PROPERTY_NAMES, Collectors.toMap());
+            case "bean": 
+                return selector.select(nodes.iterator(), Benchmarks.PROPERTY_NAMES, Collectors.toBean(new ArticleBean()));
+            case "slots": 
+                return selector.select(nodes.iterator(), schema, Collectors.toSlots(schema));
+            case "metadata": 
+                return selector.select(nodes.iterator(), schema, Collectors.toMetadata(schema));
+            case "context": 
+                return selector.select(nodes.iterator(), context);
+            default: 
+                throw new IllegalArgumentException("Unexpected collector: " + collector);
+        }
+    }
+}
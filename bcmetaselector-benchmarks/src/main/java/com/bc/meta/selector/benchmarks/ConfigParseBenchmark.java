@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import com.bc.meta.selector.util.ConfigCache;
+import com.bc.meta.selector.util.ConfigJsonReader;
+import com.bc.meta.selector.util.PropertiesParser;
+import com.bc.meta.selector.util.SampleConfigPaths;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing the {@link SampleConfigPaths#APP_ARTICLE_LIST} configs, including
+ * the configs they extend or include, with and without a config cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+@State(Scope.Benchmark)
+public class ConfigParseBenchmark {
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private PropertiesParser parser;
+
+    @Setup
+    public void setUp() {
+        this.parser = new PropertiesParser(new PropertiesParser.DefaultStreamProvider(), 
+                new ConfigJsonReader(), StandardCharsets.UTF_8.name(), 
+                cached ? new ConfigCache(ConfigCache.DEFAULT_MAX_SIZE) : null);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException, ParseException {
+        for(String location : SampleConfigPaths.APP_ARTICLE_LIST) {
+            blackhole.consume(parser.parse(location));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic html pages with a realistic mix of meta tags: OpenGraph,
+ * Twitter Card and schema.org <code>itemprop</code> tags, interleaved with 
+ * noise such as preloads, scripts and unrelated meta tags. Some pages have 
+ * large bodies.
+ * <p>
+ * Pages are a function of the seed and the page index only, so a corpus is 
+ * reproducible without storing it.
+ * </p>
+ */
+public class CorpusGenerator {
+
+    private static final String [] WORDS = {
+        "market", "league", "rain", "harvest", "minister", "report", "city", "council",
+        "season", "goal", "price", "school", "river", "festival", "court", "bank",
+        "energy", "road", "health", "film", "budget", "election", "storm", "music"
+    };
+
+    private static final String [] SECTIONS = {"News", "Sport", "Business", "Culture", "Politics", "Health"};
+
+    private final long seed;
+
+    private final double largeBodyRatio;
+
+    public CorpusGenerator(long seed) {
+        this(seed, 0.2);
+    }
+
+    /**
+     * @param seed The seed of the corpus
+     * @param largeBodyRatio The fraction of pages with a large body, of 50 to 
+     * 500 KB of text
+     */
+    public CorpusGenerator(long seed, double largeBodyRatio) {
+        if(largeBodyRatio < 0 || largeBodyRatio > 1) {
+            throw new IllegalArgumentException("largeBodyRatio not in 0..1: " + largeBodyRatio);
+        }
+        this.seed = seed;
+        this.largeBodyRatio = largeBodyRatio;
+    }
+
+    /**
+     * @param pages The number of pages to generate
+     * @return Pages 0 to pages - 1
+     */
+    public List<String> generate(int pages) {
+        final List<String> output = new ArrayList<>(pages);
+        for(int i=0; i<pages; i++) {
+            output.add(this.page(i));
+        }
+        return output;
+    }
+
+    /**
+     * @param index The index of the page
+     * @return The html of the page
+     */
+    public String page(int index) {
+
+        final Random random = new Random(seed * 1_000_003L + index);
+
+        final String title = this.sentence(random, 4 + random.nextInt(8));
+        final String description = this.sentence(random, 12 + random.nextInt(20));
+        final String site = this.capitalize(this.word(random)) + " Times";
+        final String url = "https://www." + this.word(random) + ".example/" + index;
+        final String date = String.format("2018-%02d-%02dT%02d:%02d:00Z", 1 + random.nextInt(12), 
+                1 + random.nextInt(28), random.nextInt(24), random.nextInt(60));
+
+        final List<String> tags = new ArrayList<>();
+
+        tags.add("<meta name=\"description\" content=\"" + description + "\">");
+
+        if(random.nextDouble() < 0.8) {
+            tags.add(this.property("og:title", title));
+            tags.add(this.property("og:type", "article"));
+            tags.add(this.property("og:description", description));
+            tags.add(this.property("og:site_name", site));
+            tags.add(this.property("og:url", url));
+            tags.add(this.property("og:locale", "en_GB"));
+            for(int i = 1 + random.nextInt(3); i > 0; i--) {
+                tags.add(this.property("og:image", url + "/image-" + i + ".jpg"));
+            }
+            tags.add(this.property("article:section", SECTIONS[random.nextInt(SECTIONS.length)]));
+            for(int i = random.nextInt(7); i > 0; i--) {
+                tags.add(this.property("article:tag", this.capitalize(this.word(random))));
+            }
+            tags.add(this.property("article:published_time", date));
+        }
+
+        if(random.nextDouble() < 0.6) {
+            tags.add(this.name("twitter:card", "summary_large_image"));
+            tags.add(this.name("twitter:site", "@" + this.word(random)));
+            tags.add(this.name("twitter:title", title));
+            tags.add(this.name("twitter:description", description));
+            tags.add(this.name("twitter:image", url + "/card.jpg"));
+        }
+
+        if(random.nextDouble() < 0.4) {
+            tags.add(this.itemprop("headline", title));
+            tags.add(this.itemprop("author", this.capitalize(this.word(random)) + " " + this.capitalize(this.word(random))));
+            tags.add(this.itemprop("publisher", site));
+            tags.add(this.itemprop("datePublished", date));
+            tags.add(this.itemprop("image", url + "/schema.jpg"));
+            tags.add(this.itemprop("articleSection", SECTIONS[random.nextInt(SECTIONS.length)]));
+        }
+
+        for(int i = 5 + random.nextInt(60); i > 0; i--) {
+            tags.add(this.noise(random, i));
+        }
+
+        // Real heads interleave metadata with everything else
+        Collections.shuffle(tags, random);
+
+        final StringBuilder html = new StringBuilder(4096)
+                .append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"utf-8\">\n")
+                .append("<title>").append(title).append(" | ").append(site).append("</title>\n");
+        for(String tag : tags) {
+            html.append(tag).append('\n');
+        }
+        html.append("</head>\n<body>\n");
+
+        final int bodyChars = random.nextDouble() < largeBodyRatio ? 
+                50_000 + random.nextInt(450_000) : 2_000 + random.nextInt(8_000);
+        while(html.length() < bodyChars) {
+            html.append("<p>").append(this.sentence(random, 20 + random.nextInt(40))).append("</p>\n");
+        }
+
+        return html.append("</body>\n</html>\n").toString();
+    }
+
+    private String noise(Random random, int i) {
+        switch(random.nextInt(5)) {
+            case 0: return "<link rel=\"preload\" as=\"script\" href=\"https://cdn.example/js/chunk-" + i + ".js\">";
+            case 1: return "<link rel=\"stylesheet\" href=\"https://cdn.example/css/" + this.word(random) + ".css\">";
+            case 2: return "<script>window.slot" + i + " = {\"sizes\":[[300,250]],\"html\":\"<meta name='x'>\"};</script>";
+            case 3: return "<meta name=\"x-" + this.word(random) + "-" + i + "\" content=\"" + this.word(random) + "\">";
+            default: return "<meta property=\"fb:pages\" content=\"" + (100000 + random.nextInt(900000)) + "\">";
+        }
+    }
+
+    private String property(String property, String content) {
+        return "<meta property=\"" + property + "\" content=\"" + content + "\">";
+    }
+
+    private String name(String name, String content) {
+        return "<meta name=\"" + name + "\" content=\"" + content + "\">";
+    }
+
+    private String itemprop(String itemprop, String content) {
+        return "<meta itemprop=\"" + itemprop + "\" content=\"" + content + "\">";
+    }
+
+    private String sentence(Random random, int words) {
+        final StringBuilder builder = new StringBuilder(words * 8);
+        for(int i=0; i<words; i++) {
+            if(i > 0) {
+                builder.append(' ');
+            }
+            builder.append(i == 0 ? this.capitalize(this.word(random)) : this.word(random));
+        }
+        return builder.toString();
+    }
+
+    private String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
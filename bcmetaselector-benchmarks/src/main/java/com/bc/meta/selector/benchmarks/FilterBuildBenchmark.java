@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import com.bc.meta.selector.FilterBuilder;
+import com.bc.meta.selector.impl.FilterBuilderImpl;
+import com.bc.meta.selector.scanner.AttributeContextHeadTag;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.util.ConfigCache;
+import com.bc.meta.selector.util.SampleConfigPaths;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the filters of the {@link SampleConfigPaths#APP_ARTICLE_LIST} configs.
+ * Without a cache, each build reads and parses the configs; with a cache, 
+ * only the filters are built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+@State(Scope.Benchmark)
+public class FilterBuildBenchmark {
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private FilterBuilder<HeadTag, Object> filterBuilder;
+
+    @Setup
+    public void setUp() {
+        this.filterBuilder = new FilterBuilderImpl<HeadTag, Object>()
+                .attributeContext(new AttributeContextHeadTag())
+                .configFilePaths(SampleConfigPaths.APP_ARTICLE_LIST)
+                .propertyNames(Benchmarks.PROPERTY_NAMES)
+                .configCache(cached ? new ConfigCache(ConfigCache.DEFAULT_MAX_SIZE) : null);
+    }
+
+    @Benchmark
+    public Function<String, Predicate<HeadTag>> build() throws IOException, ParseException {
+        return filterBuilder.build();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+/**
+ * A histogram of latencies, or any non-negative values, with buckets of
+ * log-linear width: 32 buckets per power of two, so that a value is known 
+ * to within about 3%. Values below 64 are recorded exactly.
+ * <p>
+ * Instances are not thread safe; keep one per thread and {@link #add(LatencyHistogram) add}
+ * them together.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long [] counts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+
+    private long count;
+
+    private long sum;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max;
+
+    public void record(long value) {
+        if(value < 0) {
+            throw new IllegalArgumentException("value < 0: " + value);
+        }
+        ++counts[index(value)];
+        ++count;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @param other The histogram whose counts are to be added to this
+     * @return This histogram
+     */
+    public LatencyHistogram add(LatencyHistogram other) {
+        for(int i=0; i<counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    static int index(long value) {
+        if(value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int)((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return The highest value recorded in the bucket at the specified index
+     */
+    static long highestValue(int index) {
+        if(index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lowest = (long)(SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * @param percentile The percentile e.g 99.9
+     * @return The value at or below which the specified percentage of the 
+     * recorded values lie, to within the precision of the buckets, or 0 if 
+     * none were recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if(percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile not in 0..100: " + percentile);
+        }
+        if(count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long)Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for(int i=0; i<counts.length; i++) {
+            seen += counts[i];
+            if(seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double)sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{count=" + count + ", mean=" + this.getMean() +
+                ", p50=" + this.getValueAtPercentile(50) + ", p99=" + this.getValueAtPercentile(99) +
+                ", p999=" + this.getValueAtPercentile(99.9) + ", max=" + max + '}';
+    }
+}
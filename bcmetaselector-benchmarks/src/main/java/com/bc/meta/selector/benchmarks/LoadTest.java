@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import com.bc.meta.selector.PropertySchema;
+import com.bc.meta.selector.SelectionContext;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.util.SampleConfigPaths;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A network free load test: a synthetic corpus, see {@link CorpusGenerator},
+ * is parsed, selected from and collected by a number of threads, for a fixed 
+ * duration. Reports throughput and the latency of each document.
+ * <p>Options, each of the form <code>--name=value</code>, with defaults:</p>
+ * <ul>
+ * <li><code>pages=1000</code> The number of pages in the corpus</li>
+ * <li><code>seed=42</code> The seed of the corpus</li>
+ * <li><code>largeBodies=0.2</code> The fraction of pages with large bodies</li>
+ * <li><code>threads</code> The number of threads, by default the number of processors</li>
+ * <li><code>warmup=10</code> Seconds of warm up, not measured</li>
+ * <li><code>duration=30</code> Seconds measured</li>
+ * <li><code>adapter=scanner</code> One of scanner, jsoup, htmlparser</li>
+ * <li><code>collector=map</code> One of map, metadata, context</li>
+ * </ul>
+ * <pre>
+ * java -cp target/benchmarks.jar com.bc.meta.selector.benchmarks.LoadTest --threads=8 --adapter=jsoup
+ * </pre>
+ */
+public class LoadTest {
+
+    private static final double [] PERCENTILES = {0, 10, 20, 30, 40, 50, 60, 70, 80, 90, 95, 99, 99.9, 99.99, 100};
+
+    private final List<String> corpus;
+
+    private final String collector;
+
+    private final int threads;
+
+    private final Adapter.Selection<?> selection;
+
+    private final PropertySchema schema;
+
+    public LoadTest(List<String> corpus, Adapter adapter, String collector, int threads) 
+            throws IOException, ParseException {
+        if(corpus.isEmpty()) {
+            throw new IllegalArgumentException("Empty corpus");
+        }
+        if(threads < 1) {
+            throw new IllegalArgumentException("threads < 1: " + threads);
+        }
+        this.corpus = corpus;
+        this.collector = collector;
+        this.threads = threads;
+        this.selection = adapter.selection(SampleConfigPaths.APP_ARTICLE_LIST);
+        this.schema = selection.getSelector().schema(Benchmarks.PROPERTY_NAMES);
+        if(!"map".equals(collector) && !"metadata".equals(collector) && !"context".equals(collector)) {
+            throw new IllegalArgumentException("Unexpected collector: " + collector);
+        }
+    }
+
+    public static void main(String... args) throws IOException, ParseException, 
+            InterruptedException, ExecutionException {
+
+        final Map<String, String> options = parseOptions(args);
+
+        final int pages = Integer.parseInt(options.getOrDefault("pages", "1000"));
+        final long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        final double largeBodies = Double.parseDouble(options.getOrDefault("largeBodies", "0.2"));
+        final int threads = Integer.parseInt(options.getOrDefault("threads", 
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        final long warmup = Long.parseLong(options.getOrDefault("warmup", "10"));
+        final long duration = Long.parseLong(options.getOrDefault("duration", "30"));
+        final Adapter adapter = Adapter.valueOf(options.getOrDefault("adapter", "scanner").toUpperCase(Locale.ROOT));
+        final String collector = options.getOrDefault("collector", "map");
+
+        final List<String> corpus = new CorpusGenerator(seed, largeBodies).generate(pages);
+
+        long bytes = 0;
+        for(String page : corpus) {
+            bytes += page.length();
+        }
+
+        System.out.printf("pages=%d (%.1f MB), seed=%d, threads=%d, adapter=%s, collector=%s%n", 
+                pages, bytes / 1e6, seed, threads, adapter, collector);
+
+        final LoadTest loadTest = new LoadTest(corpus, adapter, collector, threads);
+
+        System.out.printf("Warming up for %d s%n", warmup);
+        loadTest.run(TimeUnit.SECONDS.toNanos(warmup));
+
+        System.out.printf("Measuring for %d s%n", duration);
+        final long start = System.nanoTime();
+        final LatencyHistogram histogram = loadTest.run(TimeUnit.SECONDS.toNanos(duration));
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        print(histogram, seconds);
+    }
+
+    /**
+     * @param nanos How long to run for
+     * @return The latency of each document selected, in nanoseconds
+     */
+    public LatencyHistogram run(long nanos) throws InterruptedException, ExecutionException {
+
+        final long deadline = System.nanoTime() + nanos;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try{
+            final List<Future<LatencyHistogram>> futures = new ArrayList<>(threads);
+
+            for(int i=0; i<threads; i++) {
+                final int first = i;
+                futures.add(executor.submit((Callable<LatencyHistogram>)() -> this.work(first, deadline)));
+            }
+
+            final LatencyHistogram output = new LatencyHistogram();
+            for(Future<LatencyHistogram> future : futures) {
+                output.add(future.get());
+            }
+
+            return output;
+
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Each worker takes every n-th page, from the first, where n is the number 
+     * of threads, so that the workers do not select the same page at once.
+     */
+    private LatencyHistogram work(int first, long deadline) {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        final SelectionContext context = new SelectionContext(schema);
+
+        int page = first;
+
+        long sink = 0;
+
+        while(System.nanoTime() < deadline) {
+
+            final String html = corpus.get(page);
+
+            final long start = System.nanoTime();
+
+            final Object result = this.parseAndSelect(html, context);
+
+            histogram.record(System.nanoTime() - start);
+
+            sink += result.hashCode();
+
+            page = (page + threads) % corpus.size();
+        }
+
+        // Keep the results live, so that the work is not eliminated
+        if(sink == 42) {
+            System.out.print("");
+        }
+
+        return histogram;
+    }
+
+    private Object parseAndSelect(String html, SelectionContext context) {
+        return this.parseAndSelect(selection, html, context);
+    }
+
+    /** Captures the node type of the selection, which the selector and the parsed nodes share */
+    private <N> Object parseAndSelect(Adapter.Selection<N> selection, String html, SelectionContext context) {
+        final Selector<N> selector = selection.getSelector();
+        switch(collector) {
+            case "map": 
+                return selector.select(selection.parse(html), Benchmarks.PROPERTY_NAMES, Collectors.toMap());
+            case "metadata": 
+                return selector.select(selection.parse(html), schema, Collectors.toMetadata(schema));
+            default: 
+                return selector.select(selection.parse(html), context);
+        }
+    }
+
+    private static void print(LatencyHistogram histogram, double seconds) {
+
+        System.out.printf("documents: %d in %.1f s, throughput: %.1f docs/s%n", 
+                histogram.getCount(), seconds, histogram.getCount() / seconds);
+
+        System.out.printf("latency (us): mean=%.1f, p50=%.1f, p99=%.1f, p999=%.1f, max=%.1f%n", 
+                histogram.getMean() / 1e3, histogram.getValueAtPercentile(50) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3, histogram.getValueAtPercentile(99.9) / 1e3,
+                histogram.getMax() / 1e3);
+
+        System.out.printf("%12s %14s%n", "percentile", "latency (us)");
+        for(double percentile : PERCENTILES) {
+            System.out.printf("%12s %14.1f%n", percentile, histogram.getValueAtPercentile(percentile) / 1e3);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String... args) {
+        final Map<String, String> options = new LinkedHashMap<>();
+        for(String arg : args) {
+            final int eq = arg.indexOf('=');
+            if(!arg.startsWith("--") || eq == -1) {
+                throw new IllegalArgumentException("Expected --name=value, found: " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
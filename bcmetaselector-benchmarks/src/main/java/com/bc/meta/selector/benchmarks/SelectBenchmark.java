@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.scanner.AttributeContextHeadTag;
+import com.bc.meta.selector.scanner.HeadTag;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Selection over pre-scanned head tags, with exact rules, which are indexed
+ * by attribute, versus the same rules as regular expressions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+@State(Scope.Benchmark)
+public class SelectBenchmark {
+
+    @Param({"exact", "regex"})
+    public String rules;
+
+    @Param({Benchmarks.OPENGRAPH, Benchmarks.SCHEMA, Benchmarks.LARGE})
+    public String fixture;
+
+    private Selector<HeadTag> selector;
+
+    private List<HeadTag> nodes;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        final AttributeContextHeadTag attributeContext = new AttributeContextHeadTag();
+        final String config = "exact".equals(rules) ? Benchmarks.EXACT_CONFIG : Benchmarks.REGEX_CONFIG;
+        this.selector = Benchmarks.selector(attributeContext, attributeContext, Collections.singletonList(config));
+        this.nodes = Benchmarks.scan(Benchmarks.fixture(fixture));
+    }
+
+    @Benchmark
+    public Map<String, Object> select() {
+        return selector.select(nodes.iterator(), Benchmarks.PROPERTY_NAMES, Collectors.toMap());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.util.SampleConfigPaths;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CorpusGeneratorTest {
+
+    public CorpusGeneratorTest() { }
+
+    @Test
+    public void testGenerateIsDeterministic() {
+
+        System.out.println("testGenerateIsDeterministic");
+
+        final List<String> corpus = new CorpusGenerator(7).generate(20);
+
+        assertEquals(20, corpus.size());
+        assertEquals(corpus, new CorpusGenerator(7).generate(20));
+        assertEquals(corpus.get(13), new CorpusGenerator(7).page(13));
+        assertTrue(!corpus.equals(new CorpusGenerator(8).generate(20)));
+    }
+
+    @Test
+    public void testPagesAreSelectable() throws IOException, ParseException {
+
+        System.out.println("testPagesAreSelectable");
+
+        final Adapter.Selection<?> selection = Adapter.SCANNER.selection(SampleConfigPaths.APP_ARTICLE_LIST);
+
+        int selected = 0;
+        for(String page : new CorpusGenerator(42).generate(50)) {
+            final Map<String, Object> result = selection.select(
+                    page, Benchmarks.PROPERTY_NAMES, Collectors.toMap());
+            if(result.get(ArticleMetaNames.TITLE) != null || result.get(ArticleMetaNames.DESCRIPTION) != null) {
+                ++selected;
+            }
+        }
+
+        assertTrue("Selected from " + selected + " of 50 pages", selected >= 40);
+    }
+}
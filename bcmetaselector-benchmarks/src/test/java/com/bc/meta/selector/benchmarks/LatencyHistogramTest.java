@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.benchmarks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    public LatencyHistogramTest() { }
+
+    @Test
+    public void testBucketsAreContiguous() {
+
+        System.out.println("testBucketsAreContiguous");
+
+        long lowest = 0;
+        for(int i=0; i<LatencyHistogram.index(Long.MAX_VALUE); i++) {
+            final long highest = LatencyHistogram.highestValue(i);
+            assertEquals(i, LatencyHistogram.index(lowest));
+            assertEquals(i, LatencyHistogram.index(highest));
+            lowest = highest + 1;
+        }
+    }
+
+    @Test
+    public void testValueAtPercentile() {
+
+        System.out.println("testValueAtPercentile");
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for(long value=1; value<=100_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(100_000_000, histogram.getMax());
+        assertEquals(50_000_500, histogram.getMean(), 1);
+
+        this.assertWithin(50_000_000, histogram.getValueAtPercentile(50));
+        this.assertWithin(99_000_000, histogram.getValueAtPercentile(99));
+        this.assertWithin(99_900_000, histogram.getValueAtPercentile(99.9));
+        assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testAdd() {
+
+        System.out.println("testAdd");
+
+        final LatencyHistogram a = new LatencyHistogram();
+        final LatencyHistogram b = new LatencyHistogram();
+        for(int i=0; i<90; i++) {
+            a.record(10);
+        }
+        for(int i=0; i<10; i++) {
+            b.record(50);
+        }
+
+        a.add(b);
+
+        assertEquals(100, a.getCount());
+        assertEquals(10, a.getMin());
+        assertEquals(50, a.getMax());
+        assertEquals(10, a.getValueAtPercentile(90));
+        assertEquals(50, a.getValueAtPercentile(91));
+    }
+
+    private void assertWithin(long expected, long actual) {
+        assertTrue("Expected: " + expected + ", found: " + actual, 
+                Math.abs(expected - actual) <= expected * 0.03);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.maven;
+
+import com.bc.meta.selector.impl.FilterBuilderImpl;
+import com.bc.meta.selector.impl.MatcherSourceGenerator;
+import com.bc.meta.selector.util.AttributeRule;
+import com.bc.meta.selector.util.ConfigJsonReader;
+import com.bc.meta.selector.util.PropertiesParser;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Compiles selector configs into the Java source of a matcher, i.e an
+ * <code>AttributeIndex</code> subclass which matches exact rules with 
+ * <code>switch</code> statements and declares a constant for each property id.
+ * The output directory is added to the compile source roots.
+ * <p>
+ * Config locations, including those referenced via <code>extends</code> and
+ * <code>include</code>, are resolved against the resource directories of the
+ * project, then against its compile class path, which includes the configs 
+ * bundled with bcmetaselector.
+ * </p>
+ */
+@Mojo(name = "generate-matcher", defaultPhase = LifecyclePhase.GENERATE_SOURCES, 
+        requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class GenerateMatcherMojo extends AbstractMojo {
+
+    private static final String CONFIG_DIR = "META-INF/bcmetaselector/configs";
+
+    private static final String COMMENT_PREFIX = "!--";
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    /**
+     * The fully qualified name of the class to generate.
+     */
+    @Parameter(required = true)
+    private String className;
+
+    /**
+     * The locations of the config files, in order of precedence. Defaults to 
+     * the <code>*.json</code> files in <code>META-INF/bcmetaselector/configs</code>
+     * of the resource directories.
+     */
+    @Parameter
+    private List<String> configFiles;
+
+    /**
+     * The names of the properties to generate the matcher for. Defaults to 
+     * all the properties of the config files.
+     */
+    @Parameter
+    private List<String> propertyNames;
+
+    @Parameter(defaultValue = "UTF-8")
+    private String charset;
+
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/bcmetaselector", required = true)
+    private File outputDirectory;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+
+        final List<File> resourceDirs = this.getResourceDirs();
+
+        try(URLClassLoader classLoader = this.getCompileClassLoader()) {
+
+            final Function<String, InputStream> streamProvider = 
+                    (location) -> this.open(location, resourceDirs, classLoader);
+
+            final PropertiesParser propertiesParser = new PropertiesParser(
+                    streamProvider, new ConfigJsonReader(), charset, null);
+
+            final List<String> locations = configFiles == null || configFiles.isEmpty() ?
+                    this.findConfigFiles(resourceDirs) : configFiles;
+            if(locations.isEmpty()) {
+                throw new MojoExecutionException("No config files in " + CONFIG_DIR + 
+                        " of: " + resourceDirs + ", specify <configFiles>");
+            }
+
+            final List<String> names = propertyNames == null || propertyNames.isEmpty() ?
+                    this.findPropertyNames(propertiesParser, locations) : propertyNames;
+
+            final FilterBuilderImpl filterBuilder = new FilterBuilderImpl();
+            filterBuilder.configFilePaths(locations).propertyNames(names);
+
+            final Map<String, List<AttributeRule>> rules = filterBuilder.buildRules(propertiesParser);
+
+            final Path sourceFile = outputDirectory.toPath().resolve(className.replace('.', '/') + ".java");
+            Files.createDirectories(sourceFile.getParent());
+            try(Writer writer = Files.newBufferedWriter(sourceFile, StandardCharsets.UTF_8)) {
+                new MatcherSourceGenerator().generate(className, rules, writer);
+            }
+
+            getLog().info("Generated " + className + " for " + rules.size() + 
+                    " properties from " + locations.size() + " config files");
+
+        }catch(IOException | ParseException | RuntimeException e) {
+            throw new MojoExecutionException("Failed to generate " + className, e);
+        }
+
+        project.addCompileSourceRoot(outputDirectory.getAbsolutePath());
+    }
+
+    private InputStream open(String location, List<File> resourceDirs, ClassLoader classLoader) {
+        try{
+            for(File dir : resourceDirs) {
+                final File file = new File(dir, location);
+                if(file.isFile()) {
+                    return Files.newInputStream(file.toPath());
+                }
+            }
+            final File file = new File(location);
+            if(file.isAbsolute() && file.isFile()) {
+                return Files.newInputStream(file.toPath());
+            }
+            final InputStream in = classLoader.getResourceAsStream(location);
+            if(in != null) {
+                return in;
+            }
+            try{
+                return new URL(location).openStream();
+            }catch(MalformedURLException e) {
+                throw new FileNotFoundException(location);
+            }
+        }catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<String> findConfigFiles(List<File> resourceDirs) {
+        final List<String> output = new ArrayList<>();
+        for(File dir : resourceDirs) {
+            final File[] files = new File(dir, CONFIG_DIR).listFiles((d, name) -> name.endsWith(".json"));
+            if(files == null) {
+                continue;
+            }
+            Arrays.sort(files);
+            for(File file : files) {
+                output.add(CONFIG_DIR + '/' + file.getName());
+            }
+        }
+        return output;
+    }
+
+    private List<String> findPropertyNames(PropertiesParser propertiesParser, List<String> locations) 
+            throws IOException, ParseException {
+        final Set<String> output = new LinkedHashSet<>();
+        for(String location : locations) {
+            for(Object key : propertiesParser.parse(location).keySet()) {
+                final String name = key.toString();
+                if(!name.startsWith(COMMENT_PREFIX)) {
+                    output.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(output);
+    }
+
+    private List<File> getResourceDirs() {
+        final List<File> output = new ArrayList<>();
+        for(Resource resource : project.getResources()) {
+            output.add(new File(resource.getDirectory()));
+        }
+        return output;
+    }
+
+    private URLClassLoader getCompileClassLoader() throws MojoExecutionException {
+        try{
+            final List<URL> urls = new ArrayList<>();
+            for(String element : project.getCompileClasspathElements()) {
+                urls.add(new File(element).toURI().toURL());
+            }
+            return new URLClassLoader(urls.toArray(new URL[0]), this.getClass().getClassLoader());
+        }catch(Exception e) {
+            throw new MojoExecutionException("Failed to resolve the compile class path", e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.maven;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class GenerateMatcherMojoTest {
+
+    private static final String CONFIG = "{\n" +
+            "    \"!--notes\":[\"A config of the project, which includes a bundled one\"],\n" +
+            "    \"test\":{\n" +
+            "        \"include\":[\"META-INF/bcmetaselector/configs/basic.basic.json\"],\n" +
+            "        \"properties\":{\n" +
+            "            \"title\":[{\"property\":\"og:title\"}],\n" +
+            "            \"tagSet\":[{\"property\":\"regex(:tag)\"}]\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+
+    public GenerateMatcherMojoTest() { }
+
+    @Test
+    public void testExecute() throws Exception {
+
+        System.out.println("testExecute");
+
+        final Path dir = Files.createTempDirectory("bcmetaselector-maven-plugin");
+
+        final Path resources = dir.resolve("resources");
+        final Path configs = resources.resolve("META-INF/bcmetaselector/configs");
+        Files.createDirectories(configs);
+        Files.write(configs.resolve("test.json"), CONFIG.getBytes(StandardCharsets.UTF_8));
+
+        final Path outputDirectory = dir.resolve("generated-sources");
+
+        final MavenProject project = this.getProject(dir, resources);
+
+        final GenerateMatcherMojo mojo = new GenerateMatcherMojo();
+        this.set(mojo, "project", project);
+        this.set(mojo, "className", "com.example.TestMatcher");
+        this.set(mojo, "charset", "UTF-8");
+        this.set(mojo, "outputDirectory", outputDirectory.toFile());
+
+        mojo.execute();
+
+        final Path sourceFile = outputDirectory.resolve("com/example/TestMatcher.java");
+        assertTrue(Files.isRegularFile(sourceFile));
+
+        final String source = new String(Files.readAllBytes(sourceFile), StandardCharsets.UTF_8);
+        System.out.println(source);
+
+        assertTrue(source.contains("package com.example;"));
+        assertTrue(source.contains("public class TestMatcher<NODE> extends AttributeIndex<NODE>"));
+        // The properties of the config, then those it includes
+        for(String constant : Arrays.asList("TITLE", "TAG_SET", "AUTHOR", "KEYWORDS", "DESCRIPTION")) {
+            assertTrue(constant, source.contains("public static final int " + constant + " = "));
+        }
+        assertTrue(source.contains("case \"og:title\":"));
+        assertTrue(source.contains("contains(attrValue, \":tag\")"));
+
+        assertEquals(Collections.singletonList(outputDirectory.toFile().getAbsolutePath()), 
+                project.getCompileSourceRoots());
+    }
+
+    @Test
+    public void testNoConfigFiles() throws Exception {
+
+        System.out.println("testNoConfigFiles");
+
+        final Path dir = Files.createTempDirectory("bcmetaselector-maven-plugin");
+
+        final GenerateMatcherMojo mojo = new GenerateMatcherMojo();
+        this.set(mojo, "project", this.getProject(dir, dir.resolve("resources")));
+        this.set(mojo, "className", "com.example.TestMatcher");
+        this.set(mojo, "charset", "UTF-8");
+        this.set(mojo, "outputDirectory", dir.resolve("generated-sources").toFile());
+
+        try{
+            mojo.execute();
+            fail("Expected MojoExecutionException");
+        }catch(MojoExecutionException expected) { 
+            System.out.println(expected);
+        }
+    }
+
+    private MavenProject getProject(Path dir, Path resources) {
+        final MavenProject project = new MavenProject();
+        project.getBuild().setOutputDirectory(dir.resolve("classes").toString());
+        final Resource resource = new Resource();
+        resource.setDirectory(resources.toString());
+        project.addResource(resource);
+        return project;
+    }
+
+    /** Sets a parameter as maven would, the mojo having no setters */
+    private void set(GenerateMatcherMojo mojo, String name, Object value) throws ReflectiveOperationException {
+        final Field field = GenerateMatcherMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+}
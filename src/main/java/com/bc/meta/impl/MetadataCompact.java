@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.impl;
+
+import com.bc.meta.Metadata;
+import com.bc.meta.selector.PropertySchema;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A compact {@link Metadata}, holding one slot per property of a shared 
+ * {@link PropertySchema}.
+ * <p>
+ * The slot of a property holds its value, or for multi-value properties an 
+ * array of its distinct values in the order added, or null if there is none.
+ * There are no per-instance maps, sets or entries; {@link #toMap()} and 
+ * {@link #getValues(java.lang.String)} return read-only views of the slots.
+ * Build instances with {@link com.bc.meta.selector.impl.Collectors#toMetadata(com.bc.meta.selector.PropertySchema)}.
+ * </p>
+ * <p>Instances are immutable and may be shared between threads.</p>
+ */
+public class MetadataCompact implements Serializable, Metadata {
+
+    private final PropertySchema schema;
+
+    private final Object [] slots;
+
+    /**
+     * @param schema The schema of the properties
+     * @param slots The value of each property by id, an <code>Object[]</code> 
+     * of distinct values for multi-value properties. The array is not copied
+     * and must not be modified after this call.
+     */
+    public MetadataCompact(PropertySchema schema, Object [] slots) {
+        this.schema = Objects.requireNonNull(schema);
+        this.slots = Objects.requireNonNull(slots);
+        if(slots.length != schema.size()) {
+            throw new IllegalArgumentException("Expected " + schema.size() + " slots, found: " + slots.length);
+        }
+    }
+
+    /**
+     * @param schema The schema of the properties
+     * @param values The values of the properties. Names not in the schema are ignored.
+     * @return A compact copy of the values
+     */
+    public static MetadataCompact of(PropertySchema schema, Map<String, ?> values) {
+        final Object [] slots = new Object[schema.size()];
+        for(int id=0; id<slots.length; id++) {
+            final Object value = values.get(schema.getName(id));
+            slots[id] = value instanceof Collection ? ((Collection)value).toArray() : value;
+        }
+        return new MetadataCompact(schema, slots);
+    }
+
+    public PropertySchema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public Map<String, ?> toMap() {
+        return new AbstractMap<String, Object>() {
+            @Override
+            public Set<Entry<String, Object>> entrySet() {
+                return new AbstractSet<Entry<String, Object>>() {
+                    @Override
+                    public Iterator<Entry<String, Object>> iterator() {
+                        return new Iterator<Entry<String, Object>>() {
+                            private int next = nextSlot(0);
+                            @Override
+                            public boolean hasNext() {
+                                return next < slots.length;
+                            }
+                            @Override
+                            public Entry<String, Object> next() {
+                                if(!this.hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                final int id = next;
+                                next = nextSlot(id + 1);
+                                return new SimpleImmutableEntry<>(schema.getName(id), toValue(slots[id]));
+                            }
+                        };
+                    }
+                    @Override
+                    public int size() {
+                        int size = 0;
+                        for(Object slot : slots) {
+                            if(slot != null) {
+                                ++size;
+                            }
+                        }
+                        return size;
+                    }
+                };
+            }
+            @Override
+            public Object get(Object key) {
+                final int id = key instanceof String ? schema.getId((String)key) : -1;
+                return id == -1 ? null : toValue(slots[id]);
+            }
+            @Override
+            public boolean containsKey(Object key) {
+                return this.get(key) != null;
+            }
+        };
+    }
+
+    private int nextSlot(int from) {
+        int id = from;
+        while(id < slots.length && slots[id] == null) {
+            ++id;
+        }
+        return id;
+    }
+
+    private Object toValue(Object slot) {
+        return slot instanceof Object[] ? new Values((Object[])slot) : slot;
+    }
+
+    @Override
+    public String getValue(String name, String outputIfNone) {
+        final int id = schema.getId(name);
+        final Object slot = id == -1 ? null : slots[id];
+        if(slot instanceof Object[]) {
+            final Object [] values = (Object[])slot;
+            return values.length == 0 ? outputIfNone : (String)values[0];
+        }
+        return slot == null ? outputIfNone : (String)slot;
+    }
+
+    @Override
+    public Set<String> getValues(String name) {
+        final int id = schema.getId(name);
+        final Object slot = id == -1 ? null : slots[id];
+        if(slot == null) {
+            return Collections.EMPTY_SET;
+        }
+        return slot instanceof Object[] ? new Values((Object[])slot) : 
+                Collections.singleton((String)slot);
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + this.toMap();
+    }
+
+    /** A read-only view of the distinct values of a multi-value property */
+    private static final class Values extends AbstractSet implements Serializable {
+        private final Object [] values;
+        private Values(Object [] values) {
+            this.values = values;
+        }
+        @Override
+        public Iterator iterator() {
+            return new Iterator() {
+                private int next;
+                @Override
+                public boolean hasNext() {
+                    return next < values.length;
+                }
+                @Override
+                public Object next() {
+                    if(!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return values[next++];
+                }
+            };
+        }
+        @Override
+        public boolean contains(Object o) {
+            for(Object value : values) {
+                if(Objects.equals(o, value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bc.meta.selector;
+
+/**
+ * Indexed access to the attributes of a node.
+ * <p>
+ * When the {@link AttributeTestProvider} given to a {@link FilterBuilder} also
+ * implements this interface, the exact attribute rules of the configs are indexed
+ * by attribute name and value. Each node is then resolved to its candidate
+ * properties with one lookup per attribute it carries, rather than by testing
+ * every rule of every property.
+ * </p>
+ * <p>
+ * Implementations must be consistent with their attribute tests, i.e
+ * {@link AttributeTestProvider#getAttributeTest(java.lang.String, java.lang.String)}
+ * accepts a node if and only if the node has an attribute of the given
+ * name (case insensitive) with exactly the given value, and
+ * {@link AttributeTestProvider#getAttributeRegexTest(java.lang.String, java.lang.String)}
+ * accepts a node only if the value regex finds a match within the value of one
+ * of the node's attributes.
+ * </p>
+ * @param <NODE> The type of the Node whose attributes are accessed
+ */
+public interface AttributeProvider<NODE> {
+
+    int getAttributeCount(NODE node);
+
+    /**
+     * @param node The node whose attribute name is to be returned
+     * @param index The index of the attribute
+     * @return The name of the attribute at the specified index or null if
+     * the attribute has no name
+     */
+    String getAttributeName(NODE node, int index);
+
+    /**
+     * @param node The node whose attribute value is to be returned
+     * @param index The index of the attribute
+     * @return The value of the attribute at the specified index or null if
+     * the attribute has no value
+     */
+    String getAttributeValue(NODE node, int index);
+}
@@ -16,9 +16,11 @@
 
 package com.bc.meta.selector;
 
+import com.bc.meta.selector.util.ConfigCache;
 import com.bc.meta.selector.util.JsonParser;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.text.ParseException;
 import java.util.Arrays;
@@ -33,8 +35,28 @@ import java.util.function.Predicate;
  */
 public interface FilterBuilder<NODE, PREVIOUS_BUILDER> extends Builder<Function<String, Predicate<NODE>>, PREVIOUS_BUILDER> {
 
+    /**
+     * In adaptive mode, the rules of each property are tried in an order learnt 
+     * from the nodes tested: rules which often match, and are cheap to test, 
+     * are tried first. Results are the same as in the config order. Rules 
+     * are not indexed in adaptive mode, even where the attribute context is
+     * an {@link AttributeProvider}. Default is false.
+     * @param adaptive true to enable adaptive mode
+     * @return This builder
+     * @see com.bc.meta.selector.impl.Predicates.AdaptiveAnyOf
+     */
+    FilterBuilder<NODE, PREVIOUS_BUILDER> adaptive(boolean adaptive);
+    
     FilterBuilder<NODE, PREVIOUS_BUILDER> attributeContext(AttributeTestProvider<NODE> attributeContext);
 
+    /**
+     * The returned function and the predicates it returns are immutable. They 
+     * are safe to share between threads if the tests of the attribute context 
+     * are thread safe.
+     * @return The function which returns the filter of each property name
+     * @throws IOException
+     * @throws ParseException 
+     */
     @Override
     Function<String, Predicate<NODE>> build() throws IOException, ParseException;
     
@@ -44,6 +66,13 @@ public interface FilterBuilder<NODE, PREVIOUS_BUILDER> extends Builder<Function<
 
     FilterBuilder<NODE, PREVIOUS_BUILDER> charset(String charset);
     
+    /**
+     * @param configCache The cache of parsed config objects, or null to parse 
+     * the configs afresh. Default is {@link ConfigCache#shared()}
+     * @return This builder
+     */
+    FilterBuilder<NODE, PREVIOUS_BUILDER> configCache(ConfigCache configCache);
+    
     default FilterBuilder<NODE, PREVIOUS_BUILDER> configFilePaths(String... configFilePaths) {
         return this.configFilePaths(Arrays.asList(configFilePaths));
     }
@@ -54,8 +83,42 @@ public interface FilterBuilder<NODE, PREVIOUS_BUILDER> extends Builder<Function<
 
     FilterBuilder<NODE, PREVIOUS_BUILDER> filterContextProvider(BiFunction<AttributeTestProvider<NODE>, Map, FilterContext<NODE>> filterContextProvider);
 
+    /**
+     * @param jsonParser The parser of the config files. Defaults to the 
+     * built-in {@link com.bc.meta.selector.util.ConfigJsonReader}. Cached 
+     * configs are shared between parsers of the same class
+     * @return This builder
+     */
     FilterBuilder<NODE, PREVIOUS_BUILDER> jsonParser(JsonParser jsonParser);
     
+    /**
+     * @param metrics Receives the measurements of config loading and parsing,
+     * and of config cache lookups. Defaults to {@link SelectorMetrics#NONE}
+     * @return This builder
+     */
+    FilterBuilder<NODE, PREVIOUS_BUILDER> metrics(SelectorMetrics metrics);
+    
+    /**
+     * Build from a snapshot of resolved rules, rather than from config files.
+     * The snapshot is read via the stream provider; no JSON parser is required.
+     * If no property names are specified, all the properties of the snapshot 
+     * are used. The filter context provider does not apply to snapshots.
+     * @param location The location of the snapshot, or null to build from the config files
+     * @return This builder
+     * @see com.bc.meta.selector.util.RuleSnapshot
+     */
+    FilterBuilder<NODE, PREVIOUS_BUILDER> snapshot(String location);
+    
+    /**
+     * Writes the rules of the property names, resolved from the config files, 
+     * as a snapshot which may later be built from.
+     * @param out The stream to write to. Not closed
+     * @throws IOException
+     * @throws ParseException 
+     * @see #snapshot(java.lang.String) 
+     */
+    void writeSnapshot(OutputStream out) throws IOException, ParseException;
+    
     default FilterBuilder<NODE, PREVIOUS_BUILDER> propertyNames(String... propertyNames) {
         return this.propertyNames(Arrays.asList(propertyNames));
     }
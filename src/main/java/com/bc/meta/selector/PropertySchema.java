@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * The properties to select, each assigned a dense int id in the order given.
+ * <p>
+ * The multi-value flag and limit of each property are resolved once, when
+ * the schema is created, so that selection addresses properties, their tests 
+ * and their values by id, without hashing or comparing names. See 
+ * {@link Selector#select(java.util.Iterator, com.bc.meta.selector.PropertySchema, com.bc.meta.selector.Selector.Collector)}
+ * and {@link Selector.IndexedCollector}.
+ * </p>
+ * <p>Instances are immutable and may be shared between threads.</p>
+ */
+public final class PropertySchema implements Serializable {
+
+    private final String [] names;
+
+    private final Map<String, Integer> ids;
+
+    private final BitSet multiValue;
+
+    private final int [] multiValueLimits;
+
+    /**
+     * @param names The names of the properties, in order of the ids to assign.
+     * Repeated names are ignored.
+     * @return A new schema of the specified properties, none of which is multi-value
+     */
+    public static PropertySchema of(Collection<String> names) {
+        return new PropertySchema(names, (name) -> false, (name) -> 1);
+    }
+
+    /**
+     * @param names The names of the properties, in order of the ids to assign.
+     * Repeated names are ignored.
+     * @param multiValueTest Tests whether a property may have multiple values
+     * @param multiValueLimit The maximum number of values to select for each 
+     * multi-value property
+     * @return A new schema of the specified properties
+     */
+    public static PropertySchema of(Collection<String> names, 
+            Predicate<String> multiValueTest, ToIntFunction<String> multiValueLimit) {
+        return new PropertySchema(names, multiValueTest, multiValueLimit);
+    }
+
+    private PropertySchema(Collection<String> names, 
+            Predicate<String> multiValueTest, ToIntFunction<String> multiValueLimit) {
+        final Set<String> unique = new LinkedHashSet<>(names);
+        this.names = unique.toArray(new String[unique.size()]);
+        this.ids = new HashMap<>(this.names.length * 2);
+        this.multiValue = new BitSet(this.names.length);
+        this.multiValueLimits = new int[this.names.length];
+        for(int id=0; id<this.names.length; id++) {
+            final String name = Objects.requireNonNull(this.names[id]);
+            ids.put(name, id);
+            if(multiValueTest.test(name)) {
+                multiValue.set(id);
+                multiValueLimits[id] = multiValueLimit.applyAsInt(name);
+            }else{
+                multiValueLimits[id] = 1;
+            }
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param name The property name
+     * @return The id of the property, or -1 if the property is not in this schema
+     */
+    public int getId(String name) {
+        final Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String getName(int id) {
+        return names[id];
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    public boolean isMultiValue(int id) {
+        return multiValue.get(id);
+    }
+
+    /**
+     * @param id The property id
+     * @return The maximum number of values to select for the property; 
+     * 1 for properties which are not multi-value
+     */
+    public int getMultiValueLimit(int id) {
+        return multiValueLimits[id];
+    }
+
+    /**
+     * @param names The names to compare
+     * @return true if this schema has exactly the specified names, in the same order
+     */
+    public boolean hasNames(Collection<String> names) {
+        if(names.size() != this.names.length) {
+            return false;
+        }
+        final Iterator<String> iter = names.iterator();
+        for(String name : this.names) {
+            if(!name.equals(iter.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + Arrays.toString(names);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Reusable state for selecting the properties of a {@link PropertySchema}: 
+ * a slot per property for the values selected, and the scratch state of a 
+ * single call to select.
+ * <p>
+ * Selecting with a context, rather than with a new collector per document, 
+ * allocates nothing per document for single-value properties, beyond what
+ * the attribute tests allocate, e.g a regex test creates a Matcher. Contexts 
+ * are not thread safe; keep one per thread, e.g:
+ * </p>
+ * <pre>
+ * private final ThreadLocal&lt;SelectionContext&gt; contexts = 
+ *         ThreadLocal.withInitial(() -&gt; new SelectionContext(schema));
+ * ...
+ * final SelectionContext context = selector.select(nodes, contexts.get());
+ * final Object title = context.get(titleId);
+ * </pre>
+ * <p>
+ * The values of the context are those of the last selection, until the next.
+ * </p>
+ */
+public final class SelectionContext {
+
+    private final PropertySchema schema;
+
+    private final Object [] values;
+
+    private final boolean [] complete;
+
+    private final BitSet matched;
+
+    private final Selector.IndexedCollector<SelectionContext> collector;
+
+    private String documentId;
+
+    public SelectionContext(PropertySchema schema) {
+        this.schema = Objects.requireNonNull(schema);
+        this.values = new Object[schema.size()];
+        this.complete = new boolean[schema.size()];
+        this.matched = new BitSet();
+        this.collector = new Selector.IndexedCollector<SelectionContext>() {
+            @Override
+            public PropertySchema getSchema() {
+                return SelectionContext.this.schema;
+            }
+            @Override
+            public Object get(int id) {
+                return values[id];
+            }
+            @Override
+            public void put(int id, Object value) {
+                values[id] = value;
+            }
+            @Override
+            public SelectionContext buildResult() {
+                return SelectionContext.this;
+            }
+            @Override
+            public Object getOrDefault(String propertyName, Object valueIfNone) {
+                return SelectionContext.this.getOrDefault(propertyName, valueIfNone);
+            }
+            @Override
+            public void put(String propertyName, Object value) {
+                final int id = SelectionContext.this.schema.getId(propertyName);
+                if(id == -1) {
+                    throw new IllegalArgumentException("Not in schema: " + propertyName);
+                }
+                values[id] = value;
+            }
+        };
+    }
+
+    /**
+     * Clears the values of the last selection. The document id is kept.
+     * @return This context
+     */
+    public SelectionContext reset() {
+        Arrays.fill(values, null);
+        return this;
+    }
+
+    public PropertySchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @param documentId The id of the document to be selected next, reported 
+     * with the selection, e.g in {@link com.bc.meta.selector.jfr JFR} events. 
+     * May be null.
+     * @return This context
+     */
+    public SelectionContext documentId(String documentId) {
+        this.documentId = documentId;
+        return this;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    /**
+     * @param id The id of the property in the schema
+     * @return The value selected for the property, a Collection for 
+     * multi-value properties, or null if none
+     */
+    public Object get(int id) {
+        return values[id];
+    }
+
+    public Object getOrDefault(String name, Object valueIfNone) {
+        final int id = schema.getId(name);
+        return id == -1 || values[id] == null ? valueIfNone : values[id];
+    }
+
+    /**
+     * @return The collector which puts values into the slots of this context
+     */
+    public Selector.IndexedCollector<SelectionContext> getCollector() {
+        return collector;
+    }
+
+    /**
+     * Scratch state for selector implementations.
+     * @return The completion flag of each property, by id
+     */
+    public boolean [] getCompleteFlags() {
+        return complete;
+    }
+
+    /**
+     * Scratch state for selector implementations.
+     * @return A BitSet for the properties matched by a node
+     */
+    public BitSet getMatched() {
+        return matched;
+    }
+}
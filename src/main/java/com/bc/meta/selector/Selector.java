@@ -17,11 +17,26 @@
 package com.bc.meta.selector;
 
 import com.bc.meta.selector.impl.SelectorBuilderImpl;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
+ * Selectors built by {@link SelectorBuilder} are immutable and may be shared 
+ * between threads, provided the attribute context, node value extractor and 
+ * multi-value test they were built with are themselves thread safe. 
+ * Collectors and node iterators are never shared, one of each is used per
+ * document.
  * @author Chinomso Bassey Ikwuagwu on Jun 21, 2018 12:06:53 PM
  */
 public interface Selector<NODE> {
@@ -36,9 +51,178 @@ public interface Selector<NODE> {
         public void put(String propertyName, Object value);
     }
     
+    /**
+     * A collector whose values are addressed by the ids of a {@link PropertySchema}.
+     * When selecting with the same schema, values are read and written by id.
+     * @param <RESULT> The type of the result
+     * @see com.bc.meta.selector.impl.Collectors#toSlots(com.bc.meta.selector.PropertySchema) 
+     */
+    public static interface IndexedCollector<RESULT> extends Collector<RESULT> {
+        public PropertySchema getSchema();
+        /**
+         * @param id The id of the property in the schema
+         * @return The value of the property, or null if none
+         */
+        public Object get(int id);
+        public void put(int id, Object value);
+    }
+    
     default <RESULT> RESULT select(Iterator<NODE> nodeIterator, String[] names, Collector<RESULT> collector) {
         return this.select(nodeIterator, Arrays.asList(names), collector);
     }
 
     <RESULT> RESULT select(Iterator<NODE> nodeIterator, Collection<String> names, Collector<RESULT> collector);
+    
+    /**
+     * The default implementation returns a schema in which no property is 
+     * multi-value. That suits the default implementation of selecting by 
+     * schema, which selects by the names of the schema.
+     * @param names The names of the properties to select
+     * @return A schema of the specified properties, with the multi-value 
+     * flags and limits of this selector
+     */
+    default PropertySchema schema(Collection<String> names) {
+        return PropertySchema.of(names);
+    }
+    
+    /**
+     * Selects the properties of the schema. The multi-value flags and limits 
+     * of the schema apply, rather than those the selector was built with.
+     * Creating the schema once, and selecting many documents with it, saves 
+     * resolving the names on every call. The default implementation selects 
+     * by the names of the schema.
+     * @param <RESULT> The type of the result
+     * @param nodeIterator The nodes to select from
+     * @param schema The properties to select
+     * @param collector The collector of the result
+     * @return The result
+     */
+    default <RESULT> RESULT select(Iterator<NODE> nodeIterator, PropertySchema schema, Collector<RESULT> collector) {
+        return this.select(nodeIterator, schema.getNames(), collector);
+    }
+    
+    /**
+     * Selects into the reusable context, after clearing the values of the last
+     * selection. The default implementation selects with the context's collector.
+     * @param nodeIterator The nodes to select from
+     * @param context The context to select into, see {@link SelectionContext}
+     * @return The context
+     */
+    default SelectionContext select(Iterator<NODE> nodeIterator, SelectionContext context) {
+        return this.select(nodeIterator, context.reset().getSchema(), context.getCollector());
+    }
+    
+    /**
+     * Selects asynchronously, using the common fork-join pool.
+     * @param <RESULT> The type of the result
+     * @param nodeIteratorSupplier Supplies the node iterator. Invoked on the 
+     * thread which does the selection
+     * @param names The names of the properties to select
+     * @param collector The collector of the result
+     * @return A future which completes with the result, or exceptionally with
+     * the failure of the selection
+     * @see #selectAsync(java.util.function.Supplier, java.util.Collection, com.bc.meta.selector.Selector.Collector, java.util.concurrent.Executor) 
+     */
+    default <RESULT> CompletableFuture<RESULT> selectAsync(Supplier<Iterator<NODE>> nodeIteratorSupplier,
+            Collection<String> names, Collector<RESULT> collector) {
+        return this.selectAsync(nodeIteratorSupplier, names, collector, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Selects asynchronously, on the specified executor.
+     * <p>
+     * Node iterators which block, e.g on I/O, should be run on an executor 
+     * from {@link com.bc.meta.selector.util.SelectionExecutors}, which uses 
+     * virtual threads when the JDK supports them.
+     * </p>
+     * @param <RESULT> The type of the result
+     * @param nodeIteratorSupplier Supplies the node iterator. Invoked on the 
+     * thread which does the selection
+     * @param names The names of the properties to select
+     * @param collector The collector of the result
+     * @param executor The executor to run the selection on
+     * @return A future which completes with the result, or exceptionally with
+     * the failure of the selection
+     */
+    default <RESULT> CompletableFuture<RESULT> selectAsync(Supplier<Iterator<NODE>> nodeIteratorSupplier,
+            Collection<String> names, Collector<RESULT> collector, Executor executor) {
+        Objects.requireNonNull(nodeIteratorSupplier);
+        Objects.requireNonNull(collector);
+        return CompletableFuture.supplyAsync(
+                () -> this.select(nodeIteratorSupplier.get(), names, collector), executor);
+    }
+
+    /**
+     * Selects from each document in parallel, using the common fork-join pool.
+     * @param <RESULT> The type of the result of each document
+     * @param documents Supply the node iterator of each document
+     * @param names The names of the properties to select
+     * @param collectorFactory Supplies a new collector for each document
+     * @return The result of each document, in order of the documents
+     * @see #selectAll(java.util.Collection, java.util.Collection, java.util.function.Supplier, java.util.concurrent.Executor) 
+     */
+    default <RESULT> List<RESULT> selectAll(Collection<? extends Supplier<Iterator<NODE>>> documents, 
+            Collection<String> names, Supplier<Collector<RESULT>> collectorFactory) {
+        return this.selectAll(documents, names, collectorFactory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Selects from each document in parallel, on the specified executor.
+     * <p>
+     * If selection fails for any document, the first failure, in order of the
+     * documents, is thrown after all the documents have been processed.
+     * </p>
+     * @param <RESULT> The type of the result of each document
+     * @param documents Supply the node iterator of each document
+     * @param names The names of the properties to select
+     * @param collectorFactory Supplies a new collector for each document
+     * @param executor The executor to run the selection of each document on
+     * @return The result of each document, in order of the documents
+     */
+    default <RESULT> List<RESULT> selectAll(Collection<? extends Supplier<Iterator<NODE>>> documents, 
+            Collection<String> names, Supplier<Collector<RESULT>> collectorFactory, Executor executor) {
+        
+        final List<CompletableFuture<RESULT>> futures = new ArrayList<>(documents.size());
+        
+        for(Supplier<Iterator<NODE>> document : documents) {
+            futures.add(this.selectAsync(document, names, collectorFactory.get(), executor));
+        }
+        
+        final List<RESULT> results = new ArrayList<>(futures.size());
+        
+        RuntimeException failure = null;
+        
+        for(CompletableFuture<RESULT> future : futures) {
+            try{
+                results.add(future.join());
+            }catch(CompletionException e) {
+                if(failure == null) {
+                    failure = e.getCause() instanceof RuntimeException ? 
+                            (RuntimeException)e.getCause() : e;
+                }
+            }
+        }
+        
+        if(failure != null) {
+            throw failure;
+        }
+        
+        return results;
+    }
+
+    /**
+     * Selects from each document of the stream. The selection is run in 
+     * parallel if the stream is parallel.
+     * @param <RESULT> The type of the result of each document
+     * @param documents Supply the node iterator of each document
+     * @param names The names of the properties to select
+     * @param collectorFactory Supplies a new collector for each document
+     * @return The result of each document, in encounter order of the documents
+     */
+    default <RESULT> List<RESULT> selectAll(Stream<? extends Supplier<Iterator<NODE>>> documents, 
+            Collection<String> names, Supplier<Collector<RESULT>> collectorFactory) {
+        return documents
+                .map((document) -> this.select(document.get(), names, collectorFactory.get()))
+                .collect(Collectors.toList());
+    }
 }
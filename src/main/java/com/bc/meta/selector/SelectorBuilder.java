@@ -19,7 +19,9 @@ package com.bc.meta.selector;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
 /**
  * @author Chinomso Bassey Ikwuagwu on Jun 21, 2018 11:51:43 AM
@@ -38,7 +40,57 @@ public interface SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> extends Buil
     
     SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> filterBuilder(FilterBuilder<NODE, SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER>> filterBuilder);
 
+    /**
+     * @param nodeTestProvider A prebuilt provider of the test of each property, 
+     * e.g a matcher generated by {@link com.bc.meta.selector.impl.MatcherSourceGenerator}.
+     * If specified, it is used instead of building one via the {@link #filter() filter builder}.
+     * @return this builder
+     */
+    SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> nodeTestProvider(Function<String, Predicate<NODE>> nodeTestProvider);
+
     SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> nodeValueExtractor(BiFunction<String, NODE, NODEVALUE> nodeConverter);
 
     SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> multiValueTest(Predicate<String> multipleValueTest);
+    
+    default SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> multiValueLimit(int limit) {
+        return this.multiValueLimit((name) -> limit);
+    }
+
+    /**
+     * @param multiValueLimit Returns the maximum number of values to select 
+     * for each multi-value property. Defaults to no limit.
+     * @return this builder
+     */
+    SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> multiValueLimit(ToIntFunction<String> multiValueLimit);
+
+    /**
+     * @param stopWhenComplete If true, selection returns without consuming the 
+     * remaining nodes once every requested property has a value and every 
+     * multi-value property has reached its limit. Defaults to true.
+     * @return this builder
+     */
+    SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> stopWhenComplete(boolean stopWhenComplete);
+
+    /**
+     * @param terminator Selection stops, without consuming further nodes, at 
+     * the first node accepted by this test. The accepted node is not selected.
+     * Defaults to none.
+     * @return this builder
+     */
+    SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> terminator(Predicate<NODE> terminator);
+
+    /**
+     * @param maxNodes The maximum number of nodes to consume per selection. 
+     * Defaults to no limit.
+     * @return this builder
+     */
+    SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> maxNodes(int maxNodes);
+
+    /**
+     * @param metrics Receives the measurements of each selection. Config 
+     * loading is measured by the metrics of the {@link #filter() filter builder}.
+     * Defaults to {@link SelectorMetrics#NONE}.
+     * @return this builder
+     */
+    SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> metrics(SelectorMetrics metrics);
 }
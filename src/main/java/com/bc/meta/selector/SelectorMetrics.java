@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector;
+
+/**
+ * Receives the measurements of selection and config loading.
+ * <p>
+ * Implementations override the events they are interested in; every event
+ * is a no-op by default. Events are reported from the threads selecting and
+ * loading, so implementations must be thread safe and should not block.
+ * When {@link #isEnabled()} returns false, no measurements are taken.
+ * </p>
+ * @see com.bc.meta.selector.util.SelectorMetricsJmx
+ */
+public interface SelectorMetrics {
+
+    /** Takes no measurements. The default. */
+    SelectorMetrics NONE = new SelectorMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+        @Override
+        public String toString() {
+            return "SelectorMetrics.NONE";
+        }
+    };
+
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Reported once per document, at the end of each call to select.
+     * @param nodesScanned The number of nodes read from the node iterator
+     * @param nodesSelected The number of nodes whose values were selected
+     * @param predicateEvaluations The number of property tests evaluated. A 
+     * node resolved via an index of the rules counts as one evaluation.
+     * @param nanos The time taken by the call to select
+     */
+    default void selected(int nodesScanned, int nodesSelected, long predicateEvaluations, long nanos) { }
+
+    /**
+     * Reported each time a node is selected as a value of a property.
+     * @param propertyName The name of the property
+     */
+    default void propertySelected(String propertyName) { }
+
+    /**
+     * Reported once per config object loaded, i.e not found in the cache.
+     * @param location The location of the config
+     * @param nanos The time taken to load the config, including the configs 
+     * it extends or includes
+     */
+    default void configLoaded(String location, long nanos) { }
+
+    /**
+     * @param location The location of the config
+     * @param nanos The time taken by the JSON parser to parse the config
+     */
+    default void configParsed(String location, long nanos) { }
+
+    /**
+     * @param key The key of a config object found in the config cache
+     */
+    default void cacheHit(Object key) { }
+
+    /**
+     * @param key The key of a config object not found in the config cache
+     */
+    default void cacheMiss(Object key) { }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector;
+
+import com.bc.meta.selector.util.SelectionExecutors;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link java.util.concurrent.Flow.Processor} which selects one result from
+ * each document it receives.
+ * <p>
+ * Each item received is the nodes of one document. The nodes are iterated 
+ * lazily, so an {@link Iterable} over a streaming parser is never materialized.
+ * Since each document yields exactly one result, the demand of the subscriber
+ * is passed through unchanged to the publisher: no document is requested
+ * before its result is requested, and a slow subscriber slows the parsing.
+ * </p>
+ * <p>
+ * Selection is handed to an {@link Executor}, so a publisher which delivers 
+ * documents is not held up by the iteration of their nodes. Documents are 
+ * selected one at a time, in the order received, and the terminal signals 
+ * of the publisher are passed on after the results of the preceding 
+ * documents. By default selection runs on {@link SelectionExecutors#perTask()}, 
+ * since the nodes of a document may be read from a blocking source.
+ * </p>
+ * <p>
+ * Only one subscriber is supported; subsequent subscribers receive an 
+ * {@link IllegalStateException} via <code>onError</code>.
+ * </p>
+ * @param <NODE> The type of the Node to select from
+ * @param <RESULT> The type of the result of each document
+ */
+public class SelectorProcessor<NODE, RESULT> implements Flow.Processor<Iterable<NODE>, RESULT> {
+
+    private transient static final Logger LOG = Logger.getLogger(SelectorProcessor.class.getName());
+
+    private final Selector<NODE> selector;
+
+    private final Collection<String> names;
+
+    private final Supplier<Selector.Collector<RESULT>> collectorFactory;
+
+    private final Executor executor;
+
+    /** Signals of the publisher, run in order and one at a time on the executor */
+    private final Queue<Runnable> signals = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger signalsPending = new AtomicInteger();
+
+    private final Object lock = new Object();
+
+    private Flow.Subscription upstream;
+
+    private Flow.Subscriber<? super RESULT> downstream;
+
+    /** Demand requested by the subscriber before the publisher subscribed */
+    private long pendingDemand;
+
+    private boolean cancelled;
+
+    private boolean done;
+
+    /** A terminal signal received before the subscriber subscribed */
+    private Throwable pendingError;
+
+    private boolean pendingComplete;
+
+    public SelectorProcessor(Selector<NODE> selector, Collection<String> names, 
+            Supplier<Selector.Collector<RESULT>> collectorFactory) {
+        this(selector, names, collectorFactory, SelectionExecutors.perTask());
+    }
+
+    public SelectorProcessor(Selector<NODE> selector, Collection<String> names, 
+            Supplier<Selector.Collector<RESULT>> collectorFactory, Executor executor) {
+        this.selector = Objects.requireNonNull(selector);
+        this.names = Objects.requireNonNull(names);
+        this.collectorFactory = Objects.requireNonNull(collectorFactory);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super RESULT> subscriber) {
+        Objects.requireNonNull(subscriber);
+        synchronized(lock) {
+            if(downstream != null) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) { }
+                    @Override
+                    public void cancel() { }
+                });
+                subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+                return;
+            }
+            downstream = subscriber;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                SelectorProcessor.this.request(n);
+            }
+            @Override
+            public void cancel() {
+                SelectorProcessor.this.cancel();
+            }
+        });
+        final Throwable error;
+        final boolean complete;
+        synchronized(lock) {
+            error = pendingError;
+            complete = pendingComplete;
+        }
+        if(error != null) {
+            this.signalError(error);
+        }else if(complete) {
+            this.signalComplete();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+        final long demand;
+        synchronized(lock) {
+            if(upstream != null || cancelled || done) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            demand = pendingDemand;
+            pendingDemand = 0;
+        }
+        if(demand > 0) {
+            subscription.request(demand);
+        }
+    }
+
+    @Override
+    public void onNext(Iterable<NODE> document) {
+        Objects.requireNonNull(document);
+        this.execute(() -> this.select(document));
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable);
+        this.execute(() -> {
+            synchronized(lock) {
+                if(downstream == null) {
+                    pendingError = throwable;
+                    return;
+                }
+            }
+            this.signalError(throwable);
+        });
+    }
+
+    @Override
+    public void onComplete() {
+        this.execute(() -> {
+            synchronized(lock) {
+                if(downstream == null) {
+                    pendingComplete = true;
+                    return;
+                }
+            }
+            this.signalComplete();
+        });
+    }
+
+    private void select(Iterable<NODE> document) {
+        
+        final Flow.Subscriber<? super RESULT> subscriber;
+        synchronized(lock) {
+            if(cancelled || done) {
+                return;
+            }
+            subscriber = downstream;
+        }
+        
+        final RESULT result;
+        try{
+            result = selector.select(document.iterator(), names, collectorFactory.get());
+        }catch(RuntimeException e) {
+            this.cancelUpstream();
+            this.signalError(e);
+            return;
+        }
+        
+        synchronized(lock) {
+            // Cancelled or terminated while selecting
+            if(cancelled || done) {
+                return;
+            }
+        }
+        
+        subscriber.onNext(result);
+    }
+
+    private void execute(Runnable signal) {
+        signals.offer(signal);
+        if(signalsPending.getAndIncrement() == 0) {
+            try{
+                executor.execute(this::drain);
+            }catch(RuntimeException e) {
+                signals.clear();
+                signalsPending.set(0);
+                this.cancelUpstream();
+                this.signalError(e);
+            }
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do{
+            for(int i=0; i<missed; i++) {
+                signals.poll().run();
+            }
+            missed = signalsPending.addAndGet(-missed);
+        }while(missed != 0);
+    }
+
+    private void request(long n) {
+        if(n <= 0) {
+            this.cancelUpstream();
+            // Signalled on the executor, as onNext may be in progress (rule 1.3)
+            final IllegalArgumentException e = new IllegalArgumentException("Non-positive request: " + n);
+            this.execute(() -> this.signalError(e));
+            return;
+        }
+        final Flow.Subscription subscription;
+        synchronized(lock) {
+            if(cancelled || done) {
+                return;
+            }
+            if(upstream == null) {
+                pendingDemand = pendingDemand + n < 0 ? Long.MAX_VALUE : pendingDemand + n;
+                return;
+            }
+            subscription = upstream;
+        }
+        subscription.request(n);
+    }
+
+    private void cancel() {
+        synchronized(lock) {
+            cancelled = true;
+        }
+        this.cancelUpstream();
+    }
+
+    private void cancelUpstream() {
+        final Flow.Subscription subscription;
+        synchronized(lock) {
+            subscription = upstream;
+        }
+        if(subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private void signalError(Throwable throwable) {
+        if(this.terminate()) {
+            downstream.onError(throwable);
+        }else if(LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE, "Ignored error after termination", throwable);
+        }
+    }
+
+    private void signalComplete() {
+        if(this.terminate()) {
+            downstream.onComplete();
+        }
+    }
+
+    /** @return true if this call terminated the subscription */
+    private boolean terminate() {
+        synchronized(lock) {
+            if(done || cancelled) {
+                return false;
+            }
+            done = true;
+            return true;
+        }
+    }
+}
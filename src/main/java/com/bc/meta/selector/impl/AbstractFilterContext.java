@@ -22,9 +22,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -60,15 +62,11 @@ public abstract class AbstractFilterContext<NODE> implements FilterContext<NODE>
     
     public Predicate<NODE> compose(String name, boolean and, Predicate<NODE> outputIfNone) {
         final int count = this.getCount(name);
-        Predicate<NODE> result = null;
+        final List<Predicate<NODE>> tests = new ArrayList<>(count);
         for(int i=0; i<count; i++) {
-            final Predicate<NODE> test = this.get(name, i, null);
-            if(result == null) {
-                result = test;
-            }else{
-                result = and ? result.and(test) : result.or(test);
-            }
+            tests.add(this.get(name, i, null));
         }
+        final Predicate<NODE> result = and ? Predicates.allOf(tests) : Predicates.anyOf(tests);
         return result == null ? outputIfNone : result;
     }
     
@@ -165,6 +163,8 @@ public abstract class AbstractFilterContext<NODE> implements FilterContext<NODE>
         private final FilterContext<E> left;
         private final FilterContext<E> right;
         private final boolean and;
+        /** The combined tests of each property name, null where neither side has a test */
+        private final Map<String, Predicate<E>[]> compiled = new ConcurrentHashMap<>();
         public FilterContextPair(FilterContext<E> left, FilterContext<E> right, boolean and) {
             this.left = Objects.requireNonNull(left);
             this.right = Objects.requireNonNull(right);
@@ -172,18 +172,27 @@ public abstract class AbstractFilterContext<NODE> implements FilterContext<NODE>
         }
         @Override
         public int getCount(String name) {
-            return Math.max(left.getCount(name), right.getCount(name));
+            return this.getCompiled(name).length;
         }
         @Override
         public Predicate<E> get(String name, int i, Predicate<E> outputIfNone) {
-            final Predicate<E> lhs = i >= left.getCount(name) ? null : left.get(name, i, null);
-            final Predicate<E> rhs = i >= right.getCount(name) ? null : right.get(name, i, null);
-            final Predicate<E> result = 
-                    lhs == null ? rhs : 
-                    rhs == null ? lhs : 
-                    and ? lhs.and(rhs) : lhs.or(rhs);
+            final Predicate<E> result = this.getCompiled(name)[i];
             return result == null ? outputIfNone : result;
         }
+        private Predicate<E>[] getCompiled(String name) {
+            return compiled.computeIfAbsent(name, this::compile);
+        }
+        private Predicate<E>[] compile(String name) {
+            final int leftCount = left.getCount(name);
+            final int rightCount = right.getCount(name);
+            final Predicate<E> [] output = new Predicate[Math.max(leftCount, rightCount)];
+            for(int i=0; i<output.length; i++) {
+                final Predicate<E> lhs = i >= leftCount ? null : left.get(name, i, null);
+                final Predicate<E> rhs = i >= rightCount ? null : right.get(name, i, null);
+                output[i] = and ? Predicates.and(lhs, rhs) : Predicates.or(lhs, rhs);
+            }
+            return output;
+        }
     }
 
     private static final class Iter<T> implements Iterator<Predicate<T>>, Serializable {
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bc.meta.selector.impl;
+
+import com.bc.meta.selector.AttributeProvider;
+import com.bc.meta.selector.AttributeTestProvider;
+import com.bc.meta.selector.util.AttributeRule;
+import com.bc.meta.selector.util.MultiPatternMatcher;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resolves a node to the properties it matches, with one hash lookup per
+ * attribute the node carries.
+ * <p>
+ * Exact rules are indexed by (attribute name, attribute value). Regex rules
+ * are indexed by the literal each of their matches must contain; the literals
+ * of all regex rules are found in a single pass over each attribute value, and
+ * only the rules whose literal was found are then tested. Only rules having
+ * neither an exact condition nor a required literal are tested against every node.
+ * </p>
+ * <p>Instances are immutable and may be shared between threads.</p>
+ * @param <NODE> The type of the Node to match
+ */
+public class AttributeIndex<NODE> implements Function<String, Predicate<NODE>>, Serializable {
+
+    private transient static final Logger LOG = Logger.getLogger(AttributeIndex.class.getName());
+
+    private static final class Entry<E> implements Serializable {
+        private final int property;
+        /** The conditions of the rule other than the indexed one, or null if none */
+        private final Predicate<E> remainder;
+        private Entry(int property, Predicate<E> remainder) {
+            this.property = property;
+            this.remainder = remainder;
+        }
+    }
+
+    private final AttributeProvider<NODE> attributeProvider;
+
+    private final String [] propertyNames;
+
+    private final Map<String, Integer> propertyIds;
+
+    private final Predicate<NODE> [] propertyTests;
+
+    /** Lower case attribute name, to attribute value, to rules indexed on that pair */
+    private final Map<String, Map<String, Entry<NODE>[]>> exactEntries;
+
+    /** Finds the required literals of regex rules, or null if there are none */
+    private final MultiPatternMatcher literalMatcher;
+
+    /** The regex rules indexed on each literal, by literal id */
+    private final Entry<NODE> [][] literalEntries;
+
+    private final Entry<NODE> [] scannedEntries;
+
+    /**
+     * @param <A> The type of the attribute context
+     * @param attributeContext Provides both the attribute tests and the node attributes
+     * @param rules The rules of each property, in order of the property ids to assign
+     * @param defaultTest The test to use for properties having no rules
+     */
+    public <A extends AttributeTestProvider<NODE> & AttributeProvider<NODE>> AttributeIndex(
+            A attributeContext, Map<String, List<AttributeRule>> rules, Predicate<NODE> defaultTest) {
+
+        this.attributeProvider = Objects.requireNonNull(attributeContext);
+
+        final int count = rules.size();
+        this.propertyNames = new String[count];
+        this.propertyIds = new HashMap<>(count * 2);
+        this.propertyTests = new Predicate[count];
+
+        final Map<String, Map<String, List<Entry<NODE>>>> exact = new HashMap<>();
+        final Map<String, List<Entry<NODE>>> byLiteral = new HashMap<>();
+        final List<Entry<NODE>> scanned = new ArrayList<>();
+
+        int id = 0;
+        for(Map.Entry<String, List<AttributeRule>> mapEntry : rules.entrySet()) {
+
+            final String name = mapEntry.getKey();
+            propertyNames[id] = name;
+            propertyIds.put(name, id);
+
+            Predicate<NODE> propertyTest = null;
+
+            for(AttributeRule rule : mapEntry.getValue()) {
+
+                final int indexed = rule.indexOfFirstExact();
+
+                Predicate<NODE> ruleTest = null;
+                Predicate<NODE> remainder = null;
+
+                for(int i : rule.getTestOrder()) {
+                    final Predicate<NODE> test = rule.isRegex(i) ?
+                            attributeContext.getAttributeRegexTest(rule.getName(i), rule.getValue(i)) :
+                            attributeContext.getAttributeTest(rule.getName(i), rule.getValue(i));
+                    ruleTest = Predicates.and(ruleTest, test);
+                    if(i != indexed) {
+                        remainder = Predicates.and(remainder, test);
+                    }
+                }
+
+                if(ruleTest == null) {
+                    continue;
+                }
+
+                propertyTest = Predicates.or(propertyTest, ruleTest);
+
+                if(indexed == -1) {
+                    final String literal = this.getRequiredLiteral(rule);
+                    if(literal.isEmpty()) {
+                        scanned.add(new Entry<>(id, ruleTest));
+                    }else{
+                        byLiteral.computeIfAbsent(literal, (k) -> new ArrayList<>(1))
+                                .add(new Entry<>(id, ruleTest));
+                    }
+                }else{
+                    exact.computeIfAbsent(rule.getName(indexed).toLowerCase(), (k) -> new HashMap<>())
+                            .computeIfAbsent(rule.getValue(indexed), (k) -> new ArrayList<>(1))
+                            .add(new Entry<>(id, remainder));
+                }
+            }
+
+            propertyTests[id] = propertyTest == null ? defaultTest : propertyTest;
+
+            ++id;
+        }
+
+        this.exactEntries = new HashMap<>(exact.size() * 2);
+        for(Map.Entry<String, Map<String, List<Entry<NODE>>>> byName : exact.entrySet()) {
+            final Map<String, Entry<NODE>[]> byValue = new HashMap<>(byName.getValue().size() * 2);
+            for(Map.Entry<String, List<Entry<NODE>>> e : byName.getValue().entrySet()) {
+                byValue.put(e.getKey(), e.getValue().toArray(new Entry[0]));
+            }
+            this.exactEntries.put(byName.getKey(), Collections.unmodifiableMap(byValue));
+        }
+        this.scannedEntries = scanned.toArray(new Entry[0]);
+
+        if(byLiteral.isEmpty()) {
+            this.literalMatcher = null;
+            this.literalEntries = new Entry[0][];
+        }else{
+            final List<String> literals = new ArrayList<>(byLiteral.keySet());
+            this.literalMatcher = new MultiPatternMatcher(literals);
+            this.literalEntries = new Entry[literals.size()][];
+            for(int i=0; i<literals.size(); i++) {
+                literalEntries[i] = byLiteral.get(literals.get(i)).toArray(new Entry[0]);
+            }
+        }
+
+        if(LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE, "Indexed {0} properties, attribute names: {1}, regex literals: {2}, scanned rules: {3}",
+                    new Object[]{count, exactEntries.keySet(), byLiteral.keySet(), scannedEntries.length});
+        }
+    }
+
+    /**
+     * For subclasses which match in code of their own, overriding 
+     * {@link #match(Object, BitSet)}, e.g those generated by 
+     * {@link MatcherSourceGenerator}. No index is built.
+     * @param attributeProvider Provides the node attributes
+     * @param propertyNames The property names, by property id
+     * @param propertyTests The test of each property, by property id
+     */
+    protected AttributeIndex(AttributeProvider<NODE> attributeProvider, 
+            String [] propertyNames, Predicate<NODE> [] propertyTests) {
+        if(propertyNames.length != propertyTests.length) {
+            throw new IllegalArgumentException("Property names: " + propertyNames.length + 
+                    ", property tests: " + propertyTests.length);
+        }
+        this.attributeProvider = Objects.requireNonNull(attributeProvider);
+        this.propertyNames = propertyNames.clone();
+        this.propertyIds = new HashMap<>(propertyNames.length * 2);
+        for(int id=0; id<propertyNames.length; id++) {
+            propertyIds.put(propertyNames[id], id);
+        }
+        this.propertyTests = propertyTests.clone();
+        this.exactEntries = Collections.emptyMap();
+        this.literalMatcher = null;
+        this.literalEntries = new Entry[0][];
+        this.scannedEntries = new Entry[0];
+    }
+
+    /**
+     * @return The longest literal required by any regex condition of the rule, 
+     * or an empty string if there is none
+     */
+    private String getRequiredLiteral(AttributeRule rule) {
+        String result = "";
+        for(int i=0; i<rule.getCount(); i++) {
+            if(rule.isRegex(i)) {
+                final String literal = MultiPatternMatcher.getRequiredLiteral(rule.getValue(i));
+                if(literal.length() > result.length()) {
+                    result = literal;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the bit of each property having at least one rule which the node satisfies.
+     * @param node The node to match
+     * @param matched The BitSet to update, indexed by property id
+     */
+    public void match(NODE node, BitSet matched) {
+
+        final int attrCount = attributeProvider.getAttributeCount(node);
+
+        for(int i=0; i<attrCount; i++) {
+
+            final String attrValue = attributeProvider.getAttributeValue(node, i);
+            if(attrValue == null) {
+                continue;
+            }
+
+            final String attrName = attributeProvider.getAttributeName(node, i);
+            if(attrName != null) {
+                this.matchExact(attrName.toLowerCase(), attrValue, node, matched);
+            }
+
+            if(literalMatcher != null) {
+                int state = MultiPatternMatcher.START;
+                for(int c=0; c<attrValue.length(); c++) {
+                    state = literalMatcher.next(state, attrValue.charAt(c));
+                    for(int literal : literalMatcher.getMatches(state)) {
+                        this.match(node, literalEntries[literal], matched);
+                    }
+                }
+            }
+        }
+
+        this.match(node, scannedEntries, matched);
+    }
+
+    /**
+     * Matches the rules indexed on the exact condition of the specified 
+     * attribute name and value.
+     * @param attrName The lower case name of the attribute
+     * @param attrValue The value of the attribute
+     * @param node The node having the attribute
+     * @param matched The BitSet to update, indexed by property id
+     */
+    protected void matchExact(String attrName, String attrValue, NODE node, BitSet matched) {
+        final Map<String, Entry<NODE>[]> byValue = exactEntries.get(attrName);
+        if(byValue != null) {
+            final Entry<NODE> [] entries = byValue.get(attrValue);
+            if(entries != null) {
+                this.match(node, entries, matched);
+            }
+        }
+    }
+
+    private void match(NODE node, Entry<NODE> [] entries, BitSet matched) {
+        for(Entry<NODE> entry : entries) {
+            if(!matched.get(entry.property) &&
+                    (entry.remainder == null || entry.remainder.test(node))) {
+                matched.set(entry.property);
+            }
+        }
+    }
+
+    /**
+     * @param name The name of the property whose test is to be returned
+     * @return The test for the specified property, or null if the property
+     * is not one of those this index was built for
+     */
+    @Override
+    public Predicate<NODE> apply(String name) {
+        final int id = this.getId(name);
+        return id == -1 ? null : propertyTests[id];
+    }
+
+    /**
+     * @param name The property name
+     * @return The id of the property, or -1 if the property
+     * is not one of those this index was built for
+     */
+    public int getId(String name) {
+        final Integer id = propertyIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String getName(int id) {
+        return propertyNames[id];
+    }
+
+    public int getCount() {
+        return propertyNames.length;
+    }
+}
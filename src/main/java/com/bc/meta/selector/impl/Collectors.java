@@ -16,18 +16,113 @@
 
 package com.bc.meta.selector.impl;
 
+import com.bc.meta.Metadata;
+import com.bc.meta.impl.MetadataCompact;
+import com.bc.meta.selector.PropertySchema;
 import com.bc.meta.selector.Selector;
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Chinomso Bassey Ikwuagwu on Jun 22, 2018 6:04:37 PM
  */
 public class Collectors {
 
+    /**
+     * The accessors of the bean properties of a class, resolved on first use 
+     * of each property and cached. Setters are resolved by the type of the 
+     * value to set, so <code>setTagSet(Set)</code> is found for a 
+     * <code>LinkedHashSet</code>, and <code>setCount(int)</code> for an 
+     * <code>Integer</code>.
+     */
+    private static final class BeanAccessors {
+        
+        private static final ClassValue<BeanAccessors> CACHE = new ClassValue<BeanAccessors>() {
+            @Override
+            protected BeanAccessors computeValue(Class<?> type) {
+                return new BeanAccessors(type);
+            }
+        };
+        
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+        
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+        
+        private final Class<?> type;
+        
+        private final Map<String, MethodHandle> getters = new ConcurrentHashMap<>();
+        
+        /** By property name, then by the type of the value to set */
+        private final Map<String, Map<Class<?>, MethodHandle>> setters = new ConcurrentHashMap<>();
+        
+        private BeanAccessors(Class<?> type) {
+            this.type = Objects.requireNonNull(type);
+        }
+        
+        private MethodHandle getGetter(String propertyName) {
+            return getters.computeIfAbsent(propertyName, (name) -> {
+                try{
+                    final Method method = type.getMethod(buildMethodName("get", name));
+                    return MethodHandles.publicLookup().unreflect(method).asType(GETTER_TYPE);
+                }catch(NoSuchMethodException | IllegalAccessException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        
+        private MethodHandle getSetter(String propertyName, Class<?> valueType) {
+            return setters.computeIfAbsent(propertyName, (name) -> new ConcurrentHashMap<>(4))
+                    .computeIfAbsent(valueType, (k) -> {
+                        try{
+                            final Method method = this.findSetter(buildMethodName("set", propertyName), valueType);
+                            return MethodHandles.publicLookup().unreflect(method).asType(SETTER_TYPE);
+                        }catch(NoSuchMethodException | IllegalAccessException e) {
+                            throw new RuntimeException(e);
+                        }
+                    });
+        }
+        
+        /**
+         * @return The public single argument method of the specified name whose 
+         * parameter type is the most specific of those to which the value type 
+         * may be assigned
+         */
+        private Method findSetter(String methodName, Class<?> valueType) throws NoSuchMethodException {
+            Method result = null;
+            for(Method method : type.getMethods()) {
+                if(method.getParameterCount() != 1 || !method.getName().equals(methodName)) {
+                    continue;
+                }
+                final Class<?> paramType = wrap(method.getParameterTypes()[0]);
+                if(!paramType.isAssignableFrom(valueType)) {
+                    continue;
+                }
+                if(result == null || wrap(result.getParameterTypes()[0]).isAssignableFrom(paramType)) {
+                    result = method;
+                }
+            }
+            if(result == null) {
+                throw new NoSuchMethodException(type.getName() + '.' + methodName + '(' + valueType.getName() + ')');
+            }
+            return result;
+        }
+        
+        private static Class<?> wrap(Class<?> type) {
+            return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+        }
+    }
+
     public static class CollectIntoBean<E> implements Selector.Collector<E>, Serializable {
 
         private final E bean;
@@ -44,30 +139,42 @@ public class Collectors {
         }
         @Override
         public Object getOrDefault(String propertyName, Object valueIfNone) {
+            final Object value;
             try{
-                return type.getMethod(this.buildMethodName("get", propertyName)).invoke(bean);
-            }catch(NoSuchMethodException | SecurityException | IllegalAccessException | 
-                    IllegalArgumentException | InvocationTargetException e) {
-                throw new RuntimeException(e);
+                value = BeanAccessors.CACHE.get(type).getGetter(propertyName).invokeExact((Object)bean);
+            }catch(RuntimeException | Error e) {
+                throw e;
+            }catch(Throwable t) {
+                throw new RuntimeException(t);
             }
+            return value == null ? valueIfNone : value;
         }
         @Override
         public void put(String propertyName, Object value) { 
             try{
-                type.getMethod(this.buildMethodName("set", propertyName), value.getClass()).invoke(bean, value);
-            }catch(NoSuchMethodException | SecurityException | IllegalAccessException | 
-                    IllegalArgumentException | InvocationTargetException e) {
-                throw new RuntimeException(e);
+                BeanAccessors.CACHE.get(type).getSetter(propertyName, value.getClass())
+                        .invokeExact((Object)bean, value);
+            }catch(RuntimeException | Error e) {
+                throw e;
+            }catch(Throwable t) {
+                throw new RuntimeException(t);
             }
         }
         public String buildMethodName(String prefix, String key) {
-            return prefix + Character.toUpperCase(key.codePointAt(0)) + key.substring(1);
+            return Collectors.buildMethodName(prefix, key);
         }
         public E getBean() {
             return bean;
         }
     }
     
+    private static String buildMethodName(String prefix, String key) {
+        final int first = key.codePointAt(0);
+        return new StringBuilder(prefix.length() + key.length()).append(prefix)
+                .appendCodePoint(Character.toUpperCase(first))
+                .append(key, Character.charCount(first), key.length()).toString();
+    }
+    
     public static class CollectIntoMap implements Selector.Collector<Map<String, Object>>, Serializable {
 
         private final Map<String, Object> buffer;
@@ -89,6 +196,180 @@ public class Collectors {
         }
     }
 
+    /**
+     * Collects into an array slot per property of a schema. Selecting with the 
+     * same schema, values are addressed by property id. The result is a map of
+     * the properties having values, in schema order.
+     */
+    public static class CollectIntoSlots implements Selector.IndexedCollector<Map<String, Object>>, Serializable {
+
+        private final PropertySchema schema;
+        
+        private final Object [] slots;
+
+        public CollectIntoSlots(PropertySchema schema) { 
+            this.schema = Objects.requireNonNull(schema);
+            this.slots = new Object[schema.size()];
+        }
+        @Override
+        public PropertySchema getSchema() {
+            return schema;
+        }
+        @Override
+        public Object get(int id) {
+            return slots[id];
+        }
+        @Override
+        public void put(int id, Object value) {
+            slots[id] = value;
+        }
+        @Override
+        public Map<String, Object> buildResult() {
+            final Map<String, Object> output = new LinkedHashMap<>(slots.length * 2);
+            for(int id=0; id<slots.length; id++) {
+                if(slots[id] != null) {
+                    output.put(schema.getName(id), slots[id]);
+                }
+            }
+            return output;
+        }
+        @Override
+        public Object getOrDefault(String propertyName, Object valueIfNone) {
+            final int id = schema.getId(propertyName);
+            return id == -1 || slots[id] == null ? valueIfNone : slots[id];
+        }
+        @Override
+        public void put(String propertyName, Object value) {
+            final int id = schema.getId(propertyName);
+            if(id == -1) {
+                throw new IllegalArgumentException("Not in schema: " + propertyName);
+            }
+            slots[id] = value;
+        }
+    }
+
+    /**
+     * Collects directly into a {@link MetadataCompact}. The values of each 
+     * multi-value property are held in an inline array, which is trimmed when 
+     * the result is built.
+     */
+    public static class CollectIntoMetadata implements Selector.IndexedCollector<Metadata> {
+
+        private final PropertySchema schema;
+        
+        private final Object [] slots;
+        
+        /** The number of values in each multi-value slot */
+        private final int [] counts;
+        
+        /** The view of each multi-value slot, created on first access */
+        private final MultiValueSlot [] views;
+
+        public CollectIntoMetadata(PropertySchema schema) { 
+            this.schema = Objects.requireNonNull(schema);
+            this.slots = new Object[schema.size()];
+            this.counts = new int[schema.size()];
+            this.views = new MultiValueSlot[schema.size()];
+        }
+        @Override
+        public PropertySchema getSchema() {
+            return schema;
+        }
+        @Override
+        public Object get(int id) {
+            if(schema.isMultiValue(id) && slots[id] instanceof Object[]) {
+                if(views[id] == null) {
+                    views[id] = new MultiValueSlot(id);
+                }
+                return views[id];
+            }
+            return slots[id];
+        }
+        @Override
+        public void put(int id, Object value) {
+            if(value instanceof MultiValueSlot && ((MultiValueSlot)value).id == id) {
+                return;
+            }
+            if(schema.isMultiValue(id) && value instanceof Collection) {
+                final Object [] values = ((Collection)value).toArray();
+                slots[id] = values;
+                counts[id] = values.length;
+            }else{
+                slots[id] = value;
+            }
+        }
+        @Override
+        public Metadata buildResult() {
+            final Object [] output = new Object[slots.length];
+            for(int id=0; id<slots.length; id++) {
+                output[id] = schema.isMultiValue(id) && slots[id] instanceof Object[] ? 
+                        Arrays.copyOf((Object[])slots[id], counts[id]) : slots[id];
+            }
+            return new MetadataCompact(schema, output);
+        }
+        @Override
+        public Object getOrDefault(String propertyName, Object valueIfNone) {
+            final int id = schema.getId(propertyName);
+            final Object value = id == -1 ? null : this.get(id);
+            return value == null ? valueIfNone : value;
+        }
+        @Override
+        public void put(String propertyName, Object value) {
+            final int id = schema.getId(propertyName);
+            if(id == -1) {
+                throw new IllegalArgumentException("Not in schema: " + propertyName);
+            }
+            this.put(id, value);
+        }
+        
+        /** A view of a multi-value slot, to which the values of further nodes are added */
+        private final class MultiValueSlot extends AbstractSet<Object> {
+            private final int id;
+            private MultiValueSlot(int id) {
+                this.id = id;
+            }
+            @Override
+            public boolean add(Object value) {
+                if(this.contains(value)) {
+                    return false;
+                }
+                Object [] values = (Object[])slots[id];
+                if(counts[id] == values.length) {
+                    values = Arrays.copyOf(values, Math.max(4, values.length * 2));
+                    slots[id] = values;
+                }
+                values[counts[id]++] = value;
+                return true;
+            }
+            @Override
+            public boolean contains(Object o) {
+                final Object [] values = (Object[])slots[id];
+                for(int i=0; i<counts[id]; i++) {
+                    if(Objects.equals(o, values[i])) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            @Override
+            public Iterator<Object> iterator() {
+                return Arrays.asList(Arrays.copyOf((Object[])slots[id], counts[id])).iterator();
+            }
+            @Override
+            public int size() {
+                return counts[id];
+            }
+        }
+    }
+
+    public static Selector.IndexedCollector<Metadata> toMetadata(PropertySchema schema) {
+        return new CollectIntoMetadata(schema);
+    }
+
+    public static Selector.IndexedCollector<Map<String, Object>> toSlots(PropertySchema schema) {
+        return new CollectIntoSlots(schema);
+    }
+    
     public static <E> Selector.Collector<E> toBean(E collectInto) {
         return new CollectIntoBean(collectInto);
     }
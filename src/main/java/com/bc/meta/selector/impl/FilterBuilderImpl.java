@@ -16,22 +16,34 @@
 
 package com.bc.meta.selector.impl;
 
+import com.bc.meta.selector.AttributeProvider;
 import com.bc.meta.selector.FilterBuilder;
 import com.bc.meta.selector.FilterContext;
+import com.bc.meta.selector.SelectorMetrics;
+import com.bc.meta.selector.jfr.JfrEvents;
+import com.bc.meta.selector.util.AttributeRule;
+import com.bc.meta.selector.util.ConfigCache;
+import com.bc.meta.selector.util.ConfigJsonReader;
 import com.bc.meta.selector.util.JsonParser;
 import com.bc.meta.selector.util.PropertiesParser;
+import com.bc.meta.selector.util.RuleSnapshot;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import com.bc.meta.selector.AttributeTestProvider;
+import java.io.BufferedInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.function.Function;
 
 /**
@@ -41,6 +53,11 @@ import java.util.function.Function;
  */
 public class FilterBuilderImpl<NODE, PREVIOUS_BUILDER> implements FilterBuilder<NODE, PREVIOUS_BUILDER> {
 
+    private static final BiFunction<AttributeTestProvider, Map, FilterContext> DEFAULT_FILTER_CONTEXT_PROVIDER =
+            (ac, cfg) -> new FilterContextImpl(ac, cfg);
+
+    private static final Predicate DEFAULT_TEST = (node) -> false;
+
     private Collection<String> configFilePaths;
     
     private Collection<String> propertyNames;
@@ -57,6 +74,14 @@ public class FilterBuilderImpl<NODE, PREVIOUS_BUILDER> implements FilterBuilder<
     
     private String charset;
     
+    private ConfigCache configCache;
+    
+    private String snapshot;
+    
+    private boolean adaptive;
+    
+    private SelectorMetrics metrics;
+    
     private final PREVIOUS_BUILDER back;
 
     public FilterBuilderImpl() {
@@ -74,10 +99,14 @@ public class FilterBuilderImpl<NODE, PREVIOUS_BUILDER> implements FilterBuilder<
         this.propertyNames(Collections.EMPTY_LIST);
         this.attributeContext(null);
         this.streamProvider(new PropertiesParser.DefaultStreamProvider());
-        this.jsonParser(null);
-        this.filterContextProvider((ac, cfg) -> new FilterContextImpl(ac, cfg));
-        this.defaultTest((node) -> false);
+        this.jsonParser(new ConfigJsonReader());
+        this.filterContextProvider((BiFunction)DEFAULT_FILTER_CONTEXT_PROVIDER);
+        this.defaultTest(DEFAULT_TEST);
         this.charset(StandardCharsets.UTF_8);
+        this.configCache(ConfigCache.shared());
+        this.snapshot(null);
+        this.adaptive(false);
+        this.metrics(SelectorMetrics.NONE);
         return this;
     }
 
@@ -89,14 +118,35 @@ public class FilterBuilderImpl<NODE, PREVIOUS_BUILDER> implements FilterBuilder<
     @Override
     public Function<String, Predicate<NODE>> build() throws IOException, ParseException{
         
+        final Object event = JfrEvents.beginFilterBuild();
+        
+        final Function<String, Predicate<NODE>> output = this.buildFilter();
+        
+        JfrEvents.commitFilterBuild(event, this.propertyNames.size(), this.configFilePaths.size(), 
+                this.snapshot, output instanceof AttributeIndex);
+        
+        return output;
+    }
+    
+    private Function<String, Predicate<NODE>> buildFilter() throws IOException, ParseException{
+        
         Objects.requireNonNull(this.attributeContext);
         Objects.requireNonNull(this.streamProvider);
+        
+        if(this.snapshot != null) {
+            return this.build(this.readSnapshot());
+        }
+        
         Objects.requireNonNull(this.jsonParser);
         
         Map<String, Predicate<NODE>> output = null;
         
-        final PropertiesParser propertiesParser = new PropertiesParser(
-                this.streamProvider, this.jsonParser, this.charset, true);
+        final PropertiesParser propertiesParser = new PropertiesParser(this.streamProvider, 
+                this.jsonParser, this.charset, this.configCache, this.metrics);
+        
+        if(this.isIndexable()) {
+            return new AttributeIndex(this.attributeContext, this.buildRules(propertiesParser), this.defaultTest);
+        }
         
         for(String propertyName : this.propertyNames) {
             
@@ -118,11 +168,132 @@ public class FilterBuilderImpl<NODE, PREVIOUS_BUILDER> implements FilterBuilder<
         return (name) -> source.get(name);
     }
     
+    @Override
+    public void writeSnapshot(OutputStream out) throws IOException, ParseException {
+        
+        Objects.requireNonNull(this.streamProvider);
+        Objects.requireNonNull(this.jsonParser);
+        
+        final PropertiesParser propertiesParser = new PropertiesParser(this.streamProvider, 
+                this.jsonParser, this.charset, this.configCache, this.metrics);
+        
+        RuleSnapshot.write(this.buildRules(propertiesParser), out);
+    }
+    
+    private Map<String, List<AttributeRule>> readSnapshot() throws IOException {
+        
+        final Map<String, List<AttributeRule>> rules;
+        try(InputStream in = this.streamProvider.apply(this.snapshot)) {
+            Objects.requireNonNull(in, "Failed to locate snapshot: " + this.snapshot);
+            rules = RuleSnapshot.read(new BufferedInputStream(in));
+        }
+        
+        if(this.propertyNames.isEmpty()) {
+            return rules;
+        }
+        
+        final Map<String, List<AttributeRule>> output = new LinkedHashMap<>(this.propertyNames.size() * 2);
+        for(String propertyName : this.propertyNames) {
+            output.put(propertyName, rules.getOrDefault(propertyName, Collections.EMPTY_LIST));
+        }
+        return output;
+    }
+    
+    private Function<String, Predicate<NODE>> build(Map<String, List<AttributeRule>> rules) {
+        
+        if(this.attributeContext instanceof AttributeProvider && 
+                this.defaultTest == DEFAULT_TEST && !this.adaptive) {
+            return new AttributeIndex(this.attributeContext, rules, this.defaultTest);
+        }
+        
+        final Map<String, Predicate<NODE>> output = new HashMap(rules.size(), 1.0f);
+        
+        for(Map.Entry<String, List<AttributeRule>> entry : rules.entrySet()) {
+            
+            final List<Predicate<NODE>> ruleTests = new ArrayList<>(entry.getValue().size());
+            
+            for(AttributeRule rule : entry.getValue()) {
+                
+                final List<Predicate<NODE>> tests = new ArrayList<>(rule.getCount());
+                
+                for(int i : rule.getTestOrder()) {
+                    tests.add(rule.isRegex(i) ?
+                            this.attributeContext.getAttributeRegexTest(rule.getName(i), rule.getValue(i)) :
+                            this.attributeContext.getAttributeTest(rule.getName(i), rule.getValue(i)));
+                }
+                
+                ruleTests.add(Predicates.allOf(tests));
+            }
+            
+            final Predicate<NODE> result = this.adaptive ? 
+                    Predicates.adaptive(Predicates.anyOf(ruleTests)) : Predicates.anyOf(ruleTests);
+            
+            output.put(entry.getKey(), result == null ? this.defaultTest : result);
+        }
+        
+        final Map<String, Predicate<NODE>> source = Collections.unmodifiableMap(output);
+        
+        return (name) -> source.get(name);
+    }
+    
+    /**
+     * The exact attribute rules can only be indexed if the attribute context 
+     * gives access to node attributes, and no custom filter context or default 
+     * test changes how the rules are interpreted. In adaptive mode the rules 
+     * are not indexed: the index tries rules by attribute, so has no order of
+     * rules to adapt.
+     * @return true if the rules may be compiled into an {@link AttributeIndex}
+     */
+    public boolean isIndexable() {
+        return this.attributeContext instanceof AttributeProvider &&
+                this.filterContextProvider == (BiFunction)DEFAULT_FILTER_CONTEXT_PROVIDER &&
+                this.defaultTest == DEFAULT_TEST && !this.adaptive;
+    }
+    
+    /**
+     * @param propertiesParser The parser to use in loading the config files
+     * @return The rules of each property, from all config files, in order of 
+     * the property names
+     * @throws IOException
+     * @throws ParseException 
+     */
+    public Map<String, List<AttributeRule>> buildRules(PropertiesParser propertiesParser) 
+            throws IOException, ParseException {
+        
+        final Map<String, List<AttributeRule>> output = new LinkedHashMap<>(this.propertyNames.size() * 2);
+        
+        for(String propertyName : this.propertyNames) {
+            output.put(propertyName, new ArrayList<>());
+        }
+        
+        for(String configFile : this.configFilePaths) {
+
+            final Map filterContextProperties = propertiesParser.parse(configFile);
+            
+            for(String propertyName : this.propertyNames) {
+                
+                final List<Map> attrCfgs = (List<Map>)filterContextProperties.get(propertyName);
+                
+                if(attrCfgs == null) {
+                    continue;
+                }
+                
+                final List<AttributeRule> rules = output.get(propertyName);
+                
+                for(Map attrCfg : attrCfgs) {
+                    rules.add(AttributeRule.of(attrCfg));
+                }
+            }
+        }
+        
+        return output;
+    }
+    
     public Predicate<NODE> buildPredicate(
             PropertiesParser propertiesParser, String propertyName, Predicate<NODE> outputIfNone) 
             throws IOException, java.text.ParseException {
         
-        Predicate<NODE> result = null;
+        final List<Predicate<NODE>> tests = new ArrayList<>(this.configFilePaths.size());
 
         for(String configFile : this.configFilePaths) {
 
@@ -131,15 +302,12 @@ public class FilterBuilderImpl<NODE, PREVIOUS_BUILDER> implements FilterBuilder<
             final FilterContext filterContext = this.filterContextProvider.apply(
                     this.attributeContext, filterContextProperties);
 
-            final Predicate<NODE> test = filterContext.or(propertyName, this.defaultTest);
-
-            if(result == null) {
-                result = test;
-            }else{
-                result = result.or(test);
-            }
+            tests.add(filterContext.or(propertyName, this.defaultTest));
         }
 
+        final Predicate<NODE> result = this.adaptive ? 
+                Predicates.adaptive(Predicates.anyOf(tests)) : Predicates.anyOf(tests);
+
         return result == null ? outputIfNone : result;
     }
 
@@ -190,4 +358,28 @@ public class FilterBuilderImpl<NODE, PREVIOUS_BUILDER> implements FilterBuilder<
         this.charset = charset;
         return this;
     }
+
+    @Override
+    public FilterBuilder<NODE, PREVIOUS_BUILDER> configCache(ConfigCache configCache) {
+        this.configCache = configCache;
+        return this;
+    }
+
+    @Override
+    public FilterBuilder<NODE, PREVIOUS_BUILDER> adaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    @Override
+    public FilterBuilder<NODE, PREVIOUS_BUILDER> metrics(SelectorMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    @Override
+    public FilterBuilder<NODE, PREVIOUS_BUILDER> snapshot(String location) {
+        this.snapshot = location;
+        return this;
+    }
 }
@@ -16,10 +16,14 @@
 
 package com.bc.meta.selector.impl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import com.bc.meta.selector.FilterContext;
 
@@ -28,10 +32,24 @@ import com.bc.meta.selector.FilterContext;
  */
 public class FilterContextComposite<E> extends AbstractFilterContext<E> implements Serializable {
 
+    /** The delegate tests combined, for a given property name */
+    private static final class Compiled<E> {
+        /** The combined tests by index, null where no delegate has a test */
+        private final Predicate<E> [] tests;
+        /** Whether any delegate has a rule without conditions at each index */
+        private final boolean [] hasEmpty;
+        private Compiled(Predicate<E> [] tests, boolean [] hasEmpty) {
+            this.tests = tests;
+            this.hasEmpty = hasEmpty;
+        }
+    }
+
     private final boolean and;
 
     private final Collection<FilterContext<E>> delegates;
     
+    private transient Map<String, Compiled<E>> compiled = new ConcurrentHashMap<>();
+    
     public FilterContextComposite(boolean and, Collection<FilterContext<E>> delegates) {
         this.and = and;
         this.delegates = Collections.unmodifiableCollection(delegates);
@@ -44,23 +62,55 @@ public class FilterContextComposite<E> extends AbstractFilterContext<E> implemen
 
     @Override
     public int getCount(String name) {
-        int max = 0;
-        for(FilterContext filterCtx : delegates) {
-            max = Math.max(max, filterCtx.getCount(name));
-        }
-        return max;
+        return this.getCompiled(name).tests.length;
     }
 
     @Override
     public Predicate<E> get(String name, int i, Predicate<E> outputIfNone) {
-        Predicate<E> result = null;
+        final Compiled<E> c = this.getCompiled(name);
+        final Predicate<E> result = c.tests[i];
+        if(c.hasEmpty[i] && outputIfNone != null) {
+            // A delegate rule without conditions stands for the output if none
+            return result == null ? outputIfNone : this.combine(result, outputIfNone);
+        }
+        return result == null ? outputIfNone : result;
+    }
+    
+    private Compiled<E> getCompiled(String name) {
+        return compiled.computeIfAbsent(name, this::compile);
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.compiled = new ConcurrentHashMap<>();
+    }
+    
+    private Compiled<E> compile(String name) {
+        int max = 0;
         for(FilterContext filterCtx : delegates) {
-            if(i >= filterCtx.getCount(name)) {
-                continue;
+            max = Math.max(max, filterCtx.getCount(name));
+        }
+        final Predicate<E> [] tests = new Predicate[max];
+        final boolean [] hasEmpty = new boolean[max];
+        for(int i=0; i<max; i++) {
+            Predicate<E> result = null;
+            for(FilterContext<E> filterCtx : delegates) {
+                if(i >= filterCtx.getCount(name)) {
+                    continue;
+                }
+                final Predicate<E> test = filterCtx.get(name, i, null);
+                if(test == null) {
+                    hasEmpty[i] = true;
+                }else{
+                    result = result == null ? test : this.combine(result, test);
+                }
             }
-            final Predicate<E> test = filterCtx.get(name, i, outputIfNone);
-            result = result == null ? test : and ? result.and(test) : result.or(test);
+            tests[i] = result;
         }
-        return result == null ? outputIfNone : result;
+        return new Compiled<>(tests, hasEmpty);
+    }
+    
+    private Predicate<E> combine(Predicate<E> lhs, Predicate<E> rhs) {
+        return and ? Predicates.and(lhs, rhs) : Predicates.or(lhs, rhs);
     }
 }
@@ -15,16 +15,21 @@
  */
 package com.bc.meta.selector.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 import java.util.function.Predicate;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import com.bc.meta.selector.AttributeTestProvider;
+import com.bc.meta.selector.util.AttributeRule;
 
 /**
  * @author Chinomso Bassey Ikwuagwu on Jun 15, 2018 9:39:01 PM
@@ -37,58 +42,90 @@ public class FilterContextImpl<NODE> extends AbstractFilterContext<NODE> impleme
     
     private final Map config;
     
+    /** The compiled test of each rule, by property name. Null entries are rules without conditions */
+    private transient Map<String, Predicate<NODE>[]> compiled = new ConcurrentHashMap<>();
+    
     public FilterContextImpl(AttributeTestProvider<NODE> attributeContext, Map config) {
         this.attributeContext = Objects.requireNonNull(attributeContext);
         this.config = Collections.unmodifiableMap(config);
 //        System.out.println("FilterContextImpl-" + LocalDateTime.now() +  ". Config: " + config);
-        LOG.log(Level.FINER, "Config: {0}", config);
+        if(LOG.isLoggable(Level.FINEST)) {
+            LOG.log(Level.FINEST, "Config: {0}", config);
+        }
     }
     
     @Override
     public int getCount(String name) {
-        final List<Map> attrCfgs = this.getAttributeList(name);
-        final int count = attrCfgs == null ? 0 : attrCfgs.size();
-//        System.out.println("FilterContextImpl-" + LocalDateTime.now() +  ". " +name + '=' + count);
-        LOG.finer(() -> name + '=' + count);
-        return count;
+        return this.getCompiled(name).length;
     }
     
     @Override
     public Predicate<NODE> get(String name, int i, Predicate<NODE> outputIfNone) {
-        final String prefix = "regex(";
-        final String suffix = ")";
-        final List<Map> attrCfgs = this.getAttributeList(name);
-        final Map attrCfg = attrCfgs.get(i);
-        final Set keys = attrCfg.keySet();
-        Predicate<NODE> result = null;
-        for(Object k : keys) {
-            final Object v = attrCfg.get(k);
-            String key = k.toString();
-            String val = v.toString();
-            final boolean regex = (val.startsWith(prefix) && val.endsWith(")"));
-            final Predicate<NODE> test;
-            if(regex) {
-                val = val.substring(prefix.length(), val.length()-suffix.length());
-                test = this.attributeContext.getAttributeRegexTest(key, val);
-            }else{
-                test = this.attributeContext.getAttributeTest(key, val);
-            }
-            if(result == null) {
-                result = test;
-            }else{
-                result = result.and(test); 
+        final Predicate<NODE> result = this.getCompiled(name)[i];
+        return result == null ? outputIfNone : result;
+    }
+
+    @Override
+    public List<Predicate<NODE>> getAll(String name) {
+        final Predicate<NODE> [] tests = this.getCompiled(name);
+        List<Predicate<NODE>> result = null;
+        for(Predicate<NODE> test : tests) {
+            if(test != null) {
+                if(result == null) {
+                    result = new ArrayList<>(tests.length);
+                }
+                result.add(test);
             }
         }
-        final Predicate<NODE> output = result == null ? outputIfNone : result;
-//        System.out.println("FilterContextImpl-" + LocalDateTime.now() +  ". " + name + '(' + i + ") = " + attrCfg + ", filter: " + output);
-        LOG.finer(() -> name + '(' + i + ") = " + attrCfg + ", filter: " + output);
+        return result == null ? Collections.EMPTY_LIST : Collections.unmodifiableList(result);
+    }
+    
+    /**
+     * The rules of each property are compiled into predicates once, on first use.
+     * @param name The property name
+     * @return The compiled tests of the rules of the named property
+     */
+    private Predicate<NODE>[] getCompiled(String name) {
+        return compiled.computeIfAbsent(name, this::compile);
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.compiled = new ConcurrentHashMap<>();
+    }
+    
+    private Predicate<NODE>[] compile(String name) {
+        final List<Map> attrCfgs = this.getAttributeList(name);
+        final int count = attrCfgs == null ? 0 : attrCfgs.size();
+        final Predicate<NODE> [] output = new Predicate[count];
+        for(int i=0; i<count; i++) {
+            output[i] = this.compile(attrCfgs.get(i));
+        }
+//        System.out.println("FilterContextImpl-" + LocalDateTime.now() +  ". " +name + '=' + count);
+        if(LOG.isLoggable(Level.FINER)) {
+            LOG.log(Level.FINER, "{0} = {1}, filters: {2}", 
+                    new Object[]{name, attrCfgs, Arrays.toString(output)});
+        }
         return output;
     }
+    
+    private Predicate<NODE> compile(Map attrCfg) {
+        final AttributeRule rule = AttributeRule.of(attrCfg);
+        final List<Predicate<NODE>> tests = new ArrayList<>(rule.getCount());
+        for(int i : rule.getTestOrder()) {
+            tests.add(rule.isRegex(i) ?
+                    this.attributeContext.getAttributeRegexTest(rule.getName(i), rule.getValue(i)) :
+                    this.attributeContext.getAttributeTest(rule.getName(i), rule.getValue(i)));
+        }
+        return Predicates.allOf(tests);
+    }
 
     public List<Map> getAttributeList(String name) {
         final List<Map> attrCfgs = (List<Map>)this.config.get(name);
 //        System.out.println("FilterContextImpl-" + LocalDateTime.now() +  ". " + name + '=' + attrCfgs);
-        LOG.finer(() -> name + '=' + attrCfgs);
+        if(LOG.isLoggable(Level.FINEST)) {
+            LOG.log(Level.FINEST, "{0} = {1}", new Object[]{name, attrCfgs});
+        }
         return attrCfgs;
     }
 }
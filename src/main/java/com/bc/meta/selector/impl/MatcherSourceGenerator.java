@@ -0,0 +1,537 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.impl;
+
+import com.bc.meta.selector.util.AttributeRule;
+import com.bc.meta.selector.util.MultiPatternMatcher;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Generates the Java source of an {@link AttributeIndex} subclass which 
+ * matches the rules of the configs in generated code, and declares a constant
+ * for the id of each property.
+ * <p>
+ * Exact rules are dispatched with <code>switch</code> statements on attribute
+ * names and values. Regex rules are tested only on the attribute values which
+ * contain their required literal, and the other rules on every node, as by 
+ * {@link AttributeIndex}. No index is built at runtime: the generated class
+ * only gets the test of each condition from the attribute context, which 
+ * defines what matching an attribute means for its type of node.
+ * </p>
+ * <p>
+ * The generated class also holds the rules it was generated from, so it 
+ * needs neither config files nor a JSON parser at runtime. 
+ * </p>
+ */
+public class MatcherSourceGenerator {
+
+    private static final String INDENT = "    ";
+
+    /**
+     * @param className The fully qualified name of the class to generate
+     * @param rules The rules of each property, in order of the property ids to assign
+     * @return The source of the generated class
+     */
+    public String generate(String className, Map<String, List<AttributeRule>> rules) {
+        final StringBuilder out = new StringBuilder(8192);
+        try{
+            this.generate(className, rules, out);
+        }catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * @param className The fully qualified name of the class to generate
+     * @param rules The rules of each property, in order of the property ids to assign
+     * @param out The Appendable to write the source of the generated class to
+     * @throws IOException If thrown by the Appendable
+     */
+    public void generate(String className, Map<String, List<AttributeRule>> rules, Appendable out) 
+            throws IOException {
+
+        Objects.requireNonNull(className);
+        Objects.requireNonNull(rules);
+
+        final int dot = className.lastIndexOf('.');
+        final String packageName = dot == -1 ? null : className.substring(0, dot);
+        final String simpleName = className.substring(dot + 1);
+
+        final List<String> constants = this.getConstantNames(rules.keySet());
+
+        final List<Rule> compiled = this.compile(rules);
+
+        out.append("/*\n * Generated by ").append(this.getClass().getName())
+                .append(". Do not edit.\n */\n");
+        if(packageName != null) {
+            out.append("package ").append(packageName).append(";\n");
+        }
+        out.append('\n')
+                .append("import com.bc.meta.selector.AttributeProvider;\n")
+                .append("import com.bc.meta.selector.AttributeTestProvider;\n")
+                .append("import com.bc.meta.selector.impl.AttributeIndex;\n")
+                .append("import com.bc.meta.selector.impl.Predicates;\n")
+                .append("import com.bc.meta.selector.util.AttributeRule;\n")
+                .append("import java.util.Arrays;\n")
+                .append("import java.util.BitSet;\n")
+                .append("import java.util.Collections;\n")
+                .append("import java.util.LinkedHashMap;\n")
+                .append("import java.util.List;\n")
+                .append("import java.util.Map;\n")
+                .append("import java.util.function.Predicate;\n")
+                .append('\n')
+                .append("public class ").append(simpleName).append("<NODE> extends AttributeIndex<NODE> {\n\n");
+
+        int id = 0;
+        for(String name : rules.keySet()) {
+            out.append(INDENT).append("/** ").append(this.escapeComment(name)).append(" */\n");
+            out.append(INDENT).append("public static final int ").append(constants.get(id))
+                    .append(" = ").append(Integer.toString(id)).append(";\n\n");
+            ++id;
+        }
+        out.append(INDENT).append("public static final int PROPERTY_COUNT = ")
+                .append(Integer.toString(rules.size())).append(";\n\n");
+
+        out.append(INDENT).append("private static final String [] PROPERTY_NAMES = {");
+        boolean first = true;
+        for(String name : rules.keySet()) {
+            out.append(first ? "" : ", ").append(this.literal(name));
+            first = false;
+        }
+        out.append("};\n\n");
+
+        out.append(INDENT).append("private final AttributeProvider<NODE> attributes;\n\n")
+                .append(INDENT).append("/** The test of each condition of each rule, as provided by the attribute context */\n")
+                .append(INDENT).append("private final Predicate<NODE> [] tests;\n\n");
+
+        // Constructors
+        final String i2 = INDENT + INDENT;
+        out.append(INDENT).append("public <A extends AttributeTestProvider<NODE> & AttributeProvider<NODE>> ")
+                .append(simpleName).append("(A attributeContext) {\n")
+                .append(i2).append("this(attributeContext, (node) -> false);\n")
+                .append(INDENT).append("}\n\n");
+        out.append(INDENT).append("public <A extends AttributeTestProvider<NODE> & AttributeProvider<NODE>> ")
+                .append(simpleName).append("(A attributeContext, Predicate<NODE> defaultTest) {\n")
+                .append(i2).append("this(attributeContext, tests(attributeContext), defaultTest);\n")
+                .append(INDENT).append("}\n\n");
+        out.append(INDENT).append("private ").append(simpleName)
+                .append("(AttributeProvider<NODE> attributes, Predicate<NODE> [] tests, Predicate<NODE> defaultTest) {\n")
+                .append(i2).append("super(attributes, PROPERTY_NAMES, propertyTests(tests, defaultTest));\n")
+                .append(i2).append("this.attributes = attributes;\n")
+                .append(i2).append("this.tests = tests;\n")
+                .append(INDENT).append("}\n\n");
+
+        out.append(INDENT).append("public static List<String> propertyNames() {\n")
+                .append(i2).append("return Collections.unmodifiableList(Arrays.asList(PROPERTY_NAMES));\n")
+                .append(INDENT).append("}\n\n");
+
+        this.appendRules(rules, out);
+
+        this.appendTests(rules, compiled, constants, out);
+
+        this.appendMatch(compiled, constants, out);
+
+        out.append("}\n");
+    }
+
+    /** A rule of a property, with the ids of the tests of its conditions */
+    private static final class Rule {
+        private final AttributeRule rule;
+        private final int property;
+        /** The index of the condition the rule is indexed on, or -1 if none */
+        private final int indexed;
+        /** The indices of the conditions, in the order they are tested */
+        private final int [] order;
+        /** The test ids of the conditions, in the order they are tested */
+        private final int [] tests;
+        private Rule(AttributeRule rule, int property, int [] order, int [] tests) {
+            this.rule = rule;
+            this.property = property;
+            this.indexed = rule.indexOfFirstExact();
+            this.order = order;
+            this.tests = tests;
+        }
+        /** @return The test ids of the conditions other than the indexed one */
+        private int [] getRemainder() {
+            final int [] output = new int[tests.length - 1];
+            int n = 0;
+            for(int i=0; i<tests.length; i++) {
+                if(order[i] != indexed) {
+                    output[n++] = tests[i];
+                }
+            }
+            return output;
+        }
+    }
+
+    /**
+     * @return The rules having conditions, in order of the properties, with 
+     * their conditions ordered as by {@link AttributeIndex}
+     */
+    private List<Rule> compile(Map<String, List<AttributeRule>> rules) {
+        final List<Rule> output = new ArrayList<>();
+        int property = 0;
+        int test = 0;
+        for(List<AttributeRule> propertyRules : rules.values()) {
+            for(AttributeRule rule : propertyRules) {
+                if(rule.getCount() == 0) {
+                    continue;
+                }
+                final int [] tests = new int[rule.getCount()];
+                for(int i=0; i<tests.length; i++) {
+                    tests[i] = test++;
+                }
+                output.add(new Rule(rule, property, rule.getTestOrder(), tests));
+            }
+            ++property;
+        }
+        return output;
+    }
+
+    private void appendRules(Map<String, List<AttributeRule>> rules, Appendable out) throws IOException {
+
+        out.append(INDENT).append("/**\n")
+                .append(INDENT).append(" * @return The rules of each property, in order of the property ids\n")
+                .append(INDENT).append(" */\n")
+                .append(INDENT).append("public static Map<String, List<AttributeRule>> rules() {\n")
+                .append(INDENT).append(INDENT).append("final Map<String, List<AttributeRule>> rules = new LinkedHashMap<>(")
+                .append(Integer.toString(rules.size() * 2)).append(");\n");
+
+        for(Map.Entry<String, List<AttributeRule>> entry : rules.entrySet()) {
+            out.append(INDENT).append(INDENT).append("rules.put(").append(this.literal(entry.getKey())).append(", ");
+            if(entry.getValue().isEmpty()) {
+                out.append("Collections.emptyList());\n");
+                continue;
+            }
+            out.append("Arrays.asList(");
+            boolean firstRule = true;
+            for(AttributeRule rule : entry.getValue()) {
+                out.append(firstRule ? "\n" : ",\n").append(INDENT).append(INDENT).append(INDENT).append(INDENT);
+                firstRule = false;
+                final StringBuilder names = new StringBuilder();
+                final StringBuilder values = new StringBuilder();
+                final StringBuilder regex = new StringBuilder();
+                for(int i=0; i<rule.getCount(); i++) {
+                    final String sep = i == 0 ? "" : ", ";
+                    names.append(sep).append(this.literal(rule.getName(i)));
+                    values.append(sep).append(this.literal(rule.getValue(i)));
+                    regex.append(sep).append(rule.isRegex(i));
+                }
+                out.append("new AttributeRule(new String[]{").append(names)
+                        .append("}, new String[]{").append(values)
+                        .append("}, new boolean[]{").append(regex).append("})");
+            }
+            out.append("));\n");
+        }
+
+        out.append(INDENT).append(INDENT).append("return Collections.unmodifiableMap(rules);\n")
+                .append(INDENT).append("}\n\n");
+    }
+
+    private void appendTests(Map<String, List<AttributeRule>> rules, List<Rule> compiled, 
+            List<String> constants, Appendable out) throws IOException {
+
+        final String i2 = INDENT + INDENT;
+        final String i3 = i2 + INDENT;
+
+        int testCount = 0;
+        for(Rule rule : compiled) {
+            testCount += rule.tests.length;
+        }
+
+        out.append(INDENT).append("@SuppressWarnings(\"unchecked\")\n")
+                .append(INDENT).append("private static <N> Predicate<N> [] tests(AttributeTestProvider<N> attributeContext) {\n")
+                .append(i2).append("final Predicate<N> [] t = new Predicate[").append(Integer.toString(testCount)).append("];\n");
+        for(Rule rule : compiled) {
+            for(int i=0; i<rule.order.length; i++) {
+                final int condition = rule.order[i];
+                out.append(i2).append("t[").append(Integer.toString(rule.tests[i])).append("] = attributeContext.")
+                        .append(rule.rule.isRegex(condition) ? "getAttributeRegexTest(" : "getAttributeTest(")
+                        .append(this.literal(rule.rule.getName(condition))).append(", ")
+                        .append(this.literal(rule.rule.getValue(condition))).append(");\n");
+            }
+        }
+        out.append(i2).append("return t;\n")
+                .append(INDENT).append("}\n\n");
+
+        out.append(INDENT).append("@SuppressWarnings(\"unchecked\")\n")
+                .append(INDENT).append("private static <N> Predicate<N> [] propertyTests(Predicate<N> [] t, Predicate<N> defaultTest) {\n")
+                .append(i2).append("final Predicate<N> [] p = new Predicate[PROPERTY_COUNT];\n");
+        int property = 0;
+        for(String name : rules.keySet()) {
+            final List<String> ruleTests = new ArrayList<>();
+            for(Rule rule : compiled) {
+                if(rule.property == property) {
+                    ruleTests.add(this.join("Predicates.allOf", rule.tests));
+                }
+            }
+            out.append(i2).append("p[").append(constants.get(property)).append("] = ");
+            if(ruleTests.isEmpty()) {
+                out.append("defaultTest;\n");
+            }else if(ruleTests.size() == 1) {
+                out.append(ruleTests.get(0)).append(";\n");
+            }else{
+                out.append("Predicates.anyOf(Arrays.asList(");
+                for(int i=0; i<ruleTests.size(); i++) {
+                    out.append(i == 0 ? "\n" : ",\n").append(i3).append(ruleTests.get(i));
+                }
+                out.append("));\n");
+            }
+            ++property;
+        }
+        out.append(i2).append("return p;\n")
+                .append(INDENT).append("}\n\n");
+    }
+
+    /** @return The test of the single id, or the junction of the test ids */
+    private String join(String junction, int [] tests) {
+        if(tests.length == 1) {
+            return "t[" + tests[0] + ']';
+        }
+        final StringBuilder builder = new StringBuilder(junction).append("(Arrays.asList(");
+        for(int i=0; i<tests.length; i++) {
+            builder.append(i == 0 ? "" : ", ").append("t[").append(tests[i]).append(']');
+        }
+        return builder.append("))").toString();
+    }
+
+    private void appendMatch(List<Rule> compiled, List<String> constants, Appendable out) throws IOException {
+
+        // Lower case attribute name -> attribute value -> statements
+        final Map<String, Map<String, List<String>>> exact = new LinkedHashMap<>();
+        // Required literal -> statements, of regex rules
+        final Map<String, List<String>> byLiteral = new LinkedHashMap<>();
+        final List<String> scanned = new ArrayList<>();
+
+        for(Rule rule : compiled) {
+            final String constant = constants.get(rule.property);
+            if(rule.indexed == -1) {
+                final String statement = this.getMatchStatement(constant, rule.tests);
+                final String literal = this.getRequiredLiteral(rule.rule);
+                if(literal.isEmpty()) {
+                    scanned.add(statement);
+                }else{
+                    byLiteral.computeIfAbsent(literal, (k) -> new ArrayList<>()).add(statement);
+                }
+            }else{
+                exact.computeIfAbsent(rule.rule.getName(rule.indexed).toLowerCase(), (k) -> new LinkedHashMap<>())
+                        .computeIfAbsent(rule.rule.getValue(rule.indexed), (k) -> new ArrayList<>())
+                        .add(this.getMatchStatement(constant, rule.getRemainder()));
+            }
+        }
+
+        final String i2 = INDENT + INDENT;
+        final String i3 = i2 + INDENT;
+        final String i4 = i3 + INDENT;
+
+        out.append(INDENT).append("@Override\n")
+                .append(INDENT).append("public void match(NODE node, BitSet matched) {\n")
+                .append(i2).append("final int attrCount = attributes.getAttributeCount(node);\n")
+                .append(i2).append("for(int i=0; i<attrCount; i++) {\n")
+                .append(i3).append("final String attrValue = attributes.getAttributeValue(node, i);\n")
+                .append(i3).append("if(attrValue == null) {\n")
+                .append(i4).append("continue;\n")
+                .append(i3).append("}\n")
+                .append(i3).append("final String attrName = attributes.getAttributeName(node, i);\n")
+                .append(i3).append("if(attrName != null) {\n")
+                .append(i4).append("this.matchExact(attrName.toLowerCase(), attrValue, node, matched);\n")
+                .append(i3).append("}\n");
+        if(!byLiteral.isEmpty()) {
+            out.append(i3).append("this.matchRegex(attrValue, node, matched);\n");
+        }
+        out.append(i2).append("}\n");
+        for(String statement : scanned) {
+            out.append(i2).append(statement).append('\n');
+        }
+        out.append(INDENT).append("}\n\n");
+
+        out.append(INDENT).append("@Override\n")
+                .append(INDENT).append("protected void matchExact(String attrName, String attrValue, NODE node, BitSet matched) {\n")
+                .append(i2).append("switch(attrName) {\n");
+        int method = 0;
+        for(String attrName : exact.keySet()) {
+            out.append(i3).append("case ").append(this.literal(attrName)).append(":\n")
+                    .append(i4).append("this.matchExact").append(Integer.toString(method++))
+                    .append("(attrValue, node, matched);\n")
+                    .append(i4).append("break;\n");
+        }
+        out.append(i3).append("default:\n")
+                .append(i4).append("break;\n")
+                .append(i2).append("}\n")
+                .append(INDENT).append("}\n");
+
+        // One method per attribute name, to keep each method well within the size limits
+        method = 0;
+        for(Map.Entry<String, Map<String, List<String>>> byName : exact.entrySet()) {
+            out.append('\n')
+                    .append(INDENT).append("/** ").append(this.escapeComment(byName.getKey())).append(" */\n")
+                    .append(INDENT).append("private void matchExact").append(Integer.toString(method++))
+                    .append("(String attrValue, NODE node, BitSet matched) {\n")
+                    .append(i2).append("switch(attrValue) {\n");
+            for(Map.Entry<String, List<String>> byValue : byName.getValue().entrySet()) {
+                out.append(i3).append("case ").append(this.literal(byValue.getKey())).append(":\n");
+                for(String statement : byValue.getValue()) {
+                    out.append(i4).append(statement).append('\n');
+                }
+                out.append(i4).append("break;\n");
+            }
+            out.append(i3).append("default:\n")
+                    .append(i4).append("break;\n")
+                    .append(i2).append("}\n")
+                    .append(INDENT).append("}\n");
+        }
+
+        if(byLiteral.isEmpty()) {
+            return;
+        }
+
+        // Regex rules are tested only on values containing the literal each of their matches must contain
+        out.append('\n')
+                .append(INDENT).append("private void matchRegex(String attrValue, NODE node, BitSet matched) {\n");
+        for(Map.Entry<String, List<String>> entry : byLiteral.entrySet()) {
+            out.append(i2).append("if(contains(attrValue, ").append(this.literal(entry.getKey())).append(")) {\n");
+            for(String statement : entry.getValue()) {
+                out.append(i3).append(statement).append('\n');
+            }
+            out.append(i2).append("}\n");
+        }
+        out.append(INDENT).append("}\n\n");
+
+        out.append(INDENT).append("private static boolean contains(String value, String literal) {\n")
+                .append(i2).append("for(int i=0; i<=value.length() - literal.length(); i++) {\n")
+                .append(i3).append("if(value.regionMatches(true, i, literal, 0, literal.length())) {\n")
+                .append(i4).append("return true;\n")
+                .append(i3).append("}\n")
+                .append(i2).append("}\n")
+                .append(i2).append("return false;\n")
+                .append(INDENT).append("}\n");
+    }
+
+    /**
+     * @return A statement which sets the bit of the property, if not set and
+     * the tests accept the node
+     */
+    private String getMatchStatement(String constant, int [] tests) {
+        if(tests.length == 0) {
+            return "matched.set(" + constant + ");";
+        }
+        final StringBuilder builder = new StringBuilder("if(!matched.get(").append(constant).append(')');
+        for(int i=0; i<tests.length; i++) {
+            builder.append(" && tests[").append(tests[i]).append("].test(node)");
+        }
+        return builder.append(") { matched.set(").append(constant).append("); }").toString();
+    }
+
+    /**
+     * @return The longest literal required by any regex condition of the rule, 
+     * or an empty string if there is none
+     */
+    private String getRequiredLiteral(AttributeRule rule) {
+        String result = "";
+        for(int i=0; i<rule.getCount(); i++) {
+            if(rule.isRegex(i)) {
+                final String literal = MultiPatternMatcher.getRequiredLiteral(rule.getValue(i));
+                if(literal.length() > result.length()) {
+                    result = literal;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param propertyNames The property names
+     * @return A unique constant name for each property name, e.g <code>TAG_SET</code> 
+     * for <code>tagSet</code> and <code>OG_TITLE</code> for <code>og:title</code>
+     */
+    public List<String> getConstantNames(Set<String> propertyNames) {
+        final Set<String> used = new HashSet<>(Arrays.asList("PROPERTY_COUNT", "PROPERTY_NAMES"));
+        final List<String> output = new ArrayList<>(propertyNames.size());
+        for(String propertyName : propertyNames) {
+            String constant = this.toConstantName(propertyName);
+            if(!used.add(constant)) {
+                int n = 2;
+                while(!used.add(constant + '_' + n)) {
+                    ++n;
+                }
+                constant = constant + '_' + n;
+            }
+            output.add(constant);
+        }
+        return output;
+    }
+
+    public String toConstantName(String propertyName) {
+        final StringBuilder builder = new StringBuilder(propertyName.length() + 8);
+        char prev = 0;
+        for(int i=0; i<propertyName.length(); i++) {
+            final char ch = propertyName.charAt(i);
+            if(Character.isUpperCase(ch) && Character.isLowerCase(prev)) {
+                builder.append('_');
+            }
+            if(ch < 128 && Character.isLetterOrDigit(ch)) {
+                builder.append(Character.toUpperCase(ch));
+            }else if(builder.length() > 0 && builder.charAt(builder.length() - 1) != '_') {
+                builder.append('_');
+            }
+            prev = ch;
+        }
+        while(builder.length() > 0 && builder.charAt(builder.length() - 1) == '_') {
+            builder.setLength(builder.length() - 1);
+        }
+        if(builder.length() == 0 || Character.isDigit(builder.charAt(0))) {
+            builder.insert(0, "P_");
+        }
+        return builder.toString();
+    }
+
+    private String literal(String s) {
+        final StringBuilder builder = new StringBuilder(s.length() + 2).append('"');
+        for(int i=0; i<s.length(); i++) {
+            final char ch = s.charAt(i);
+            switch(ch) {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                default:
+                    if(ch < 0x20 || ch > 0x7E) {
+                        builder.append(String.format("\\u%04x", (int)ch));
+                    }else{
+                        builder.append(ch);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private String escapeComment(String s) {
+        return this.literal(s).replace("*/", "*\\/").replace("\\u", "\\\\u");
+    }
+}
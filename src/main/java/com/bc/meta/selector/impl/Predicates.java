@@ -0,0 +1,345 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Flat conjunctions and disjunctions of predicates.
+ * <p>
+ * Unlike the chains built by {@link Predicate#and(java.util.function.Predicate)} 
+ * and {@link Predicate#or(java.util.function.Predicate)}, nested junctions of 
+ * the same kind are merged into one array of operands when built, so that each 
+ * test is a single short-circuit loop over the leaf tests. Null and duplicate 
+ * operands are dropped, and a junction of one operand is the operand itself.
+ * </p>
+ */
+public final class Predicates {
+
+    private Predicates() { }
+
+    /**
+     * @param <T> The type of the input to the predicate
+     * @param lhs The first operand, may be null
+     * @param rhs The second operand, may be null
+     * @return A predicate which accepts its input only if both operands accept it,
+     * or null if both operands are null
+     */
+    public static <T> Predicate<T> and(Predicate<T> lhs, Predicate<T> rhs) {
+        return lhs == null ? rhs : rhs == null ? lhs : allOf(Arrays.asList(lhs, rhs));
+    }
+
+    /**
+     * @param <T> The type of the input to the predicate
+     * @param lhs The first operand, may be null
+     * @param rhs The second operand, may be null
+     * @return A predicate which accepts its input if either operand accepts it,
+     * or null if both operands are null
+     */
+    public static <T> Predicate<T> or(Predicate<T> lhs, Predicate<T> rhs) {
+        return lhs == null ? rhs : rhs == null ? lhs : anyOf(Arrays.asList(lhs, rhs));
+    }
+
+    /**
+     * @param <T> The type of the input to the predicate
+     * @param operands The operands, null elements are ignored
+     * @return A predicate which accepts its input only if all the operands accept
+     * it, or null if there are no operands
+     */
+    public static <T> Predicate<T> allOf(Collection<? extends Predicate<T>> operands) {
+        final List<Predicate<T>> flat = flatten(operands, true);
+        return flat.isEmpty() ? null : flat.size() == 1 ? flat.get(0) : new AllOf<>(flat);
+    }
+
+    /**
+     * @param <T> The type of the input to the predicate
+     * @param operands The operands, null elements are ignored
+     * @return A predicate which accepts its input if any of the operands accepts
+     * it, or null if there are no operands
+     */
+    public static <T> Predicate<T> anyOf(Collection<? extends Predicate<T>> operands) {
+        final List<Predicate<T>> flat = flatten(operands, false);
+        return flat.isEmpty() ? null : flat.size() == 1 ? flat.get(0) : new AnyOf<>(flat);
+    }
+
+    /**
+     * @param <T> The type of the input to the predicate
+     * @param test The test to make adaptive
+     * @return If the test is an {@link AnyOf}, an {@link AdaptiveAnyOf} of the 
+     * same operands, otherwise the test itself
+     */
+    public static <T> Predicate<T> adaptive(Predicate<T> test) {
+        return adaptive(test, DefaultSampling.INSTANCE, DefaultSampling.INSTANCE);
+    }
+
+    /**
+     * @param <T> The type of the input to the predicate
+     * @param test The test to make adaptive
+     * @param sampler Decides whether a test is a sample
+     * @param clock The clock, in nanoseconds, by which samples are timed
+     * @return If the test is an {@link AnyOf}, an {@link AdaptiveAnyOf} of the 
+     * same operands, otherwise the test itself
+     */
+    static <T> Predicate<T> adaptive(Predicate<T> test, BooleanSupplier sampler, LongSupplier clock) {
+        return test instanceof AnyOf ? 
+                new AdaptiveAnyOf<>(((AnyOf<T>)test).getOperands(), sampler, clock) : test;
+    }
+
+    /** Samples one in about every {@link AdaptiveAnyOf#SAMPLE_PERIOD} tests, at random */
+    private enum DefaultSampling implements BooleanSupplier, LongSupplier {
+        INSTANCE;
+        @Override
+        public boolean getAsBoolean() {
+            return ThreadLocalRandom.current().nextInt(AdaptiveAnyOf.SAMPLE_PERIOD) == 0;
+        }
+        @Override
+        public long getAsLong() {
+            return System.nanoTime();
+        }
+    }
+
+    private static <T> List<Predicate<T>> flatten(Collection<? extends Predicate<T>> operands, boolean and) {
+        final List<Predicate<T>> output = new ArrayList<>(operands.size());
+        for(Predicate<T> operand : operands) {
+            if(operand == null) {
+                continue;
+            }
+            if(and ? operand instanceof AllOf : operand instanceof AnyOf) {
+                for(Predicate<T> e : ((Junction<T>)operand).operands) {
+                    if(!output.contains(e)) {
+                        output.add(e);
+                    }
+                }
+            }else if(!output.contains(operand)) {
+                output.add(operand);
+            }
+        }
+        return output;
+    }
+
+    public static abstract class Junction<T> implements Predicate<T>, Serializable {
+
+        final Predicate<T> [] operands;
+
+        private Junction(List<Predicate<T>> operands) {
+            this.operands = operands.toArray(new Predicate[0]);
+        }
+
+        public List<Predicate<T>> getOperands() {
+            return Collections.unmodifiableList(Arrays.asList(operands));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.getClass().hashCode() + Arrays.hashCode(operands);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            return Arrays.equals(operands, ((Junction)obj).operands);
+        }
+    }
+
+    public static final class AllOf<T> extends Junction<T> {
+        private AllOf(List<Predicate<T>> operands) {
+            super(operands);
+        }
+        @Override
+        public boolean test(T t) {
+            for(Predicate<T> operand : operands) {
+                if(!operand.test(t)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        @Override
+        public Predicate<T> and(Predicate<? super T> other) {
+            return Predicates.and(this, (Predicate<T>)Objects.requireNonNull(other));
+        }
+        @Override
+        public String toString() {
+            return "allOf" + Arrays.toString(operands);
+        }
+    }
+
+    public static final class AnyOf<T> extends Junction<T> {
+        private AnyOf(List<Predicate<T>> operands) {
+            super(operands);
+        }
+        @Override
+        public boolean test(T t) {
+            for(Predicate<T> operand : operands) {
+                if(operand.test(t)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        @Override
+        public Predicate<T> or(Predicate<? super T> other) {
+            return Predicates.or(this, (Predicate<T>)Objects.requireNonNull(other));
+        }
+        @Override
+        public String toString() {
+            return "anyOf" + Arrays.toString(operands);
+        }
+    }
+
+    /**
+     * A disjunction which learns the order in which to try its operands.
+     * <p>
+     * The result of a disjunction of side effect free operands does not depend 
+     * on their order. About one in every {@value #SAMPLE_PERIOD} tests, chosen 
+     * at random, is a sample: it tests every operand, counting its hits and 
+     * timing it. Once {@value #REORDER_SAMPLES} samples are counted, the 
+     * operands are re-ordered by hit rate over average cost, most likely and 
+     * cheapest first, and the statistics are halved so that the order follows 
+     * changes in the input.
+     * </p>
+     * <p>
+     * Tests which are not samples only read the current order, so instances 
+     * may be shared between threads without contention. One thread at a time 
+     * samples, updating the statistics in place; a test due to be sampled 
+     * while another thread samples is not sampled. Each re-ordering is 
+     * published as a new array, so every test sees a complete order.
+     * </p>
+     */
+    public static final class AdaptiveAnyOf<T> extends Junction<T> {
+        
+        public static final int SAMPLE_PERIOD = 1 << 6;
+        
+        public static final int REORDER_SAMPLES = 1 << 4;
+        
+        private final BooleanSupplier sampler;
+        
+        private final LongSupplier clock;
+        
+        private volatile int [] order;
+        
+        /** Set by the thread sampling, which alone accesses the statistics */
+        private final AtomicBoolean sampling = new AtomicBoolean();
+        private final int [] hits;
+        private final long [] costNanos;
+        private int samples;
+        
+        private AdaptiveAnyOf(List<Predicate<T>> operands, BooleanSupplier sampler, LongSupplier clock) {
+            super(operands);
+            this.sampler = Objects.requireNonNull(sampler);
+            this.clock = Objects.requireNonNull(clock);
+            final int n = this.operands.length;
+            this.order = new int[n];
+            for(int i=0; i<n; i++) {
+                order[i] = i;
+            }
+            this.hits = new int[n];
+            this.costNanos = new long[n];
+        }
+        
+        @Override
+        public boolean test(T t) {
+            if(sampler.getAsBoolean() && sampling.compareAndSet(false, true)) {
+                try{
+                    return this.sample(t);
+                }finally{
+                    sampling.set(false);
+                }
+            }
+            for(int i : this.order) {
+                if(operands[i].test(t)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        /** Called while sampling */
+        private boolean sample(T t) {
+            boolean result = false;
+            for(int i=0; i<operands.length; i++) {
+                final long start = clock.getAsLong();
+                if(operands[i].test(t)) {
+                    ++hits[i];
+                    result = true;
+                }
+                costNanos[i] += clock.getAsLong() - start;
+            }
+            if(++samples == REORDER_SAMPLES) {
+                this.reorder();
+            }
+            return result;
+        }
+        
+        /** Called while sampling */
+        private void reorder() {
+            final int n = operands.length;
+            final Integer [] update = new Integer[n];
+            final double [] scores = new double[n];
+            for(int i=0; i<n; i++) {
+                update[i] = i;
+                // Smoothed, so that operands which have not yet hit are not ruled out
+                final double hitRate = (hits[i] + 1.0) / (samples + 2.0);
+                final double cost = (costNanos[i] + 1.0) / samples;
+                scores[i] = hitRate / cost;
+                hits[i] >>>= 1;
+                costNanos[i] >>>= 1;
+            }
+            samples >>>= 1;
+            Arrays.sort(update, (i, j) -> Double.compare(scores[j], scores[i]));
+            final int [] output = new int[n];
+            for(int i=0; i<n; i++) {
+                output[i] = update[i];
+            }
+            this.order = output;
+        }
+        
+        /**
+         * @return The operands in the order in which they are currently tried
+         */
+        public List<Predicate<T>> getOrderedOperands() {
+            final int [] current = this.order;
+            final List<Predicate<T>> output = new ArrayList<>(current.length);
+            for(int i : current) {
+                output.add(operands[i]);
+            }
+            return Collections.unmodifiableList(output);
+        }
+        
+        @Override
+        public String toString() {
+            return "adaptiveAnyOf" + this.getOrderedOperands();
+        }
+    }
+}
@@ -24,7 +24,9 @@ import java.text.ParseException;
 import java.util.Objects;
 import com.bc.meta.selector.Selector;
 import com.bc.meta.selector.SelectorBuilder;
+import com.bc.meta.selector.SelectorMetrics;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 /**
  * @author Chinomso Bassey Ikwuagwu on Jun 21, 2018 11:51:22 AM
@@ -33,10 +35,22 @@ public class SelectorBuilderImpl<NODE, NODEVALUE, PREVIOUS_BUILDER> implements S
 
     private FilterBuilder<NODE, SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER>> filterBuilder;
 
+    private Function<String, Predicate<NODE>> nodeTestProvider;
+    
     private BiFunction<String, NODE, NODEVALUE> nodeValueExtractor;
     
     private Predicate<String> multiValueTest;
     
+    private ToIntFunction<String> multiValueLimit;
+    
+    private boolean stopWhenComplete;
+    
+    private Predicate<NODE> terminator;
+    
+    private int maxNodes;
+    
+    private SelectorMetrics metrics;
+    
     private final PREVIOUS_BUILDER back;
 
     public SelectorBuilderImpl() {
@@ -53,8 +67,14 @@ public class SelectorBuilderImpl<NODE, NODEVALUE, PREVIOUS_BUILDER> implements S
         if(this.filterBuilder != null) {
             this.filterBuilder.reset();
         }
+        this.nodeTestProvider = null;
         this.nodeValueExtractor = null;
         this.multiValueTest = null;
+        this.multiValueLimit = (name) -> Integer.MAX_VALUE;
+        this.stopWhenComplete = true;
+        this.terminator = null;
+        this.maxNodes = Integer.MAX_VALUE;
+        this.metrics = SelectorMetrics.NONE;
         return this;
     }
 
@@ -67,11 +87,19 @@ public class SelectorBuilderImpl<NODE, NODEVALUE, PREVIOUS_BUILDER> implements S
     public Selector<NODE> build() throws IOException, ParseException{
         Objects.requireNonNull(nodeValueExtractor);
         Objects.requireNonNull(multiValueTest);
-        if(filterBuilder == null) {
-            filterBuilder = new FilterBuilderImpl();
+        Objects.requireNonNull(multiValueLimit);
+        Objects.requireNonNull(metrics);
+        final Function<String, Predicate<NODE>> nodeTestProvider;
+        if(this.nodeTestProvider != null) {
+            nodeTestProvider = this.nodeTestProvider;
+        }else{
+            if(filterBuilder == null) {
+                filterBuilder = new FilterBuilderImpl();
+            }
+            nodeTestProvider = filterBuilder.build();
         }
-        final Function<String, Predicate<NODE>> nodeTestProvider = filterBuilder.build();
-        return new SelectorImpl(nodeTestProvider, nodeValueExtractor, multiValueTest);
+        return new SelectorImpl(nodeTestProvider, nodeValueExtractor, 
+                multiValueTest, multiValueLimit, stopWhenComplete, terminator, maxNodes, metrics);
     }
 
     @Override
@@ -88,6 +116,12 @@ public class SelectorBuilderImpl<NODE, NODEVALUE, PREVIOUS_BUILDER> implements S
         return this;
     }
 
+    @Override
+    public SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> nodeTestProvider(Function<String, Predicate<NODE>> nodeTestProvider) {
+        this.nodeTestProvider = nodeTestProvider;
+        return this;
+    }
+
     @Override
     public SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> nodeValueExtractor(BiFunction<String, NODE, NODEVALUE> nodeValueExtractor) {
         this.nodeValueExtractor = nodeValueExtractor;
@@ -99,4 +133,37 @@ public class SelectorBuilderImpl<NODE, NODEVALUE, PREVIOUS_BUILDER> implements S
         this.multiValueTest = multiValueTest;
         return this;
     }
+
+    @Override
+    public SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> multiValueLimit(ToIntFunction<String> multiValueLimit) {
+        this.multiValueLimit = multiValueLimit;
+        return this;
+    }
+
+    @Override
+    public SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> stopWhenComplete(boolean stopWhenComplete) {
+        this.stopWhenComplete = stopWhenComplete;
+        return this;
+    }
+
+    @Override
+    public SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> terminator(Predicate<NODE> terminator) {
+        this.terminator = terminator;
+        return this;
+    }
+
+    @Override
+    public SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> maxNodes(int maxNodes) {
+        if(maxNodes < 0) {
+            throw new IllegalArgumentException("maxNodes < 0: " + maxNodes);
+        }
+        this.maxNodes = maxNodes;
+        return this;
+    }
+
+    @Override
+    public SelectorBuilder<NODE, NODEVALUE, PREVIOUS_BUILDER> metrics(SelectorMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
 }
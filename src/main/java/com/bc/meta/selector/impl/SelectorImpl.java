@@ -16,80 +16,425 @@
 
 package com.bc.meta.selector.impl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import com.bc.meta.selector.PropertySchema;
+import com.bc.meta.selector.SelectionContext;
 import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.SelectorMetrics;
+import com.bc.meta.selector.jfr.JfrEvents;
+import com.bc.meta.selector.util.ArraySet;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 /**
+ * Instances hold no per-selection state, all of which is confined to the 
+ * calling thread, and may be shared between threads if the node test provider,
+ * node value extractor and multi-value test are thread safe.
  * @author Chinomso Bassey Ikwuagwu on Jun 18, 2018 8:46:31 PM
  */
 public class SelectorImpl<NODE, NODEVALUE> implements Serializable, Selector<NODE> {
 
     private transient static final Logger LOG = Logger.getLogger(SelectorImpl.class.getName());
     
+    private static final Object REJECTED = new Object();
+    
     private final Function<String, Predicate<NODE>> nodeTestProvider;
     
     private final BiFunction<String, NODE, NODEVALUE> nodeValueExtractor;
 
     private final Predicate<String> multiValueTest;
+    
+    private final ToIntFunction<String> multiValueLimit;
+    
+    private final boolean stopWhenComplete;
+    
+    private final Predicate<NODE> terminator;
+    
+    private final int maxNodes;
+    
+    private final SelectorMetrics metrics;
 
     public SelectorImpl(
             Function<String, Predicate<NODE>> nodeTestProvider, 
             BiFunction<String, NODE, NODEVALUE> nodeValueExtractor, 
             Predicate<String> multiValueTest) {
+        this(nodeTestProvider, nodeValueExtractor, multiValueTest, 
+                (name) -> Integer.MAX_VALUE, true, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param nodeTestProvider Provides the test for each property name
+     * @param nodeValueExtractor Extracts the value of a selected node
+     * @param multiValueTest Tests whether a property may have multiple values
+     * @param multiValueLimit The maximum number of values to select for each 
+     * multi-value property
+     * @param stopWhenComplete If true, selection stops as soon as every requested
+     * property has a value and every multi-value property has reached its limit
+     * @param terminator Selection stops at the first node accepted by this test.
+     * May be null.
+     * @param maxNodes The maximum number of nodes to consume per selection
+     */
+    public SelectorImpl(
+            Function<String, Predicate<NODE>> nodeTestProvider, 
+            BiFunction<String, NODE, NODEVALUE> nodeValueExtractor, 
+            Predicate<String> multiValueTest,
+            ToIntFunction<String> multiValueLimit,
+            boolean stopWhenComplete,
+            Predicate<NODE> terminator,
+            int maxNodes) {
+        this(nodeTestProvider, nodeValueExtractor, multiValueTest, multiValueLimit, 
+                stopWhenComplete, terminator, maxNodes, SelectorMetrics.NONE);
+    }
+
+    /**
+     * @param nodeTestProvider Provides the test for each property name
+     * @param nodeValueExtractor Extracts the value of a selected node
+     * @param multiValueTest Tests whether a property may have multiple values
+     * @param multiValueLimit The maximum number of values to select for each 
+     * multi-value property
+     * @param stopWhenComplete If true, selection stops as soon as every requested
+     * property has a value and every multi-value property has reached its limit
+     * @param terminator Selection stops at the first node accepted by this test.
+     * May be null.
+     * @param maxNodes The maximum number of nodes to consume per selection
+     * @param metrics Receives the measurements of each selection
+     */
+    public SelectorImpl(
+            Function<String, Predicate<NODE>> nodeTestProvider, 
+            BiFunction<String, NODE, NODEVALUE> nodeValueExtractor, 
+            Predicate<String> multiValueTest,
+            ToIntFunction<String> multiValueLimit,
+            boolean stopWhenComplete,
+            Predicate<NODE> terminator,
+            int maxNodes,
+            SelectorMetrics metrics) {
         this.nodeTestProvider = Objects.requireNonNull(nodeTestProvider);
         this.nodeValueExtractor = Objects.requireNonNull(nodeValueExtractor);
         this.multiValueTest = Objects.requireNonNull(multiValueTest);
+        this.multiValueLimit = Objects.requireNonNull(multiValueLimit);
+        this.stopWhenComplete = stopWhenComplete;
+        this.terminator = terminator;
+        this.maxNodes = maxNodes;
+        this.metrics = Objects.requireNonNull(metrics);
     }
-
+    
+    /**
+     * The tests of the properties of a list of names, resolved once for all 
+     * the calls to select with those names.
+     */
+    private static final class Compiled<E> {
+        
+        /** The schema of the names, with the multi-value flags and limits of the selector */
+        private final PropertySchema schema;
+        /** The test of each property by schema id, or null if indexed */
+        private final Predicate<E> [] tests;
+        /** The index id of each property by schema id, or null if not indexed */
+        private final int [] indexIds;
+        
+        private Compiled(PropertySchema schema, Predicate<E> [] tests, int [] indexIds) {
+            this.schema = schema;
+            this.tests = tests;
+            this.indexIds = indexIds;
+        }
+    }
+    
+    /** The most keys to keep compiled; callers usually select with one or two lists of names */
+    static final int MAX_COMPILED = 16;
+    
+    /** 
+     * The compiled tests, by the list of names selected and by the schema 
+     * selected. Schemas do not override equals, so they are looked up by 
+     * identity, without allocating.
+     */
+    private transient Map<Object, Compiled<NODE>> compiled = new ConcurrentHashMap<>();
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.compiled = new ConcurrentHashMap<>();
+    }
+    
+    @Override
+    public PropertySchema schema(Collection<String> names) {
+        return this.compile(names).schema;
+    }
+    
+    /**
+     * Schemas of the same names have the same ids, so the tests compiled for 
+     * the names serve any schema of them, whatever its multi-value flags.
+     */
+    private Compiled<NODE> compile(PropertySchema schema) {
+        Compiled<NODE> output = compiled.get(schema);
+        if(output == null) {
+            output = this.compile(schema.getNames());
+            this.cache(schema, output);
+        }
+        return output;
+    }
+    
+    private Compiled<NODE> compile(Collection<String> names) {
+        final List<String> key = names instanceof List ? (List<String>)names : new ArrayList<>(names);
+        Compiled<NODE> output = compiled.get(key);
+        if(output != null) {
+            return output;
+        }
+        final PropertySchema schema = PropertySchema.of(names, multiValueTest, multiValueLimit);
+        final int size = schema.size();
+        if(nodeTestProvider instanceof AttributeIndex) {
+            final AttributeIndex<NODE> index = (AttributeIndex<NODE>)nodeTestProvider;
+            final int [] indexIds = new int[size];
+            for(int id=0; id<size; id++) {
+                indexIds[id] = index.getId(schema.getName(id));
+            }
+            output = new Compiled<>(schema, null, indexIds);
+        }else{
+            final Predicate<NODE> [] tests = new Predicate[size];
+            for(int id=0; id<size; id++) {
+                tests[id] = nodeTestProvider.apply(schema.getName(id));
+            }
+            output = new Compiled<>(schema, tests, null);
+        }
+        // Copied, as the caller may go on to modify the names
+        output = this.cache(new ArrayList<>(key), output);
+        this.cache(output.schema, output);
+        return output;
+    }
+    
+    /**
+     * @return The tests cached for the key, which are those specified unless 
+     * another thread cached some first
+     */
+    private Compiled<NODE> cache(Object key, Compiled<NODE> tests) {
+        // Evict arbitrary entries to stay bounded, e.g when every call has new names
+        final Iterator<Object> keys = compiled.keySet().iterator();
+        while(compiled.size() >= MAX_COMPILED && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+        final Compiled<NODE> existing = compiled.putIfAbsent(key, tests);
+        return existing == null ? tests : existing;
+    }
+    
     @Override
     public <RESULT> RESULT select(Iterator<NODE> nodeIterator, Collection<String> names, Collector<RESULT> collector) {
+        final Compiled<NODE> tests = this.compile(names);
+        return this.select(tests.schema, tests, nodeIterator, collector, 
+                new boolean[tests.schema.size()], new BitSet(), null);
+    }
+    
+    @Override
+    public <RESULT> RESULT select(Iterator<NODE> nodeIterator, PropertySchema schema, Collector<RESULT> collector) {
+        return this.select(schema, this.compile(schema), nodeIterator, collector, 
+                new boolean[schema.size()], new BitSet(), null);
+    }
+    
+    @Override
+    public SelectionContext select(Iterator<NODE> nodeIterator, SelectionContext context) {
+        final PropertySchema schema = context.reset().getSchema();
+        return this.select(schema, this.compile(schema), nodeIterator, 
+                context.getCollector(), context.getCompleteFlags(), context.getMatched(), 
+                context.getDocumentId());
+    }
+    
+    /**
+     * @param schema The properties to select, whose multi-value flags and limits apply
+     * @param compiled The tests of the names of the schema
+     * @param complete The completion flag of each property, by schema id. Overwritten.
+     * @param matched Scratch space for the properties matched by a node
+     * @param documentId The id of the document, or null
+     */
+    private <RESULT> RESULT select(PropertySchema schema, Compiled<NODE> compiled, Iterator<NODE> nodeIterator, 
+            Collector<RESULT> collector, boolean [] complete, BitSet matched, String documentId) {
+        
+        final Object event = JfrEvents.beginSelect();
+        
+        final boolean metered = metrics.isEnabled();
+        final long start = metered ? System.nanoTime() : 0L;
+        long evaluations = 0;
+        
+        int pending = 0;
+        for(int id=0; id<complete.length; id++) {
+            complete[id] = this.isComplete(collector, schema, id);
+            if(!complete[id]) {
+                ++pending;
+            }
+        }
+        
+        final AttributeIndex<NODE> index = compiled.indexIds == null ? 
+                null : (AttributeIndex<NODE>)nodeTestProvider;
      
         int consumed = 0;
+        int scanned = 0;
         
-        while(nodeIterator.hasNext()) {
+        while(!(stopWhenComplete && pending <= 0) && scanned < maxNodes && nodeIterator.hasNext()) {
 
             final NODE node = nodeIterator.next();
             
-            for(String name : names) {
+            ++scanned;
+            
+            if(this.isTerminator(node)) {
+                break;
+            }
+            
+            final int id = index == null ? 
+                    this.findMatch(compiled.tests, complete, node) :
+                    this.findMatch(index, compiled.indexIds, complete, matched, node);
+            
+            if(metered) {
+                evaluations += index == null ? this.countEvaluations(complete, id) : 1;
+            }
+            
+            if(id == -1) {
+                continue;
+            }
 
-                if(!this.multiValueTest.test(name) && this.isSelected(collector, name)) {
-                    continue;
-                }
-                
-                final Predicate<NODE> predicate = nodeTestProvider.apply(name);
-                
-                if(predicate.test(node)) {
-
-                    if(LOG.isLoggable(Level.FINER)) {
-                        LOG.log(Level.FINER, "{0} = {1}", new Object[]{name, node});
-                    }
-                    
-                    this.select(collector, name, node);
-                    
-                    ++consumed;
-                    
-                    break;
-                }
+            if(LOG.isLoggable(Level.FINER)) {
+                LOG.log(Level.FINER, "{0} = {1}", new Object[]{schema.getName(id), node});
+            }
+
+            if(this.select(collector, schema, id, node) && metered) {
+                metrics.propertySelected(schema.getName(id));
+            }
+
+            if(this.isComplete(collector, schema, id)) {
+                complete[id] = true;
+                --pending;
             }
+
+            ++consumed;
         }
 
-        LOG.log(Level.FINER, "Done selecting {0} nodes.", consumed);
+        if(LOG.isLoggable(Level.FINER)) {
+            LOG.log(Level.FINER, "Done selecting {0} of {1} nodes.", new Object[]{consumed, scanned});
+        }
+        
+        if(metered) {
+            metrics.selected(scanned, consumed, evaluations, System.nanoTime() - start);
+        }
+        
+        JfrEvents.commitSelect(event, documentId, complete.length, scanned, consumed);
         
         return this.flush(collector);
     }
+    
+    /**
+     * @return The number of tests evaluated by {@link #findMatch(java.util.function.Predicate[], boolean[], java.lang.Object)}
+     * in finding the specified id, i.e the incomplete properties up to and including it
+     */
+    private int countEvaluations(boolean [] complete, int id) {
+        final int end = id == -1 ? complete.length : id + 1;
+        int count = 0;
+        for(int i=0; i<end; i++) {
+            if(!complete[i]) {
+                ++count;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * @return The id of the first incomplete property, in schema order, whose
+     * test the node satisfies, or -1 if there is none
+     */
+    private int findMatch(Predicate<NODE> [] tests, boolean [] complete, NODE node) {
+        for(int id=0; id<tests.length; id++) {
+            if(!complete[id] && tests[id].test(node)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * The node is resolved to the set of properties it matches via the index.
+     * The first of those which is incomplete, in schema order, is returned;
+     * exactly as if each property's test were applied in turn.
+     * @return The id of the first incomplete property, in schema order, which
+     * the node matches, or -1 if there is none
+     */
+    private int findMatch(AttributeIndex<NODE> index, int [] ids, boolean [] complete, BitSet matched, NODE node) {
+        
+        matched.clear();
+
+        index.match(node, matched);
+
+        if(matched.isEmpty()) {
+            return -1;
+        }
+
+        for(int id=0; id<ids.length; id++) {
+            if(ids[id] != -1 && !complete[id] && matched.get(ids[id])) {
+                return id;
+            }
+        }
+        
+        return -1;
+    }
+    
+    private boolean isComplete(Collector collector, PropertySchema schema, int id) {
+        final Object value = this.get(collector, schema, id);
+        if(schema.isMultiValue(id)) {
+            final int limit = schema.getMultiValueLimit(id);
+            return limit != Integer.MAX_VALUE && this.getCount(value) >= limit;
+        }else{
+            return this.isSelected(value);
+        }
+    }
+
+    /**
+     * @return The value of the property, by id if the collector is addressed 
+     * by the same schema, otherwise by name
+     */
+    private Object get(Collector collector, PropertySchema schema, int id) {
+        if(collector instanceof IndexedCollector && ((IndexedCollector)collector).getSchema() == schema) {
+            return ((IndexedCollector)collector).get(id);
+        }
+        return collector.getOrDefault(schema.getName(id), null);
+    }
+
+    private void put(Collector collector, PropertySchema schema, int id, Object value) {
+        if(collector instanceof IndexedCollector && ((IndexedCollector)collector).getSchema() == schema) {
+            ((IndexedCollector)collector).put(id, value);
+        }else{
+            collector.put(schema.getName(id), value);
+        }
+    }
+
+    private boolean isTerminator(NODE node) {
+        return terminator != null && terminator.test(node);
+    }
+
+    public int getCount(Collector collector, String propertyName) {
+        return this.getCount(collector.getOrDefault(propertyName, null));
+    }
+
+    private int getCount(Object value) {
+        if(value instanceof Collection) {
+            return ((Collection)value).size();
+        }else{
+            return value == null ? 0 : 1;
+        }
+    }
 
     public boolean isSelected(Collector collector, String propertyName) {
-        final Object value = collector.getOrDefault(propertyName, null);
+        return this.isSelected(collector.getOrDefault(propertyName, null));
+    }
+
+    private boolean isSelected(Object value) {
         if(value instanceof Collection) {
             return !((Collection)value).isEmpty();
         }else{
@@ -98,36 +443,68 @@ public class SelectorImpl<NODE, NODEVALUE> implements Serializable, Selector<NOD
     }
 
     public boolean select(Collector collector, String propertyName, NODE node) {
-        
         final Object cached = collector.getOrDefault(propertyName, null);
+        final Object update = this.update(propertyName, this.multiValueTest.test(propertyName), cached, node);
+        if(update == REJECTED) {
+            return false;
+        }
+        if(update != cached) {
+            collector.put(propertyName, update);
+        }
+        return true;
+    }
+    
+    private boolean select(Collector collector, PropertySchema schema, int id, NODE node) {
+        final Object cached = this.get(collector, schema, id);
+        final Object update = this.update(schema.getName(id), schema.isMultiValue(id), cached, node);
+        if(update == REJECTED) {
+            return false;
+        }
+        if(update != cached) {
+            this.put(collector, schema, id, update);
+        }
+        return true;
+    }
+    
+    /**
+     * @return The value to put, the cached value itself if the node value was
+     * added to it, or {@link #REJECTED} if the property may not have another value
+     */
+    private Object update(String propertyName, boolean multiValue, Object cached, NODE node) {
         
         final NODEVALUE value = this.nodeValueExtractor.apply(propertyName, node);
         
         if(cached == null) {
             
-            if(this.multiValueTest.test(propertyName)) {
-                final Set<NODEVALUE> valueSet = new LinkedHashSet<>();
+            if(multiValue) {
+                final Set<NODEVALUE> valueSet = new ArraySet<>();
                 valueSet.add(value);
-                collector.put(propertyName, valueSet);
-                LOG.finer(() -> "Added to a new Set: " + propertyName + '=' + value);
+                if(LOG.isLoggable(Level.FINER)) {
+                    LOG.log(Level.FINER, "Added to a new Set: {0}={1}", new Object[]{propertyName, value});
+                }
+                return valueSet;
             }else{
-                collector.put(propertyName, value);
-                LOG.finer(() -> "Added: " + propertyName + '=' + value);
+                if(LOG.isLoggable(Level.FINER)) {
+                    LOG.log(Level.FINER, "Added: {0}={1}", new Object[]{propertyName, value});
+                }
+                return value;
             }
         }else{
             
-            if(this.multiValueTest.test(propertyName)) {
+            if(multiValue) {
                 final Collection<NODEVALUE> valueSet = ((Collection<NODEVALUE>)cached);
                 valueSet.add(value);
-                LOG.finer(() -> "Added to a Set of " + (valueSet.size() - 1) + ": " + propertyName + '=' + value);
+                if(LOG.isLoggable(Level.FINER)) {
+                    LOG.log(Level.FINER, "Added to a Set of {0}: {1}={2}", 
+                            new Object[]{valueSet.size() - 1, propertyName, value});
+                }
+                return cached;
             }else{
                 LOG.warning(() -> "Found multiple values for a non multi-value parameter: " + 
                         propertyName + ", while extracting meta-nodes data");
-                return false;
+                return REJECTED;
             }
         }
-        
-        return true;
     }
     
     public <RESULT> RESULT flush(Collector<RESULT> collector) {
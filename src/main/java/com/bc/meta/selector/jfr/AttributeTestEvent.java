@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The creation of an attribute test by an {@link com.bc.meta.selector.AttributeTestProvider}.
+ */
+@Name("com.bc.meta.selector.AttributeTestCreate")
+@Label("Attribute Test Create")
+@Category("bcmetaselector")
+@Description("Creation of an attribute test, e.g compilation of its regex")
+final class AttributeTestEvent extends jdk.jfr.Event {
+
+    @Label("Attribute Name")
+    private String attributeName;
+
+    @Label("Attribute Value")
+    private String attributeValue;
+
+    @Label("Regex")
+    private boolean regex;
+
+    /**
+     * Commits this event, if it is to be recorded
+     * @param attributeName The attribute name of the test
+     * @param attributeValue The attribute value of the test
+     * @param regex Whether the name and value are regular expressions
+     */
+    void commit(String attributeName, String attributeValue, boolean regex) {
+        if(this.shouldCommit()) {
+            this.attributeName = attributeName;
+            this.attributeValue = attributeValue;
+            this.regex = regex;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A call to parse a config object. The configs it extends or includes are 
+ * parsed within it, each in an event of its own.
+ */
+@Name("com.bc.meta.selector.ConfigParse")
+@Label("Config Parse")
+@Category("bcmetaselector")
+@Description("Parsing of a config object, including the configs it extends or includes")
+final class ConfigParseEvent extends jdk.jfr.Event {
+
+    @Label("Location")
+    private String location;
+
+    @Label("Object Name")
+    private String objectName;
+
+    @Label("Cached")
+    @Description("Whether the config object was found in the cache")
+    private boolean cached;
+
+    @Label("Properties")
+    private int properties;
+
+    /**
+     * Commits this event, if it is to be recorded
+     * @param location The location of the config
+     * @param objectName The name of the config object, or null for the first
+     * @param cached Whether the config object was found in the cache
+     * @param properties The number of properties of the config object
+     */
+    void commit(String location, String objectName, boolean cached, int properties) {
+        if(this.shouldCommit()) {
+            this.location = location;
+            this.objectName = objectName;
+            this.cached = cached;
+            this.properties = properties;
+            this.commit();
+        }
+    }
+}
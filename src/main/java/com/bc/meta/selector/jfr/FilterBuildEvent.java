@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A call to build the filters of properties, from config files or a snapshot.
+ */
+@Name("com.bc.meta.selector.FilterBuild")
+@Label("Filter Build")
+@Category("bcmetaselector")
+@Description("Building of the filters of properties")
+final class FilterBuildEvent extends jdk.jfr.Event {
+
+    @Label("Properties")
+    private int properties;
+
+    @Label("Config Files")
+    private int configFiles;
+
+    @Label("Snapshot")
+    @Description("The location of the snapshot built from, if any")
+    private String snapshot;
+
+    @Label("Indexed")
+    @Description("Whether the rules were indexed by attribute")
+    private boolean indexed;
+
+    /**
+     * Commits this event, if it is to be recorded
+     * @param properties The number of property names
+     * @param configFiles The number of config files
+     * @param snapshot The location of the snapshot built from, or null
+     * @param indexed Whether the rules were indexed by attribute
+     */
+    void commit(int properties, int configFiles, String snapshot, boolean indexed) {
+        if(this.shouldCommit()) {
+            this.properties = properties;
+            this.configFiles = configFiles;
+            this.snapshot = snapshot;
+            this.indexed = indexed;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.jfr;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The only access of the library to its JFR events.
+ * <p>
+ * The events extend <code>jdk.jfr.Event</code>, so loading them fails on 
+ * runtimes without the <code>jdk.jfr</code> module, e.g jlinked images which
+ * leave it out. This class refers to them only after checking that the module 
+ * is present. Where it is absent, nothing is recorded.
+ * </p>
+ * <p>
+ * Each <code>begin</code> method returns an opaque event, or null if it is not 
+ * to be recorded, to be passed to the matching <code>commit</code> method.
+ * </p>
+ */
+public final class JfrEvents {
+
+    private transient static final Logger LOG = Logger.getLogger(JfrEvents.class.getName());
+
+    private static final boolean AVAILABLE = isJfrPresent();
+
+    private JfrEvents() { }
+
+    /**
+     * @return true if the <code>jdk.jfr</code> module is present, so that 
+     * events may be recorded
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Selection is not to allocate per document, so no event is created unless 
+     * select events are being recorded.
+     * @return A begun select event, or null
+     */
+    public static Object beginSelect() {
+        return AVAILABLE ? SelectEvent.beginIfEnabled() : null;
+    }
+
+    /**
+     * @param event The event returned by {@link #beginSelect()}, may be null
+     * @param documentId The id of the document, or null
+     * @param properties The number of properties selected for
+     * @param nodesScanned The number of nodes read
+     * @param nodesSelected The number of nodes whose values were selected
+     */
+    public static void commitSelect(Object event, String documentId, 
+            int properties, int nodesScanned, int nodesSelected) {
+        if(event != null) {
+            ((SelectEvent)event).commit(documentId, properties, nodesScanned, nodesSelected);
+        }
+    }
+
+    /**
+     * @return A begun filter build event, or null
+     */
+    public static Object beginFilterBuild() {
+        if(!AVAILABLE) {
+            return null;
+        }
+        final FilterBuildEvent event = new FilterBuildEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event The event returned by {@link #beginFilterBuild()}, may be null
+     * @param properties The number of property names
+     * @param configFiles The number of config files
+     * @param snapshot The location of the snapshot built from, or null
+     * @param indexed Whether the rules were indexed by attribute
+     */
+    public static void commitFilterBuild(Object event, 
+            int properties, int configFiles, String snapshot, boolean indexed) {
+        if(event != null) {
+            ((FilterBuildEvent)event).commit(properties, configFiles, snapshot, indexed);
+        }
+    }
+
+    /**
+     * @return A begun config parse event, or null
+     */
+    public static Object beginConfigParse() {
+        if(!AVAILABLE) {
+            return null;
+        }
+        final ConfigParseEvent event = new ConfigParseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event The event returned by {@link #beginConfigParse()}, may be null
+     * @param location The location of the config
+     * @param objectName The name of the config object, or null for the first
+     * @param cached Whether the config object was found in the cache
+     * @param properties The number of properties of the config object
+     */
+    public static void commitConfigParse(Object event, 
+            String location, String objectName, boolean cached, int properties) {
+        if(event != null) {
+            ((ConfigParseEvent)event).commit(location, objectName, cached, properties);
+        }
+    }
+
+    /**
+     * @return A begun attribute test creation event, or null
+     */
+    public static Object beginAttributeTest() {
+        if(!AVAILABLE) {
+            return null;
+        }
+        final AttributeTestEvent event = new AttributeTestEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event The event returned by {@link #beginAttributeTest()}, may be null
+     * @param attributeName The attribute name of the test
+     * @param attributeValue The attribute value of the test
+     * @param regex Whether the name and value are regular expressions
+     */
+    public static void commitAttributeTest(Object event, 
+            String attributeName, String attributeValue, boolean regex) {
+        if(event != null) {
+            ((AttributeTestEvent)event).commit(attributeName, attributeValue, regex);
+        }
+    }
+
+    private static boolean isJfrPresent() {
+        final boolean present = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+        if(!present && LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Module jdk.jfr is not present, no JFR events will be recorded");
+        }
+        return present;
+    }
+}
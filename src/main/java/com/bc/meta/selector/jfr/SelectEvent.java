@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A call to select, for one document.
+ */
+@Name("com.bc.meta.selector.Select")
+@Label("Select")
+@Category("bcmetaselector")
+@Description("Selection of the properties of a document")
+@StackTrace(false)
+final class SelectEvent extends jdk.jfr.Event {
+
+    private static final EventType TYPE = EventType.getEventType(SelectEvent.class);
+
+    @Label("Document Id")
+    @Description("The id of the document, when given")
+    private String documentId;
+
+    @Label("Properties")
+    private int properties;
+
+    @Label("Nodes Scanned")
+    private int nodesScanned;
+
+    @Label("Nodes Selected")
+    private int nodesSelected;
+
+    /**
+     * Selection is not to allocate per document, so the event is only created
+     * while it is being recorded.
+     * @return A new event, begun, if select events are being recorded, otherwise null
+     */
+    static SelectEvent beginIfEnabled() {
+        if(!TYPE.isEnabled()) {
+            return null;
+        }
+        final SelectEvent event = new SelectEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits this event, if it is to be recorded
+     * @param documentId The id of the document, or null
+     * @param properties The number of properties selected for
+     * @param nodesScanned The number of nodes read
+     * @param nodesSelected The number of nodes whose values were selected
+     */
+    void commit(String documentId, int properties, int nodesScanned, int nodesSelected) {
+        if(this.shouldCommit()) {
+            this.documentId = documentId;
+            this.properties = properties;
+            this.nodesScanned = nodesScanned;
+            this.nodesSelected = nodesSelected;
+            this.commit();
+        }
+    }
+}
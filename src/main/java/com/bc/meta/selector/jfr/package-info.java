@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+/**
+ * Java Flight Recorder events for selection, filter building, config parsing
+ * and attribute test creation, in the category <code>bcmetaselector</code>.
+ * <p>
+ * Events cost next to nothing while not recorded, so they may be left on in
+ * production recordings, e.g:
+ * </p>
+ * <pre>
+ * java -XX:StartFlightRecording=settings=profile ...
+ * jfr print --categories bcmetaselector recording.jfr
+ * </pre>
+ * <p>
+ * The library records events only via {@link com.bc.meta.selector.jfr.JfrEvents}, 
+ * so it runs without the <code>jdk.jfr</code> module.
+ * </p>
+ */
+package com.bc.meta.selector.jfr;
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bc.meta.selector.scanner;
+
+import com.bc.meta.selector.AttributeProvider;
+import com.bc.meta.selector.AttributeTestProvider;
+import com.bc.meta.selector.jfr.JfrEvents;
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * The attribute tests, attribute access and node value extraction for
+ * {@link HeadTag}s.
+ * <p>
+ * The value of a node is the <code>content</code> attribute of <code>meta</code>
+ * tags, the <code>href</code> attribute of <code>link</code> tags and the text
+ * of <code>title</code> tags.
+ * </p>
+ * <p>Instances are stateless and may be shared between threads.</p>
+ */
+public class AttributeContextHeadTag implements AttributeTestProvider<HeadTag>,
+        AttributeProvider<HeadTag>, BiFunction<String, HeadTag, String>, Serializable {
+
+    private static final class HasAttribute implements Predicate<HeadTag>, Serializable {
+        private final String name;
+        private final String value;
+        private HasAttribute(String name, String value) {
+            this.name = Objects.requireNonNull(name);
+            this.value = Objects.requireNonNull(value);
+        }
+        @Override
+        public boolean test(HeadTag tag) {
+            return value.equals(tag.getAttributeValue(name));
+        }
+        @Override
+        public String toString() {
+            return "[" + name + '=' + value + ']';
+        }
+    }
+
+    private static final class HasAttributeRegex implements Predicate<HeadTag>, Serializable {
+        private final Pattern namePattern;
+        private final Pattern valuePattern;
+        private HasAttributeRegex(String nameRegex, String valueRegex) {
+            this.namePattern = Pattern.compile(nameRegex, Pattern.CASE_INSENSITIVE);
+            this.valuePattern = Pattern.compile(valueRegex, Pattern.CASE_INSENSITIVE);
+        }
+        @Override
+        public boolean test(HeadTag tag) {
+            for(int i=0; i<tag.getAttributeCount(); i++) {
+                if(this.find(tag.getAttributeName(i), namePattern) &&
+                        this.find(tag.getAttributeValue(i), valuePattern)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        private boolean find(String toFind, Pattern pattern) {
+            return toFind != null && !toFind.isEmpty() && pattern.matcher(toFind).find();
+        }
+        @Override
+        public String toString() {
+            return "[" + namePattern + "~=" + valuePattern + ']';
+        }
+    }
+
+    @Override
+    public Predicate<HeadTag> getAttributeTest(String attributeName, String attributeValue) {
+        final Object event = JfrEvents.beginAttributeTest();
+        final Predicate<HeadTag> test = new HasAttribute(attributeName, attributeValue);
+        JfrEvents.commitAttributeTest(event, attributeName, attributeValue, false);
+        return test;
+    }
+
+    @Override
+    public Predicate<HeadTag> getAttributeRegexTest(String attributeName, String attributeValue) {
+        final Object event = JfrEvents.beginAttributeTest();
+        final Predicate<HeadTag> test = new HasAttributeRegex(attributeName, attributeValue);
+        JfrEvents.commitAttributeTest(event, attributeName, attributeValue, true);
+        return test;
+    }
+
+    @Override
+    public int getAttributeCount(HeadTag node) {
+        return node.getAttributeCount();
+    }
+
+    @Override
+    public String getAttributeName(HeadTag node, int index) {
+        return node.getAttributeName(index);
+    }
+
+    @Override
+    public String getAttributeValue(HeadTag node, int index) {
+        return node.getAttributeValue(index);
+    }
+
+    @Override
+    public String apply(String propertyName, HeadTag node) {
+        if(node == null) {
+            return null;
+        }
+        switch(node.getName()) {
+            case "title": return node.getText();
+            case "link": return node.getAttributeValue("href");
+            default: return node.getAttributeValue("content");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bc.meta.selector.scanner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes the character references commonly found in head attribute values.
+ * Numeric references and the basic named references are decoded, any other
+ * reference is left as is.
+ */
+final class Entities {
+
+    private static final Map<String, String> NAMED = new HashMap<>();
+    static{
+        NAMED.put("amp", "&");
+        NAMED.put("lt", "<");
+        NAMED.put("gt", ">");
+        NAMED.put("quot", "\"");
+        NAMED.put("apos", "'");
+        NAMED.put("nbsp", "\u00A0");
+        NAMED.put("copy", "\u00A9");
+        NAMED.put("reg", "\u00AE");
+        NAMED.put("ndash", "\u2013");
+        NAMED.put("mdash", "\u2014");
+        NAMED.put("lsquo", "\u2018");
+        NAMED.put("rsquo", "\u2019");
+        NAMED.put("ldquo", "\u201C");
+        NAMED.put("rdquo", "\u201D");
+        NAMED.put("hellip", "\u2026");
+    }
+
+    private Entities() { }
+
+    static String decode(String s) {
+
+        int amp = s.indexOf('&');
+        if(amp == -1) {
+            return s;
+        }
+
+        final StringBuilder builder = new StringBuilder(s.length());
+        int from = 0;
+
+        while(amp != -1) {
+
+            builder.append(s, from, amp);
+
+            final int semi = s.indexOf(';', amp + 1);
+            final String replacement = semi == -1 || semi - amp > 10 ? null :
+                    resolve(s.substring(amp + 1, semi));
+
+            if(replacement == null) {
+                builder.append('&');
+                from = amp + 1;
+            }else{
+                builder.append(replacement);
+                from = semi + 1;
+            }
+
+            amp = s.indexOf('&', from);
+        }
+
+        return builder.append(s, from, s.length()).toString();
+    }
+
+    private static String resolve(String ref) {
+        if(ref.length() > 1 && ref.charAt(0) == '#') {
+            try{
+                final int codePoint = ref.charAt(1) == 'x' || ref.charAt(1) == 'X' ?
+                        Integer.parseInt(ref.substring(2), 16) : Integer.parseInt(ref.substring(1));
+                return Character.isValidCodePoint(codePoint) ? new String(Character.toChars(codePoint)) : null;
+            }catch(NumberFormatException e) {
+                return null;
+            }
+        }
+        return NAMED.get(ref);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bc.meta.selector.scanner;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A lightweight record of a start tag found in the head of a HTML document.
+ * <p>Tag and attribute names are in lower case, attribute values are decoded.</p>
+ */
+public final class HeadTag implements Serializable {
+
+    private static final String [] NONE = new String[0];
+
+    private final String name;
+
+    private final String [] attributeNames;
+
+    private final String [] attributeValues;
+
+    private final String text;
+
+    public HeadTag(String name) {
+        this(name, NONE, NONE, null);
+    }
+
+    public HeadTag(String name, String [] attributeNames, String [] attributeValues, String text) {
+        this.name = Objects.requireNonNull(name);
+        this.attributeNames = Objects.requireNonNull(attributeNames);
+        this.attributeValues = Objects.requireNonNull(attributeValues);
+        this.text = text;
+        if(attributeNames.length != attributeValues.length) {
+            throw new IllegalArgumentException("Mismatched attribute arrays: names " +
+                    attributeNames.length + ", values " + attributeValues.length);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAttributeCount() {
+        return attributeNames.length;
+    }
+
+    public String getAttributeName(int i) {
+        return attributeNames[i];
+    }
+
+    public String getAttributeValue(int i) {
+        return attributeValues[i];
+    }
+
+    /**
+     * @param attributeName The name of the attribute whose value is to be returned
+     * @return The value of the first attribute having the specified name
+     * (case insensitive), or null if there is no such attribute
+     */
+    public String getAttributeValue(String attributeName) {
+        for(int i=0; i<attributeNames.length; i++) {
+            if(attributeNames[i].equalsIgnoreCase(attributeName)) {
+                return attributeValues[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The text content of elements with text content in the head,
+     * i.e the <code>title</code> element, otherwise null
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder().append('<').append(name);
+        for(int i=0; i<attributeNames.length; i++) {
+            builder.append(' ').append(attributeNames[i]).append("=\"").append(attributeValues[i]).append('"');
+        }
+        builder.append('>');
+        if(text != null) {
+            builder.append(text).append("</").append(name).append('>');
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 37 * hash + name.hashCode();
+        hash = 37 * hash + Arrays.hashCode(attributeNames);
+        hash = 37 * hash + Arrays.hashCode(attributeValues);
+        hash = 37 * hash + Objects.hashCode(text);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final HeadTag other = (HeadTag) obj;
+        return name.equals(other.name) &&
+                Arrays.equals(attributeNames, other.attributeNames) &&
+                Arrays.equals(attributeValues, other.attributeValues) &&
+                Objects.equals(text, other.text);
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bc.meta.selector.scanner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Tokenizes HTML into {@link HeadTag}s without building a DOM.
+ * <p>
+ * Only start tags are returned; comments, doctypes, end tags and the content
+ * of <code>script</code>, <code>style</code>, <code>noscript</code> and
+ * <code>template</code> elements are skipped. The text of <code>title</code>
+ * elements is recorded.
+ * </p>
+ * <p>
+ * By default scanning stops at the end of the head, i.e at <code>&lt;/head&gt;</code>,
+ * at <code>&lt;body&gt;</code>, or at the first tag or text which may only appear
+ * in the body; whichever comes first. When reading from a {@link Reader},
+ * nothing after that point is read beyond the current buffer.
+ * </p>
+ * <p>Instances are not thread safe.</p>
+ */
+public class HeadTagScanner implements Iterator<HeadTag> {
+
+    private static final Set<String> HEAD_ELEMENTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "html", "head", "meta", "link", "title", "base", "style", "script", "noscript", "template", "basefont", "bgsound")));
+
+    private static final Set<String> RAW_TEXT_ELEMENTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "script", "style", "noscript", "template", "textarea", "xmp")));
+
+    private static final String [] NONE = new String[0];
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CharSequence input;
+
+    private final Reader reader;
+
+    private final StringBuilder buffer;
+
+    private final char [] chunk;
+
+    private final boolean stopAtBody;
+
+    private boolean eof;
+
+    private int pos;
+
+    private boolean done;
+
+    private HeadTag next;
+
+    public HeadTagScanner(CharSequence input) {
+        this(input, true);
+    }
+
+    /**
+     * @param input The HTML to scan
+     * @param stopAtBody If true, scanning stops at the end of the head, otherwise
+     * the start tags of the entire document are returned
+     */
+    public HeadTagScanner(CharSequence input, boolean stopAtBody) {
+        this.input = Objects.requireNonNull(input);
+        this.reader = null;
+        this.buffer = null;
+        this.chunk = null;
+        this.eof = true;
+        this.stopAtBody = stopAtBody;
+    }
+
+    public HeadTagScanner(Reader reader) {
+        this(reader, true);
+    }
+
+    /**
+     * An <code>IOException</code> thrown by the reader while scanning is 
+     * rethrown as an {@link UncheckedIOException}.
+     * @param reader The reader of the HTML to scan. The reader is not closed.
+     * @param stopAtBody If true, scanning stops at the end of the head, otherwise
+     * the start tags of the entire document are returned
+     */
+    public HeadTagScanner(Reader reader, boolean stopAtBody) {
+        this.reader = Objects.requireNonNull(reader);
+        this.buffer = new StringBuilder(BUFFER_SIZE);
+        this.input = buffer;
+        this.chunk = new char[BUFFER_SIZE];
+        this.eof = false;
+        this.stopAtBody = stopAtBody;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(next == null && !done) {
+            next = this.scan();
+            if(next == null) {
+                done = true;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public HeadTag next() {
+        if(!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final HeadTag result = next;
+        next = null;
+        return result;
+    }
+
+    private HeadTag scan() {
+
+        this.compact();
+
+        while(true) {
+
+            final int c = this.charAt(pos);
+
+            if(c == -1) {
+                return null;
+            }
+
+            if(c != '<') {
+                if(stopAtBody && !Character.isWhitespace(c) && c != 0xFEFF) {
+                    // Text content other than whitespace only occurs in the body
+                    return null;
+                }
+                ++pos;
+                continue;
+            }
+
+            final int c1 = this.charAt(pos + 1);
+
+            if(c1 == '!') {
+                pos = this.startsWith(pos, "<!--") ? this.indexAfter(pos + 4, "-->") : this.indexAfter(pos + 2, ">");
+            }else if(c1 == '?') {
+                pos = this.indexAfter(pos + 2, ">");
+            }else if(c1 == '/') {
+                final int nameEnd = this.nameEnd(pos + 2);
+                final String name = this.substring(pos + 2, nameEnd).toLowerCase();
+                pos = this.indexAfter(nameEnd, ">");
+                if(stopAtBody && ("head".equals(name) || "html".equals(name) || "body".equals(name))) {
+                    return null;
+                }
+            }else if(this.isLetter(c1)) {
+                final HeadTag tag = this.readStartTag();
+                if(stopAtBody && !HEAD_ELEMENTS.contains(tag.getName())) {
+                    return null;
+                }
+                return tag;
+            }else{
+                // A '<' which does not start markup is text
+                if(stopAtBody) {
+                    return null;
+                }
+                ++pos;
+            }
+        }
+    }
+
+    private HeadTag readStartTag() {
+
+        int i = pos + 1;
+        final int nameEnd = this.nameEnd(i);
+        final String name = this.substring(i, nameEnd).toLowerCase();
+        i = nameEnd;
+
+        List<String> names = null;
+        List<String> values = null;
+
+        while(true) {
+
+            int c = this.charAt(i);
+            while(c != -1 && (Character.isWhitespace(c) || c == '/')) {
+                c = this.charAt(++i);
+            }
+            if(c == -1) {
+                break;
+            }
+            if(c == '>') {
+                ++i;
+                break;
+            }
+
+            int end = i;
+            while((c = this.charAt(end)) != -1 && !Character.isWhitespace(c) && c != '=' && c != '>' && c != '/') {
+                ++end;
+            }
+            if(end == i) {
+                // e.g a stray '=', skip it
+                ++i;
+                continue;
+            }
+            final String attrName = this.substring(i, end).toLowerCase();
+            i = end;
+
+            while((c = this.charAt(i)) != -1 && Character.isWhitespace(c)) {
+                ++i;
+            }
+
+            String attrValue = "";
+            if(c == '=') {
+                ++i;
+                while((c = this.charAt(i)) != -1 && Character.isWhitespace(c)) {
+                    ++i;
+                }
+                if(c == '"' || c == '\'') {
+                    end = i + 1;
+                    while(this.charAt(end) != -1 && this.charAt(end) != c) {
+                        ++end;
+                    }
+                    attrValue = this.substring(i + 1, end);
+                    i = this.charAt(end) == -1 ? end : end + 1;
+                }else{
+                    end = i;
+                    while((c = this.charAt(end)) != -1 && !Character.isWhitespace(c) && c != '>') {
+                        ++end;
+                    }
+                    attrValue = this.substring(i, end);
+                    i = end;
+                }
+            }
+
+            if(names == null) {
+                names = new ArrayList<>(4);
+                values = new ArrayList<>(4);
+            }
+            // As with browsers, the first of duplicate attributes wins
+            if(!names.contains(attrName)) {
+                names.add(attrName);
+                values.add(Entities.decode(attrValue));
+            }
+        }
+
+        pos = i;
+
+        String text = null;
+        if("title".equals(name)) {
+            final int end = this.indexOfEndTag(pos, name);
+            text = Entities.decode(this.substring(pos, end)).replaceAll("\\s+", " ").trim();
+            pos = end;
+        }else if(RAW_TEXT_ELEMENTS.contains(name)) {
+            pos = this.indexOfEndTag(pos, name);
+        }
+
+        return names == null ? new HeadTag(name, NONE, NONE, text) :
+                new HeadTag(name, names.toArray(NONE), values.toArray(NONE), text);
+    }
+
+    private boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private int nameEnd(int i) {
+        int c;
+        while((c = this.charAt(i)) != -1 && !Character.isWhitespace(c) && c != '>' && c != '/') {
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * @return The index of the end tag of the named element or the end of input
+     */
+    private int indexOfEndTag(int from, String name) {
+        int i = from;
+        while(true) {
+            final int c = this.charAt(i);
+            if(c == -1) {
+                return i;
+            }
+            if(c == '<' && this.charAt(i + 1) == '/' && this.startsWithIgnoreCase(i + 2, name)) {
+                final int after = this.charAt(i + 2 + name.length());
+                if(after == -1 || after == '>' || after == '/' || Character.isWhitespace(after)) {
+                    return i;
+                }
+            }
+            ++i;
+        }
+    }
+
+    /**
+     * @return The index after the first occurrence of the specified string,
+     * or the end of input if there is no such occurrence
+     */
+    private int indexAfter(int from, String s) {
+        int i = from;
+        while(this.charAt(i) != -1) {
+            if(this.startsWith(i, s)) {
+                return i + s.length();
+            }
+            ++i;
+        }
+        return i;
+    }
+
+    private boolean startsWith(int i, String s) {
+        for(int k=0; k<s.length(); k++) {
+            if(this.charAt(i + k) != s.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWithIgnoreCase(int i, String s) {
+        for(int k=0; k<s.length(); k++) {
+            final int c = this.charAt(i + k);
+            if(c == -1 || Character.toLowerCase((char)c) != s.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String substring(int start, int end) {
+        return input.subSequence(start, Math.min(end, input.length())).toString();
+    }
+
+    /**
+     * @return The char at the specified index, reading more input if required,
+     * or -1 if the end of input comes before the index
+     */
+    private int charAt(int i) {
+        while(i >= input.length()) {
+            if(!this.fill()) {
+                return -1;
+            }
+        }
+        return input.charAt(i);
+    }
+
+    private boolean fill() {
+        if(eof) {
+            return false;
+        }
+        try{
+            final int n = reader.read(chunk);
+            if(n == -1) {
+                eof = true;
+                return false;
+            }
+            buffer.append(chunk, 0, n);
+            return true;
+        }catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Discards the consumed part of the buffer, when reading from a Reader */
+    private void compact() {
+        if(buffer != null && pos >= BUFFER_SIZE) {
+            buffer.delete(0, pos);
+            pos = 0;
+        }
+    }
+}
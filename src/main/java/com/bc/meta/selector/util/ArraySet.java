@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An insertion ordered Set backed by an array, for the few values of a 
+ * multi-value property.
+ * <p>
+ * Up to {@value #HASH_THRESHOLD} elements, membership is tested by a linear 
+ * scan of the array, which for a handful of elements is cheaper than hashing 
+ * and allocates nothing per element. Above that, a hash set of the elements 
+ * is kept alongside the array. Null elements are permitted.
+ * </p>
+ * <p>Instances are not thread safe.</p>
+ * @param <E> The type of the elements
+ */
+public class ArraySet<E> extends AbstractSet<E> implements Serializable {
+
+    public static final int HASH_THRESHOLD = 8;
+
+    private static final Object [] NONE = new Object[0];
+
+    private Object [] elements;
+
+    private int size;
+
+    /** The elements, when there are more than the threshold, otherwise null */
+    private Set<Object> index;
+
+    private transient int modCount;
+
+    public ArraySet() {
+        this.elements = NONE;
+    }
+
+    public ArraySet(int initialCapacity) {
+        this.elements = initialCapacity == 0 ? NONE : new Object[initialCapacity];
+    }
+
+    public ArraySet(Collection<? extends E> c) {
+        this(c.size());
+        this.addAll(c);
+    }
+
+    @Override
+    public boolean add(E e) {
+        if(this.contains(e)) {
+            return false;
+        }
+        if(size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(4, size * 2));
+        }
+        elements[size++] = e;
+        if(index != null) {
+            index.add(e);
+        }else if(size > HASH_THRESHOLD) {
+            index = new HashSet<>(Arrays.asList(elements).subList(0, size));
+        }
+        ++modCount;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if(index != null) {
+            return index.contains(o);
+        }
+        return this.indexOf(o) != -1;
+    }
+
+    private int indexOf(Object o) {
+        for(int i=0; i<size; i++) {
+            if(Objects.equals(o, elements[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        final int i = this.indexOf(o);
+        if(i == -1) {
+            return false;
+        }
+        this.removeAt(i);
+        return true;
+    }
+
+    private void removeAt(int i) {
+        final Object removed = elements[i];
+        System.arraycopy(elements, i + 1, elements, i, size - i - 1);
+        elements[--size] = null;
+        if(index != null) {
+            index.remove(removed);
+        }
+        ++modCount;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+        index = null;
+        ++modCount;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int next;
+            private int last = -1;
+            private int expectedModCount = modCount;
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+            @Override
+            public E next() {
+                if(modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if(next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return (E)elements[last];
+            }
+            @Override
+            public void remove() {
+                if(last == -1) {
+                    throw new IllegalStateException();
+                }
+                if(modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                ArraySet.this.removeAt(last);
+                next = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bc.meta.selector.util;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A single attribute rule of a config property e.g <code>{"property":"og:title"}</code>
+ * <p>
+ * A node satisfies the rule when it satisfies all the rule's conditions. Each
+ * condition is an attribute name and an attribute value, where values of format
+ * <code>regex(...)</code> are regular expressions.
+ * </p>
+ * <p>
+ * Rules are also read-only maps of attribute name to the attribute value as
+ * written in the config, i.e including any <code>regex(...)</code> wrapper, so 
+ * they may stand in for the raw JSON objects of the config.
+ * </p>
+ */
+public final class AttributeRule extends AbstractMap<String, String> implements Serializable {
+
+    public static final String REGEX_PREFIX = "regex(";
+
+    public static final String REGEX_SUFFIX = ")";
+
+    private final String [] names;
+
+    private final String [] values;
+
+    private final boolean [] regex;
+
+    public AttributeRule(String [] names, String [] values, boolean [] regex) {
+        if(names.length != values.length || names.length != regex.length) {
+            throw new IllegalArgumentException("Mismatched condition arrays: names " +
+                    names.length + ", values " + values.length + ", regex " + regex.length);
+        }
+        this.names = Arrays.copyOf(names, names.length);
+        this.values = Arrays.copyOf(values, values.length);
+        this.regex = Arrays.copyOf(regex, regex.length);
+        for(int i=1; i<names.length; i++) {
+            for(int j=0; j<i; j++) {
+                if(names[i].equals(names[j])) {
+                    throw new IllegalArgumentException("Duplicate attribute name: " + names[i]);
+                }
+            }
+        }
+    }
+
+    public static AttributeRule of(Map attrCfg) {
+        if(attrCfg instanceof AttributeRule) {
+            return (AttributeRule)attrCfg;
+        }
+        final Set keys = attrCfg.keySet();
+        final String [] names = new String[keys.size()];
+        final String [] values = new String[names.length];
+        final boolean [] regex = new boolean[names.length];
+        int i = 0;
+        for(Object k : keys) {
+            final String val = Objects.requireNonNull(attrCfg.get(k)).toString();
+            names[i] = k.toString();
+            regex[i] = isRegex(val);
+            values[i] = regex[i] ?
+                    val.substring(REGEX_PREFIX.length(), val.length() - REGEX_SUFFIX.length()) : val;
+            ++i;
+        }
+        return new AttributeRule(names, values, regex);
+    }
+
+    public static boolean isRegex(String value) {
+        return value.startsWith(REGEX_PREFIX) && value.endsWith(REGEX_SUFFIX);
+    }
+
+    public int getCount() {
+        return names.length;
+    }
+
+    public String getName(int i) {
+        return names[i];
+    }
+
+    public String getValue(int i) {
+        return values[i];
+    }
+
+    public boolean isRegex(int i) {
+        return regex[i];
+    }
+
+    /**
+     * @return The index of the first exact (i.e non-regex) condition having
+     * a non-empty value, or -1 if there is no such condition
+     */
+    public int indexOfFirstExact() {
+        for(int i=0; i<names.length; i++) {
+            if(!regex[i] && !values[i].isEmpty()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Exact conditions are cheaper to test than regex conditions, so they 
+     * are tested first.
+     * @return The indices of the conditions in the order they are to be 
+     * tested: the exact conditions, then the regex conditions, each in the
+     * order of the config
+     */
+    public int [] getTestOrder() {
+        final int [] output = new int[names.length];
+        int n = 0;
+        for(int i=0; i<names.length; i++) {
+            if(!regex[i]) {
+                output[n++] = i;
+            }
+        }
+        for(int i=0; i<names.length; i++) {
+            if(regex[i]) {
+                output[n++] = i;
+            }
+        }
+        return output;
+    }
+
+    /**
+     * @param i The index of the condition
+     * @return The value of the condition as written in the config, i.e 
+     * including the <code>regex(...)</code> wrapper of regex values
+     */
+    public String getRawValue(int i) {
+        return regex[i] ? REGEX_PREFIX + values[i] + REGEX_SUFFIX : values[i];
+    }
+
+    private int indexOf(Object name) {
+        for(int i=0; i<names.length; i++) {
+            if(names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return this.indexOf(name) != -1;
+    }
+
+    @Override
+    public String get(Object name) {
+        final int i = this.indexOf(name);
+        return i == -1 ? null : this.getRawValue(i);
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new Iterator<Map.Entry<String, String>>() {
+                    private int next;
+                    @Override
+                    public boolean hasNext() {
+                        return next < names.length;
+                    }
+                    @Override
+                    public Map.Entry<String, String> next() {
+                        if(next >= names.length) {
+                            throw new NoSuchElementException();
+                        }
+                        final int i = next++;
+                        return new AbstractMap.SimpleImmutableEntry<>(names[i], getRawValue(i));
+                    }
+                };
+            }
+            @Override
+            public int size() {
+                return names.length;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder().append('{');
+        for(int i=0; i<names.length; i++) {
+            if(i > 0) {
+                builder.append(',');
+            }
+            builder.append(names[i]).append('=').append(this.getRawValue(i));
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A concurrent, size bounded cache of resolved config objects.
+ * <p>
+ * Concurrent loads of the same key are deduplicated: one thread loads, the
+ * others wait for its result. Failed loads are not cached. When the cache is
+ * full, the entries loaded earliest are evicted first.
+ * </p>
+ * <p>
+ * A loader may get other keys, e.g a config which includes another. A get 
+ * which would wait, directly or via other loading threads, on a load by the
+ * current thread fails with an {@link IllegalStateException} instead of 
+ * blocking. So circular references fail both within one thread, and across 
+ * threads loading the same configs from opposite ends.
+ * </p>
+ * <p>
+ * The {@link #shared() shared} instance is used by default. Its maximum size
+ * may be set via the system property <code>bcmetaselector.configCache.maxSize</code>.
+ * </p>
+ */
+public class ConfigCache {
+
+    private transient static final Logger LOG = Logger.getLogger(ConfigCache.class.getName());
+
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    @FunctionalInterface
+    public interface Loader {
+        Map load() throws IOException, ParseException;
+    }
+
+    private static final class SharedHolder {
+        private static final ConfigCache INSTANCE = new ConfigCache(
+                Integer.getInteger("bcmetaselector.configCache.maxSize", DEFAULT_MAX_SIZE));
+    }
+
+    private static final class Entry extends CompletableFuture<Map> {
+        /** The thread loading this entry, until loaded */
+        private volatile Thread loader = Thread.currentThread();
+    }
+
+    private final int maxSize;
+
+    private final ConcurrentHashMap<Object, Entry> entries;
+
+    /** The entry each thread is waiting for. Guarded by itself */
+    private final Map<Thread, Entry> waiting;
+
+    private final Queue<Object> loadOrder;
+
+    private final LongAdder hits;
+
+    private final LongAdder misses;
+
+    private final LongAdder evictions;
+
+    public ConfigCache(int maxSize) {
+        if(maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0");
+        }
+        this.maxSize = maxSize;
+        this.entries = new ConcurrentHashMap<>();
+        this.waiting = new HashMap<>();
+        this.loadOrder = new ConcurrentLinkedQueue<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+    }
+
+    /**
+     * @return The process-wide cache
+     */
+    public static ConfigCache shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * @param key The key of the config object
+     * @param loader Loads the config object, if not cached
+     * @return The config object, as loaded by the loader. Cached objects are 
+     * shared between threads, and must not be modified.
+     * @throws IOException If the loader threw an IOException
+     * @throws ParseException If the loader threw a ParseException
+     */
+    public Map get(Object key, Loader loader) throws IOException, ParseException {
+
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(loader);
+
+        Entry entry = entries.get(key);
+
+        if(entry == null) {
+
+            final Entry created = new Entry();
+
+            entry = entries.putIfAbsent(key, created);
+
+            if(entry == null) {
+                misses.increment();
+                return this.load(key, loader, created);
+            }
+        }
+
+        hits.increment();
+
+        if(entry.isDone()) {
+            return this.join(entry);
+        }
+
+        this.beginWait(key, entry);
+        try{
+            return this.join(entry);
+        }finally{
+            this.endWait();
+        }
+    }
+
+    private Map load(Object key, Loader loader, Entry entry) 
+            throws IOException, ParseException {
+
+        final Map result;
+        try{
+            result = loader.load();
+        }catch(IOException | ParseException | RuntimeException | Error e) {
+            entries.remove(key, entry);
+            entry.loader = null;
+            entry.completeExceptionally(e);
+            throw e;
+        }
+
+        entry.loader = null;
+        entry.complete(result);
+
+        loadOrder.add(key);
+
+        this.evictIfFull();
+
+        return result;
+    }
+
+    /**
+     * Registers that the current thread is about to wait for the entry, 
+     * unless the wait would close a cycle of threads waiting on each other.
+     */
+    private void beginWait(Object key, Entry entry) {
+        final Thread current = Thread.currentThread();
+        synchronized(waiting) {
+            Entry next = entry;
+            while(next != null) {
+                final Thread loader = next.loader;
+                if(loader == null) {
+                    break;
+                }
+                if(loader == current) {
+                    throw new IllegalStateException("Circular reference to: " + key);
+                }
+                next = waiting.get(loader);
+            }
+            waiting.put(current, entry);
+        }
+    }
+
+    private void endWait() {
+        synchronized(waiting) {
+            waiting.remove(Thread.currentThread());
+        }
+    }
+
+    private Map join(Entry future) throws IOException, ParseException {
+        boolean interrupted = false;
+        try{
+            while(true) {
+                try{
+                    return future.get();
+                }catch(InterruptedException e) {
+                    interrupted = true;
+                }catch(ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if(cause instanceof IOException) {
+                        throw (IOException)cause;
+                    }else if(cause instanceof ParseException) {
+                        throw (ParseException)cause;
+                    }else if(cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    }else if(cause instanceof Error) {
+                        throw (Error)cause;
+                    }else{
+                        throw new RuntimeException(cause);
+                    }
+                }
+            }
+        }finally{
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void evictIfFull() {
+        while(entries.size() > maxSize) {
+            final Object eldest = loadOrder.poll();
+            if(eldest == null) {
+                break;
+            }
+            final Entry removed = entries.get(eldest);
+            if(removed != null && removed.isDone() && entries.remove(eldest, removed)) {
+                evictions.increment();
+                if(LOG.isLoggable(Level.FINER)) {
+                    LOG.log(Level.FINER, "Evicted: {0}", eldest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the entry of the key, if loaded. Entries being loaded are kept.
+     * @param key The key of the entry to remove
+     * @return true if an entry was removed
+     */
+    public boolean remove(Object key) {
+        Objects.requireNonNull(key);
+        final Entry entry = entries.get(key);
+        if(entry == null || !entry.isDone() || !entries.remove(key, entry)) {
+            return false;
+        }
+        loadOrder.remove(key);
+        return true;
+    }
+
+    /**
+     * Removes all entries. Statistics are not reset.
+     */
+    public void clear() {
+        entries.clear();
+        loadOrder.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of lookups which found the key cached or being loaded
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups which loaded the key
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public Set<Object> keySet() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{size=" + this.size() + ", maxSize=" + maxSize +
+                ", hits=" + this.getHitCount() + ", misses=" + this.getMissCount() +
+                ", evictions=" + this.getEvictionCount() + '}';
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A dependency-free, streaming reader of selector configs.
+ * <p>
+ * Objects are read into insertion ordered maps, arrays into lists, numbers
+ * into Long or Double. Members whose key starts with <code>!--</code>, i.e
+ * comments, are skipped without being materialized, as are top level members
+ * rejected by the key filter. Objects within arrays having only string values,
+ * i.e attribute rules, are read into {@link AttributeRule}s.
+ * </p>
+ * <p>
+ * Instances are stateless and may be shared between threads. All instances
+ * are equal, so configs they parse are cached alike.
+ * </p>
+ */
+public class ConfigJsonReader implements JsonParser {
+
+    public static final String COMMENT_PREFIX = "!--";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public Map parse(Reader reader) throws IOException, ParseException {
+        return this.parse(reader, (key) -> true);
+    }
+
+    @Override
+    public Map parse(InputStream in, String charset, Predicate<String> topLevelKeyFilter) 
+            throws IOException, ParseException {
+        try(Reader reader = new InputStreamReader(in, charset)) {
+            return this.parse(reader, topLevelKeyFilter);
+        }
+    }
+
+    /**
+     * @param reader The reader of the JSON object. Not closed
+     * @param topLevelKeyFilter Only the top level members whose key is accepted
+     * are read, the rest are skipped
+     * @return The JSON object
+     * @throws IOException
+     * @throws ParseException If the input is not a JSON object
+     */
+    public Map parse(Reader reader, Predicate<String> topLevelKeyFilter) throws IOException, ParseException {
+        final Cursor cursor = new Cursor(reader);
+        cursor.skipWhitespace();
+        if(cursor.peek() != '{') {
+            throw cursor.error("Expected '{'");
+        }
+        final Map result = (Map)cursor.readObject(topLevelKeyFilter, false);
+        cursor.skipWhitespace();
+        if(cursor.peek() != -1) {
+            throw cursor.error("Unexpected content after the top level object");
+        }
+        return result;
+    }
+
+    private static final class Cursor {
+
+        private final Reader reader;
+
+        private final char [] buffer = new char[BUFFER_SIZE];
+
+        private int pos;
+
+        private int limit;
+
+        /** The offset of the buffer within the input */
+        private int offset;
+
+        private final StringBuilder text = new StringBuilder();
+
+        private Cursor(Reader reader) {
+            this.reader = reader;
+        }
+
+        private int peek() throws IOException {
+            if(pos == limit) {
+                offset += limit;
+                pos = 0;
+                limit = reader.read(buffer, 0, buffer.length);
+                if(limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[pos];
+        }
+
+        private int read() throws IOException {
+            final int c = this.peek();
+            if(c != -1) {
+                ++pos;
+            }
+            return c;
+        }
+
+        private void expect(char expected) throws IOException, ParseException {
+            this.skipWhitespace();
+            if(this.read() != expected) {
+                throw this.error("Expected '" + expected + "'");
+            }
+        }
+
+        private void skipWhitespace() throws IOException {
+            int c;
+            while((c = this.peek()) == ' ' || c == '\n' || c == '\r' || c == '\t' || c == 0xFEFF) {
+                ++pos;
+            }
+        }
+
+        private ParseException error(String message) {
+            final int position = offset + pos;
+            return new ParseException(message + " at position " + position, position);
+        }
+
+        private Object readValue(boolean inArray) throws IOException, ParseException {
+            this.skipWhitespace();
+            final int c = this.peek();
+            switch(c) {
+                case '{': return this.readObject((key) -> true, inArray);
+                case '[': return this.readArray();
+                case '"': return this.readString();
+                case 't': this.readLiteral("true"); return Boolean.TRUE;
+                case 'f': this.readLiteral("false"); return Boolean.FALSE;
+                case 'n': this.readLiteral("null"); return null;
+                default:
+                    if(c == '-' || (c >= '0' && c <= '9')) {
+                        return this.readNumber();
+                    }
+                    throw this.error(c == -1 ? "Unexpected end of input" : "Unexpected character '" + (char)c + "'");
+            }
+        }
+
+        private Object readObject(Predicate<String> keyFilter, boolean inArray) throws IOException, ParseException {
+            this.expect('{');
+            final Map<String, Object> map = new LinkedHashMap<>();
+            boolean allStrings = true;
+            this.skipWhitespace();
+            if(this.peek() == '}') {
+                ++pos;
+                return map;
+            }
+            while(true) {
+                this.skipWhitespace();
+                if(this.peek() != '"') {
+                    throw this.error("Expected a key");
+                }
+                final String key = this.readString();
+                this.expect(':');
+                if(key.startsWith(COMMENT_PREFIX) || !keyFilter.test(key)) {
+                    this.skipValue();
+                }else{
+                    final Object value = this.readValue(false);
+                    allStrings &= value instanceof String;
+                    map.put(key, value);
+                }
+                this.skipWhitespace();
+                final int c = this.read();
+                if(c == '}') {
+                    break;
+                }
+                if(c != ',') {
+                    throw this.error("Expected ',' or '}'");
+                }
+            }
+            if(inArray && allStrings && !map.isEmpty()) {
+                return AttributeRule.of(map);
+            }
+            return map;
+        }
+
+        private List readArray() throws IOException, ParseException {
+            this.expect('[');
+            this.skipWhitespace();
+            if(this.peek() == ']') {
+                ++pos;
+                return Collections.EMPTY_LIST;
+            }
+            final List<Object> list = new ArrayList<>();
+            while(true) {
+                list.add(this.readValue(true));
+                this.skipWhitespace();
+                final int c = this.read();
+                if(c == ']') {
+                    break;
+                }
+                if(c != ',') {
+                    throw this.error("Expected ',' or ']'");
+                }
+            }
+            return list;
+        }
+
+        /** Skips a value, checking its syntax but creating no objects */
+        private void skipValue() throws IOException, ParseException {
+            this.skipWhitespace();
+            final int c = this.peek();
+            switch(c) {
+                case '{': 
+                    ++pos;
+                    this.skipWhitespace();
+                    if(this.peek() == '}') {
+                        ++pos;
+                        return;
+                    }
+                    while(true) {
+                        this.skipWhitespace();
+                        if(this.peek() != '"') {
+                            throw this.error("Expected a key");
+                        }
+                        this.skipString();
+                        this.expect(':');
+                        this.skipValue();
+                        this.skipWhitespace();
+                        final int next = this.read();
+                        if(next == '}') {
+                            return;
+                        }
+                        if(next != ',') {
+                            throw this.error("Expected ',' or '}'");
+                        }
+                    }
+                case '[': 
+                    ++pos;
+                    this.skipWhitespace();
+                    if(this.peek() == ']') {
+                        ++pos;
+                        return;
+                    }
+                    while(true) {
+                        this.skipValue();
+                        this.skipWhitespace();
+                        final int next = this.read();
+                        if(next == ']') {
+                            return;
+                        }
+                        if(next != ',') {
+                            throw this.error("Expected ',' or ']'");
+                        }
+                    }
+                case '"': this.skipString(); return;
+                case 't': this.readLiteral("true"); return;
+                case 'f': this.readLiteral("false"); return;
+                case 'n': this.readLiteral("null"); return;
+                default:
+                    if(c == '-' || (c >= '0' && c <= '9')) {
+                        this.scanNumber(false);
+                        return;
+                    }
+                    throw this.error(c == -1 ? "Unexpected end of input" : "Unexpected character '" + (char)c + "'");
+            }
+        }
+
+        private void readLiteral(String literal) throws IOException, ParseException {
+            for(int i=0; i<literal.length(); i++) {
+                if(this.read() != literal.charAt(i)) {
+                    throw this.error("Expected '" + literal + "'");
+                }
+            }
+        }
+
+        private String readString() throws IOException, ParseException {
+            this.scanString(true);
+            return text.toString();
+        }
+
+        private void skipString() throws IOException, ParseException {
+            this.scanString(false);
+        }
+
+        private void scanString(boolean keep) throws IOException, ParseException {
+            ++pos; // opening quote
+            if(keep) {
+                text.setLength(0);
+            }
+            while(true) {
+                final int c = this.read();
+                if(c == -1) {
+                    throw this.error("Unterminated string");
+                }
+                if(c == '"') {
+                    return;
+                }
+                if(c == '\\') {
+                    final int e = this.read();
+                    final char ch;
+                    switch(e) {
+                        case '"': ch = '"'; break;
+                        case '\\': ch = '\\'; break;
+                        case '/': ch = '/'; break;
+                        case 'b': ch = '\b'; break;
+                        case 'f': ch = '\f'; break;
+                        case 'n': ch = '\n'; break;
+                        case 'r': ch = '\r'; break;
+                        case 't': ch = '\t'; break;
+                        case 'u':
+                            int code = 0;
+                            for(int i=0; i<4; i++) {
+                                final int h = Character.digit(this.read(), 16);
+                                if(h == -1) {
+                                    throw this.error("Invalid unicode escape");
+                                }
+                                code = (code << 4) | h;
+                            }
+                            ch = (char)code;
+                            break;
+                        default: throw this.error("Invalid escape");
+                    }
+                    if(keep) {
+                        text.append(ch);
+                    }
+                }else if(c < 0x20) {
+                    throw this.error("Control character in string");
+                }else if(keep) {
+                    text.append((char)c);
+                }
+            }
+        }
+
+        private Object readNumber() throws IOException, ParseException {
+            final boolean decimal = this.scanNumber(true);
+            final String number = text.toString();
+            try{
+                return decimal ? (Object)Double.valueOf(number) : (Object)Long.valueOf(number);
+            }catch(NumberFormatException e) {
+                try{
+                    // Integers beyond the range of long
+                    return Double.valueOf(number);
+                }catch(NumberFormatException nfe) {
+                    throw this.error("Invalid number: " + number);
+                }
+            }
+        }
+
+        /** @return true if the number has a fraction or exponent */
+        private boolean scanNumber(boolean keep) throws IOException, ParseException {
+            if(keep) {
+                text.setLength(0);
+            }
+            boolean decimal = false;
+            boolean digits = false;
+            int c;
+            while((c = this.peek()) != -1) {
+                if(c >= '0' && c <= '9') {
+                    digits = true;
+                }else if(c == '.' || c == 'e' || c == 'E') {
+                    decimal = true;
+                }else if(c != '-' && c != '+') {
+                    break;
+                }
+                if(keep) {
+                    text.append((char)c);
+                }
+                ++pos;
+            }
+            if(!digits) {
+                throw this.error("Invalid number");
+            }
+            return decimal;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.io.Reader;
 import java.text.ParseException;
 import java.util.Map;
 import java.util.function.BiFunction;
+import java.util.function.Predicate;
 
 /**
  * @author Chinomso Bassey Ikwuagwu on Jun 20, 2018 9:43:59 PM
@@ -44,5 +45,21 @@ public interface JsonParser extends BiFunction<InputStream, String, Map> {
         }
     }
     
+    /**
+     * Parses a JSON object, of which only the top level members whose key is 
+     * accepted by the filter need be read. The default implementation reads 
+     * all members.
+     * @param in The input stream to parse. Closed after parsing
+     * @param charset The charset of the input stream
+     * @param topLevelKeyFilter Accepts the keys of the top level members to read
+     * @return The JSON object
+     * @throws IOException
+     * @throws ParseException 
+     */
+    default Map parse(InputStream in, String charset, Predicate<String> topLevelKeyFilter) 
+            throws IOException, ParseException {
+        return this.parse(in, charset);
+    }
+    
     Map parse(Reader reader) throws IOException, ParseException;
 }
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bc.meta.selector.util;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.regex.Pattern;
+
+/**
+ * An Aho-Corasick automaton which finds all occurrences of a set of literal
+ * patterns in a single pass over the input. Matching is ASCII case insensitive.
+ * <p>
+ * The automaton is driven by the caller so that matching does not allocate:
+ * </p>
+ * <pre>
+ * int state = MultiPatternMatcher.START;
+ * for(int i=0; i&lt;text.length(); i++) {
+ *     state = matcher.next(state, text.charAt(i));
+ *     for(int pattern : matcher.getMatches(state)) {
+ *         // pattern occurs in text, ending at i
+ *     }
+ * }
+ * </pre>
+ * <p>Instances are immutable and may be shared between threads.</p>
+ */
+public final class MultiPatternMatcher implements Serializable {
+
+    public static final int START = 0;
+
+    private static final int [] NONE = new int[0];
+
+    private static final Pattern COMMENTS_FLAG = Pattern.compile("\\(\\?[a-zA-Z]*x");
+
+    private static final int ASCII = 128;
+
+    /** The complete transition table for ASCII input, indexed by state then character */
+    private final int [][] asciiTransitions;
+
+    /** The goto function for non-ASCII input, which falls back to the failure function */
+    private final Map<Character, Integer> [] otherTransitions;
+
+    private final int [] failures;
+
+    private final int [][] matches;
+
+    private final int patternCount;
+
+    public MultiPatternMatcher(List<String> patterns) {
+
+        final List<Map<Character, Integer>> gotos = new ArrayList<>();
+        final List<List<Integer>> outputs = new ArrayList<>();
+        gotos.add(new HashMap<>());
+        outputs.add(new ArrayList<>());
+
+        for(int p=0; p<patterns.size(); p++) {
+            final String pattern = patterns.get(p);
+            if(pattern.isEmpty()) {
+                throw new IllegalArgumentException("Empty pattern at index: " + p);
+            }
+            int state = START;
+            for(int i=0; i<pattern.length(); i++) {
+                final Character c = fold(pattern.charAt(i));
+                Integer next = gotos.get(state).get(c);
+                if(next == null) {
+                    next = gotos.size();
+                    gotos.add(new HashMap<>());
+                    outputs.add(new ArrayList<>());
+                    gotos.get(state).put(c, next);
+                }
+                state = next;
+            }
+            outputs.get(state).add(p);
+        }
+
+        final int stateCount = gotos.size();
+        this.failures = new int[stateCount];
+        this.asciiTransitions = new int[stateCount][ASCII];
+
+        for(char c=0; c<ASCII; c++) {
+            final Integer next = gotos.get(START).get(c);
+            asciiTransitions[START][c] = next == null ? START : next;
+        }
+
+        // Breadth first, so that the failure state of each state is complete before it is used
+        final Queue<Integer> queue = new ArrayDeque<>(gotos.get(START).values());
+        while(!queue.isEmpty()) {
+            final int state = queue.remove();
+            for(Map.Entry<Character, Integer> e : gotos.get(state).entrySet()) {
+                final int child = e.getValue();
+                if(state != START) {
+                    int f = failures[state];
+                    while(f != START && !gotos.get(f).containsKey(e.getKey())) {
+                        f = failures[f];
+                    }
+                    final Integer target = gotos.get(f).get(e.getKey());
+                    failures[child] = target == null ? START : target;
+                }
+                outputs.get(child).addAll(outputs.get(failures[child]));
+                queue.add(child);
+            }
+            if(state != START) {
+                for(char c=0; c<ASCII; c++) {
+                    final Integer next = gotos.get(state).get(c);
+                    asciiTransitions[state][c] = next == null ? asciiTransitions[failures[state]][c] : next;
+                }
+            }
+        }
+
+        this.otherTransitions = gotos.toArray(new Map[stateCount]);
+        this.matches = new int[stateCount][];
+        for(int s=0; s<stateCount; s++) {
+            final List<Integer> out = outputs.get(s);
+            matches[s] = out.isEmpty() ? NONE : out.stream().mapToInt(Integer::intValue).toArray();
+        }
+        this.patternCount = patterns.size();
+    }
+
+    public int next(int state, char ch) {
+        final char c = fold(ch);
+        if(c < ASCII) {
+            return asciiTransitions[state][c];
+        }
+        while(true) {
+            final Integer next = otherTransitions[state].get(c);
+            if(next != null) {
+                return next;
+            }
+            if(state == START) {
+                return START;
+            }
+            state = failures[state];
+        }
+    }
+
+    /**
+     * @param state The current state
+     * @return The ids of all the patterns which end at the current state.
+     * The returned array must not be modified.
+     */
+    public int [] getMatches(int state) {
+        return matches[state];
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Returns the longest run of literal characters which every match of the
+     * regex must contain. The result is conservative: where the regex syntax
+     * is not understood, the run is cut short.
+     * @param regex The regular expression
+     * @return The required literal, or an empty string if none could be found
+     */
+    public static String getRequiredLiteral(String regex) {
+
+        if(COMMENTS_FLAG.matcher(regex).find()) {
+            // Whitespace and comments are ignored, so literal runs are not what they seem
+            return "";
+        }
+
+        String longest = "";
+        final StringBuilder run = new StringBuilder();
+
+        int i = 0;
+        final int len = regex.length();
+
+        while(i < len) {
+
+            final char c = regex.charAt(i);
+
+            switch(c) {
+                case '|':
+                    // Top level alternation, no literal is required by every branch
+                    return "";
+                case '\\':
+                    if(i + 1 < len && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                        run.append(regex.charAt(i + 1));
+                        i += 2;
+                    }else{
+                        longest = longer(longest, run);
+                        i = skipEscape(regex, i);
+                    }
+                    continue;
+                case '[':
+                    longest = longer(longest, run);
+                    i = skipClass(regex, i);
+                    continue;
+                case '(':
+                    longest = longer(longest, run);
+                    i = skipGroup(regex, i);
+                    continue;
+                case '*': case '+': case '?': case '{':
+                    // The quantified character may be absent or repeated
+                    if(run.length() > 0) {
+                        run.setLength(run.length() - 1);
+                    }
+                    longest = longer(longest, run);
+                    if(c == '{') {
+                        final int end = regex.indexOf('}', i);
+                        i = end == -1 ? len : end + 1;
+                    }else{
+                        ++i;
+                    }
+                    continue;
+                case '.': case '^': case '$': case ')': case ']': case '}':
+                    longest = longer(longest, run);
+                    ++i;
+                    continue;
+                default:
+                    run.append(c);
+                    ++i;
+            }
+        }
+
+        return longer(longest, run);
+    }
+
+    private static String longer(String longest, StringBuilder run) {
+        final String result = run.length() > longest.length() ? run.toString() : longest;
+        run.setLength(0);
+        return result;
+    }
+
+    /**
+     * @param regex The regular expression
+     * @param i The index of the backslash which starts an escape sequence
+     * @return The index of the first character after the escape sequence
+     */
+    private static int skipEscape(String regex, int i) {
+        final int len = regex.length();
+        if(i + 1 >= len) {
+            return len;
+        }
+        final char c = regex.charAt(i + 1);
+        i += 2;
+        switch(c) {
+            case 'x':
+                return i < len && regex.charAt(i) == '{' ? skipPast(regex, i, "}") : Math.min(len, i + 2);
+            case 'u':
+                return Math.min(len, i + 4);
+            case '0':
+                return skipWhile(regex, i, "01234567", 3);
+            case 'c':
+                return Math.min(len, i + 1);
+            case 'p': case 'P': case 'N':
+                return i < len && regex.charAt(i) == '{' ? skipPast(regex, i, "}") : Math.min(len, i + 1);
+            case 'k':
+                return skipPast(regex, i, ">");
+            case 'Q':
+                return skipPast(regex, i, "\\E");
+            default:
+                return Character.isDigit(c) ? skipWhile(regex, i, "0123456789", len) : i;
+        }
+    }
+
+    private static int skipPast(String regex, int i, String end) {
+        final int n = regex.indexOf(end, i);
+        return n == -1 ? regex.length() : n + end.length();
+    }
+
+    private static int skipWhile(String regex, int i, String chars, int max) {
+        final int limit = Math.min(regex.length(), i + max);
+        while(i < limit && chars.indexOf(regex.charAt(i)) != -1) {
+            ++i;
+        }
+        return i;
+    }
+
+    private static int skipClass(String regex, int i) {
+        int depth = 0;
+        final int len = regex.length();
+        while(i < len) {
+            final char c = regex.charAt(i);
+            if(c == '\\') {
+                i += 2;
+                continue;
+            }
+            if(c == '[') {
+                ++depth;
+            }else if(c == ']' && --depth == 0) {
+                return i + 1;
+            }
+            ++i;
+        }
+        return len;
+    }
+
+    private static int skipGroup(String regex, int i) {
+        int depth = 0;
+        final int len = regex.length();
+        while(i < len) {
+            final char c = regex.charAt(i);
+            if(c == '\\') {
+                i += 2;
+                continue;
+            }
+            if(c == '[') {
+                i = skipClass(regex, i);
+                continue;
+            }
+            if(c == '(') {
+                ++depth;
+            }else if(c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            ++i;
+        }
+        return len;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{patterns=" + patternCount +
+                ", states=" + failures.length + ", matches=" + Arrays.deepToString(matches) + '}';
+    }
+}
@@ -16,15 +16,19 @@
 
 package com.bc.meta.selector.util;
 
+import com.bc.meta.selector.SelectorMetrics;
+import com.bc.meta.selector.jfr.JfrEvents;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -85,15 +89,91 @@ public class PropertiesParser {
         }
     }
 
+    /**
+     * Config objects are cached by location and object name, within the 
+     * source they were read from and the type of parser which parsed them. 
+     * Parsers of the same class are expected to parse alike, so that configs
+     * are shared between the parser instances each builder creates.
+     * <p>
+     * The source and the parser type are referenced weakly, so that a cache 
+     * shared process-wide does not hold on to their class loaders. Once either
+     * is collected, its entries are {@link #purgeCollected() removed}.
+     * </p>
+     */
+    private static final class CacheKey {
+        private final KeyReference<Object> source;
+        private final KeyReference<Class<?>> parserType;
+        private final String charset;
+        private final String location;
+        private final String objectName;
+        private final int hash;
+        private CacheKey(ConfigCache cache, Object source, Class<?> parserType, 
+                String charset, String location, String objectName) {
+            this.source = new KeyReference<>(source, this, cache);
+            this.parserType = new KeyReference<>(parserType, this, cache);
+            this.charset = charset;
+            this.location = location;
+            this.objectName = objectName;
+            int h = 7;
+            h = 59 * h + System.identityHashCode(source);
+            h = 59 * h + parserType.hashCode();
+            h = 59 * h + charset.hashCode();
+            h = 59 * h + location.hashCode();
+            h = 59 * h + Objects.hashCode(objectName);
+            this.hash = h;
+        }
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) obj;
+            if(this.hash != other.hash || !this.location.equals(other.location) ||
+                    !Objects.equals(this.objectName, other.objectName) ||
+                    !this.charset.equals(other.charset)) {
+                return false;
+            }
+            final Object thisSource = this.source.get();
+            final Class<?> thisParserType = this.parserType.get();
+            return thisSource != null && thisParserType != null &&
+                    thisSource == other.source.get() &&
+                    thisParserType == other.parserType.get();
+        }
+        @Override
+        public String toString() {
+            return objectName == null ? location : location + '#' + objectName;
+        }
+    }
+
+    private static final class KeyReference<T> extends WeakReference<T> {
+        private final CacheKey key;
+        private final ConfigCache cache;
+        private KeyReference(T referent, CacheKey key, ConfigCache cache) {
+            super(referent, COLLECTED);
+            this.key = key;
+            this.cache = cache;
+        }
+    }
+
+    /** The references of cache keys whose source or parser type was collected */
+    private static final ReferenceQueue<Object> COLLECTED = new ReferenceQueue<>();
+
     private final Function<String, InputStream> streamProvider;
     
     private final JsonParser jsonParser;
     
     private final String charset;
     
-    private final boolean useCache;
+    private final ConfigCache cache;
     
-    private final Map<String, Map> propertiesCache;
+    private final SelectorMetrics metrics;
     
     private final String propertiesKey = "properties";
 
@@ -105,13 +185,42 @@ public class PropertiesParser {
         this(new DefaultStreamProvider(), jsonParser, StandardCharsets.UTF_8.name(), false);
     }
     
+    /**
+     * @param streamProvider Provides the input stream of each config location
+     * @param jsonParser The parser of the configs
+     * @param charset The charset of the configs
+     * @param useCache If true, the {@link ConfigCache#shared() shared cache} is used
+     */
     public PropertiesParser(Function<String, InputStream> streamProvider, 
             JsonParser jsonParser, String charset, boolean useCache) {
+        this(streamProvider, jsonParser, charset, useCache ? ConfigCache.shared() : null);
+    }
+    
+    /**
+     * @param streamProvider Provides the input stream of each config location
+     * @param jsonParser The parser of the configs
+     * @param charset The charset of the configs
+     * @param cache The cache of parsed config objects, or null for no caching
+     */
+    public PropertiesParser(Function<String, InputStream> streamProvider, 
+            JsonParser jsonParser, String charset, ConfigCache cache) {
+        this(streamProvider, jsonParser, charset, cache, SelectorMetrics.NONE);
+    }
+    
+    /**
+     * @param streamProvider Provides the input stream of each config location
+     * @param jsonParser The parser of the configs
+     * @param charset The charset of the configs
+     * @param cache The cache of parsed config objects, or null for no caching
+     * @param metrics Receives the measurements of loading, parsing and cache lookups
+     */
+    public PropertiesParser(Function<String, InputStream> streamProvider, 
+            JsonParser jsonParser, String charset, ConfigCache cache, SelectorMetrics metrics) {
         this.streamProvider = Objects.requireNonNull(streamProvider);
         this.jsonParser = Objects.requireNonNull(jsonParser);
         this.charset = Objects.requireNonNull(charset);
-        this.useCache = useCache;
-        this.propertiesCache = useCache ? new HashMap() : Collections.EMPTY_MAP;
+        this.cache = cache;
+        this.metrics = Objects.requireNonNull(metrics);
     }
 
     public Map parse(String location) throws IOException, ParseException {
@@ -119,97 +228,148 @@ public class PropertiesParser {
     }
     
     public Map parse(final String location, final String objectName) throws IOException, ParseException {
+        Objects.requireNonNull(location);
+        final Object event = JfrEvents.beginConfigParse();
+        final Map result;
+        final boolean cached;
+        if(this.cache == null) {
+            result = this.timedLoad(location, objectName);
+            cached = false;
+        }else{
+            purgeCollected();
+            final Object key = this.buildCacheKey(location, objectName);
+            final boolean [] loaded = new boolean[1];
+            result = this.cache.get(key, () -> {
+                loaded[0] = true;
+                return this.timedLoad(location, objectName);
+            });
+            cached = !loaded[0];
+            if(metrics.isEnabled()) {
+                if(cached) {
+                    metrics.cacheHit(key);
+                }else{
+                    metrics.cacheMiss(key);
+                }
+            }
+        }
+        JfrEvents.commitConfigParse(event, location, objectName, cached, result.size());
+        return result;
+    }
+    
+    private Map timedLoad(String location, String objectName) throws IOException, ParseException {
+        if(!metrics.isEnabled()) {
+            return this.load(location, objectName);
+        }
+        final long start = System.nanoTime();
+        final Map result = this.load(location, objectName);
+        metrics.configLoaded(location, System.nanoTime() - start);
+        return result;
+    }
+    
+    private Object buildCacheKey(String location, String objectName) {
+        // The default stream provider reads resources via the context class loader
+        final Object source = this.streamProvider instanceof DefaultStreamProvider ?
+                Thread.currentThread().getContextClassLoader() : this.streamProvider;
+        return new CacheKey(this.cache, source, this.jsonParser.getClass(), 
+                this.charset, location, objectName);
+    }
+    
+    /**
+     * Removes the cache entries whose source or parser type was collected. 
+     * Only keys stored in a cache are removed, lookup keys equal no other key
+     * once collected.
+     */
+    private static void purgeCollected() {
+        Reference<?> ref;
+        while((ref = COLLECTED.poll()) != null) {
+            final KeyReference<?> keyRef = (KeyReference<?>)ref;
+            keyRef.cache.remove(keyRef.key);
+        }
+    }
+    
+    private Map load(final String location, final String objectName) throws IOException, ParseException {
         
         final String objKey = this.buildKey(location, objectName);
         
-        final Map fromCache = this.propertiesCache.get(objKey);
-        
         final Map result;
-            
-        if(fromCache != null) {
-         
-            result = fromCache;
-            
-            LOG.finer(() -> "For: " + objKey + ", FROM CACHE:\n" + fromCache);
-            
-        }else{
-            
-            try(InputStream in = this.streamProvider.apply(location)) {
+        
+        try(InputStream in = this.streamProvider.apply(location)) {
 
-                final Map config = jsonParser.apply(in, charset);
+            final long parseStart = metrics.isEnabled() ? System.nanoTime() : 0L;
 
-    //            System.out.println(location + '=' + config.toString().replace(",", "\n"));
-                LOG.finer(() -> location + ":\n" + config);
+            final Map config = jsonParser.parse(in, charset, this.buildKeyFilter(objectName));
+            
+            if(metrics.isEnabled()) {
+                metrics.configParsed(location, System.nanoTime() - parseStart);
+            }
 
-                final Map objectConfig;
-                if(objectName != null) {
-                    objectConfig = (Map)config.get(objectName);
-                    Objects.requireNonNull(objectConfig, "No JSON Object named: " + 
-                            objectName + " specified in: " + location);
-                }else{
-                    final Predicate<String> notComment = (key) -> !key.startsWith(commentPrefix);
-                    final Set keys = config.keySet();
-                    final Object key = keys.stream().filter(notComment).findFirst().orElse(null);
-                    final String noObjectMsg = "No JSON Object specified in: " + location;
-                    Objects.requireNonNull(key, noObjectMsg);
-                    objectConfig = (Map)config.get(key);
-                    Objects.requireNonNull(objectConfig, noObjectMsg);
-                }
+//            System.out.println(location + '=' + config.toString().replace(",", "\n"));
+            LOG.finer(() -> location + ":\n" + config);
 
-    //            System.out.println(objKey + ":\n" + objectConfig.toString().replace(",", "\n"));
-                LOG.finer(() -> objKey + ":\n" + objectConfig);
+            final Map objectConfig;
+            if(objectName != null) {
+                objectConfig = (Map)config.get(objectName);
+                Objects.requireNonNull(objectConfig, "No JSON Object named: " + 
+                        objectName + " specified in: " + location);
+            }else{
+                final Predicate<String> notComment = (key) -> !key.startsWith(commentPrefix);
+                final Set keys = config.keySet();
+                final Object key = keys.stream().filter(notComment).findFirst().orElse(null);
+                final String noObjectMsg = "No JSON Object specified in: " + location;
+                Objects.requireNonNull(key, noObjectMsg);
+                objectConfig = (Map)config.get(key);
+                Objects.requireNonNull(objectConfig, noObjectMsg);
+            }
 
-                final Map objectProps = (Map)objectConfig.get(propertiesKey);
-                
-                LOG.finer(() -> objKey + " properties:\n" + objectProps);
+//            System.out.println(objKey + ":\n" + objectConfig.toString().replace(",", "\n"));
+            LOG.finer(() -> objKey + ":\n" + objectConfig);
 
-                final String parentLocation = (String)objectConfig.get("extends");
+            final Map objectProps = (Map)objectConfig.get(propertiesKey);
+            
+            LOG.finer(() -> objKey + " properties:\n" + objectProps);
 
-                final List<String> siblingLocations = (List<String>)objectConfig.get("include");
+            final String parentLocation = (String)objectConfig.get("extends");
 
-                if(parentLocation == null && (siblingLocations == null || siblingLocations.isEmpty())) {
-                    
-                    Objects.requireNonNull(objectProps, propertiesKey + " not defined for: " + objectName + ", in: " + location);
-                    result = objectProps;
-                    
-                }else{
-                    
-                    result = new LinkedHashMap();
-                    
-                    if(parentLocation != null) {
-                        this.include(location, objectName, config, parentLocation, result);
-                    }
-                    
-                    if(siblingLocations != null && !siblingLocations.isEmpty()) {
-                        for(String siblingLoc : siblingLocations) {
-                            this.include(location, objectName, config, siblingLoc, result);
-                        }
-                    }
-                    
-                    if(objectProps != null) {
-                        result.putAll(objectProps);
-                    }
-                }
+            final List<String> siblingLocations = (List<String>)objectConfig.get("include");
 
-    //            System.out.println(objKey + '=' + result.toString().replace(",", "\n"));
-                LOG.fine(() -> objKey + '=' + result);
+            if(parentLocation == null && (siblingLocations == null || siblingLocations.isEmpty())) {
                 
-            }catch(RuntimeException e) {
+                Objects.requireNonNull(objectProps, propertiesKey + " not defined for: " + objectName + ", in: " + location);
+                result = objectProps;
                 
-                if(e.getCause() instanceof IOException) {
-                    
-                    LOG.warning(e.toString());
-                    
-                    throw (IOException)e.getCause();
-                    
-                }else{
-                    
-                    throw e;
+            }else{
+                
+                result = new LinkedHashMap();
+                
+                if(parentLocation != null) {
+                    this.include(location, objectName, config, parentLocation, result);
+                }
+                
+                if(siblingLocations != null && !siblingLocations.isEmpty()) {
+                    for(String siblingLoc : siblingLocations) {
+                        this.include(location, objectName, config, siblingLoc, result);
+                    }
+                }
+                
+                if(objectProps != null) {
+                    result.putAll(objectProps);
                 }
             }
+
+//            System.out.println(objKey + '=' + result.toString().replace(",", "\n"));
+            LOG.fine(() -> objKey + '=' + result);
+            
+        }catch(RuntimeException e) {
             
-            if(this.useCache && result != null) {
-                this.propertiesCache.put(objKey, result);
+            if(e.getCause() instanceof IOException) {
+                
+                LOG.warning(e.toString());
+                
+                throw (IOException)e.getCause();
+                
+            }else{
+                
+                throw e;
             }
         }
 
@@ -218,6 +378,28 @@ public class PropertiesParser {
                 Collections.unmodifiableMap(result);
     }
     
+    /**
+     * @return A filter accepting only the top level keys of the named object,
+     * or of the first object if no name is specified, and of objects which 
+     * may be referenced by name from within it.
+     */
+    private Predicate<String> buildKeyFilter(String objectName) {
+        if(objectName != null) {
+            return (key) -> key.equals(objectName) || key.startsWith(objectHook);
+        }
+        final boolean [] found = new boolean[1];
+        return (key) -> {
+            if(key.startsWith(objectHook)) {
+                return true;
+            }
+            if(!found[0] && !key.startsWith(commentPrefix)) {
+                found[0] = true;
+                return true;
+            }
+            return false;
+        };
+    }
+    
     public void include(String currentLocation, String objectName, 
             Map config, String locationToInclude, Map addTo) 
             throws IOException, ParseException {
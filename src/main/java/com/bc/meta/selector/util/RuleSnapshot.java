@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the fully resolved attribute rules of each property in a 
+ * compact binary format, so that filters may be built without parsing, 
+ * resolving and validating JSON configs.
+ * <p>
+ * Format: magic <code>BCMS</code>, version, a table of distinct strings, then 
+ * for each property its name and rules, each rule as a list of (attribute name, 
+ * attribute value, regex flag) conditions. Strings are referred to by their 
+ * index in the table; counts and indexes are variable length integers.
+ * </p>
+ * @see com.bc.meta.selector.FilterBuilder#writeSnapshot(java.io.OutputStream) 
+ * @see com.bc.meta.selector.FilterBuilder#snapshot(java.lang.String) 
+ */
+public final class RuleSnapshot {
+
+    private static final int MAGIC = 0x42434D53;
+
+    private static final int VERSION = 1;
+
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    private RuleSnapshot() { }
+
+    /**
+     * @param rules The rules of each property
+     * @param out The stream to write to. Not closed.
+     * @throws IOException 
+     */
+    public static void write(Map<String, List<AttributeRule>> rules, OutputStream out) throws IOException {
+
+        final Map<String, Integer> stringIds = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+        for(Map.Entry<String, List<AttributeRule>> entry : rules.entrySet()) {
+            addString(entry.getKey(), stringIds, strings);
+            for(AttributeRule rule : entry.getValue()) {
+                for(int i=0; i<rule.getCount(); i++) {
+                    addString(rule.getName(i), stringIds, strings);
+                    addString(rule.getValue(i), stringIds, strings);
+                }
+            }
+        }
+
+        final DataOutputStream data = new DataOutputStream(out);
+
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+
+        writeVarInt(data, strings.size());
+        for(String s : strings) {
+            data.writeUTF(s);
+        }
+
+        writeVarInt(data, rules.size());
+        for(Map.Entry<String, List<AttributeRule>> entry : rules.entrySet()) {
+            writeVarInt(data, stringIds.get(entry.getKey()));
+            writeVarInt(data, entry.getValue().size());
+            for(AttributeRule rule : entry.getValue()) {
+                writeVarInt(data, rule.getCount());
+                for(int i=0; i<rule.getCount(); i++) {
+                    writeVarInt(data, stringIds.get(rule.getName(i)));
+                    writeVarInt(data, stringIds.get(rule.getValue(i)));
+                    data.writeBoolean(rule.isRegex(i));
+                }
+            }
+        }
+
+        data.flush();
+    }
+
+    /**
+     * @param in The stream to read from. Not closed.
+     * @return The rules of each property, in the order they were written
+     * @throws IOException If the stream could not be read, is truncated or 
+     * corrupt, or is not a snapshot of a supported version
+     */
+    public static Map<String, List<AttributeRule>> read(InputStream in) throws IOException {
+
+        final DataInputStream data = new DataInputStream(in);
+
+        if(data.readInt() != MAGIC) {
+            throw new IOException("Not a rule snapshot");
+        }
+        final int version = data.readUnsignedByte();
+        if(version != VERSION) {
+            throw new IOException("Unsupported rule snapshot version: " + version);
+        }
+
+        final int stringCount = readCount(data);
+        final List<String> strings = new ArrayList<>(Math.min(stringCount, MAX_INITIAL_CAPACITY));
+        for(int i=0; i<stringCount; i++) {
+            strings.add(data.readUTF());
+        }
+
+        final int propertyCount = readCount(data);
+        final Map<String, List<AttributeRule>> rules = new LinkedHashMap<>(
+                Math.min(propertyCount, MAX_INITIAL_CAPACITY) * 2);
+        for(int p=0; p<propertyCount; p++) {
+            final String name = readString(data, strings);
+            final int ruleCount = readCount(data);
+            final List<AttributeRule> propertyRules = new ArrayList<>(
+                    Math.min(ruleCount, MAX_INITIAL_CAPACITY));
+            for(int r=0; r<ruleCount; r++) {
+                final int count = readCount(data);
+                final List<String> names = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+                final List<String> values = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+                final List<Boolean> regex = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+                for(int i=0; i<count; i++) {
+                    names.add(readString(data, strings));
+                    values.add(readString(data, strings));
+                    regex.add(data.readBoolean());
+                }
+                propertyRules.add(toRule(names, values, regex));
+            }
+            rules.put(name, Collections.unmodifiableList(propertyRules));
+        }
+
+        return Collections.unmodifiableMap(rules);
+    }
+
+    private static AttributeRule toRule(List<String> names, List<String> values, 
+            List<Boolean> regex) throws IOException {
+        final boolean [] flags = new boolean[regex.size()];
+        for(int i=0; i<flags.length; i++) {
+            flags[i] = regex.get(i);
+        }
+        try{
+            return new AttributeRule(names.toArray(new String[0]), values.toArray(new String[0]), flags);
+        }catch(IllegalArgumentException e) {
+            throw new StreamCorruptedException("Invalid rule: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Counts are not trusted to size arrays, since a corrupt count could be 
+     * arbitrarily large. Collections instead grow as their elements are read, 
+     * so a count beyond the end of the input fails with an EOFException.
+     */
+    private static int readCount(DataInput in) throws IOException {
+        final int count = readVarInt(in);
+        if(count < 0) {
+            throw new StreamCorruptedException("Negative count: " + count);
+        }
+        return count;
+    }
+
+    private static String readString(DataInput in, List<String> strings) throws IOException {
+        final int index = readVarInt(in);
+        if(index < 0 || index >= strings.size()) {
+            throw new StreamCorruptedException("String index " + index + 
+                    " out of bounds for a table of " + strings.size());
+        }
+        return strings.get(index);
+    }
+
+    private static void addString(String s, Map<String, Integer> ids, List<String> strings) {
+        if(!ids.containsKey(s)) {
+            ids.put(s, strings.size());
+            strings.add(s);
+        }
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executors for selecting from node iterators which block, e.g iterators
+ * over streaming parsers reading from sockets or files.
+ * <p>
+ * When the JDK supports virtual threads (Java 21+), each task is run on a new
+ * virtual thread, so that a blocked iterator does not hold on to a platform
+ * thread. Otherwise tasks are run on a cached pool of daemon platform threads.
+ * </p>
+ */
+public final class SelectionExecutors {
+
+    private transient static final Logger LOG = Logger.getLogger(SelectionExecutors.class.getName());
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = virtualThreadFactoryOrNull();
+
+    private static final class PerTaskHolder {
+        private static final Executor INSTANCE = VIRTUAL_THREAD_FACTORY != null ?
+                (task) -> VIRTUAL_THREAD_FACTORY.newThread(task).start() :
+                Executors.newCachedThreadPool(new DaemonThreadFactory());
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        @Override
+        public Thread newThread(Runnable task) {
+            final Thread thread = new Thread(task, "bcmetaselector-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private SelectionExecutors() { }
+
+    /**
+     * @return true if the JDK supports virtual threads
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * The returned executor is shared, and must not be shut down.
+     * @return An executor which runs each task on a new virtual thread if 
+     * supported, otherwise on a cached pool of daemon threads.
+     */
+    public static Executor perTask() {
+        return PerTaskHolder.INSTANCE;
+    }
+
+    /**
+     * @return A new executor service which runs each task on a new virtual 
+     * thread if supported, otherwise on a new cached pool of threads. 
+     * The caller is responsible for shutting it down.
+     */
+    public static ExecutorService newPerTaskExecutorService() {
+        if(VIRTUAL_THREAD_FACTORY != null) {
+            try{
+                // Executors.newThreadPerTaskExecutor(ThreadFactory), Java 21+
+                return (ExecutorService)Executors.class
+                        .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, VIRTUAL_THREAD_FACTORY);
+            }catch(ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    private static ThreadFactory virtualThreadFactoryOrNull() {
+        try{
+            // Thread.ofVirtual().factory() is a Java 21 API, accessed reflectively
+            // since the project targets Java 11
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory)Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory").invoke(builder);
+        }catch(ReflectiveOperationException | RuntimeException e) {
+            if(LOG.isLoggable(Level.FINE)) {
+                LOG.log(Level.FINE, "Virtual threads not supported: {0}", e.toString());
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import com.bc.meta.selector.SelectorMetrics;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics which may be read via JMX.
+ * <p>
+ * Counters are {@link LongAdder}s, so that threads selecting concurrently
+ * do not contend on them. Reads are not atomic across counters; a snapshot
+ * taken while selection is in progress may be slightly inconsistent.
+ * </p>
+ * <p>Usage:</p>
+ * <pre><code>
+ * final SelectorMetricsJmx metrics = new SelectorMetricsJmx();
+ * metrics.register();
+ * final Selector&lt;HeadTag&gt; selector = builder.metrics(metrics)
+ *         .filter().metrics(metrics) // to measure config loading
+ *         ...
+ * </code></pre>
+ */
+public class SelectorMetricsJmx implements SelectorMetrics, SelectorMetricsMXBean {
+
+    public static final String DEFAULT_OBJECT_NAME = "com.bc.meta.selector:type=SelectorMetrics,name=default";
+
+    private final LongAdder documentsSelected = new LongAdder();
+    private final LongAdder nodesScanned = new LongAdder();
+    private final LongAdder nodesSelected = new LongAdder();
+    private final LongAdder predicateEvaluations = new LongAdder();
+    private final LongAdder selectTimeNanos = new LongAdder();
+    private final LongAccumulator maxSelectTimeNanos = new LongAccumulator(Math::max, 0L);
+    private final ConcurrentHashMap<String, LongAdder> propertyHits = new ConcurrentHashMap<>();
+    private final LongAdder configsLoaded = new LongAdder();
+    private final LongAdder configLoadTimeNanos = new LongAdder();
+    private final LongAdder configsParsed = new LongAdder();
+    private final LongAdder configParseTimeNanos = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    /**
+     * Registers this with the platform MBean server, under the {@link #DEFAULT_OBJECT_NAME}
+     * @return The name this was registered under
+     */
+    public ObjectName register() {
+        return this.register(DEFAULT_OBJECT_NAME);
+    }
+
+    /**
+     * Registers this with the platform MBean server
+     * @param objectName The name to register this under
+     * @return The name this was registered under
+     */
+    public ObjectName register(String objectName) {
+        try{
+            final ObjectName name = new ObjectName(objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            return name;
+        }catch(JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param objectName The name this was registered under
+     */
+    public void unregister(ObjectName objectName) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try{
+            if(server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        }catch(JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void selected(int nodesScanned, int nodesSelected, long predicateEvaluations, long nanos) {
+        this.documentsSelected.increment();
+        this.nodesScanned.add(nodesScanned);
+        this.nodesSelected.add(nodesSelected);
+        this.predicateEvaluations.add(predicateEvaluations);
+        this.selectTimeNanos.add(nanos);
+        this.maxSelectTimeNanos.accumulate(nanos);
+    }
+
+    @Override
+    public void propertySelected(String propertyName) {
+        LongAdder hits = propertyHits.get(propertyName);
+        if(hits == null) {
+            hits = propertyHits.computeIfAbsent(propertyName, (k) -> new LongAdder());
+        }
+        hits.increment();
+    }
+
+    @Override
+    public void configLoaded(String location, long nanos) {
+        this.configsLoaded.increment();
+        this.configLoadTimeNanos.add(nanos);
+    }
+
+    @Override
+    public void configParsed(String location, long nanos) {
+        this.configsParsed.increment();
+        this.configParseTimeNanos.add(nanos);
+    }
+
+    @Override
+    public void cacheHit(Object key) {
+        this.cacheHits.increment();
+    }
+
+    @Override
+    public void cacheMiss(Object key) {
+        this.cacheMisses.increment();
+    }
+
+    @Override
+    public long getDocumentsSelected() {
+        return documentsSelected.sum();
+    }
+
+    @Override
+    public long getNodesScanned() {
+        return nodesScanned.sum();
+    }
+
+    @Override
+    public long getNodesSelected() {
+        return nodesSelected.sum();
+    }
+
+    @Override
+    public double getMeanNodesScannedPerDocument() {
+        return this.mean(nodesScanned.sum(), documentsSelected.sum());
+    }
+
+    @Override
+    public long getPredicateEvaluations() {
+        return predicateEvaluations.sum();
+    }
+
+    @Override
+    public long getSelectTimeNanos() {
+        return selectTimeNanos.sum();
+    }
+
+    @Override
+    public double getMeanSelectTimeNanos() {
+        return this.mean(selectTimeNanos.sum(), documentsSelected.sum());
+    }
+
+    @Override
+    public long getMaxSelectTimeNanos() {
+        return maxSelectTimeNanos.get();
+    }
+
+    @Override
+    public Map<String, Long> getPropertyHitCounts() {
+        final Map<String, Long> output = new TreeMap<>();
+        for(Map.Entry<String, LongAdder> entry : propertyHits.entrySet()) {
+            output.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableMap(output);
+    }
+
+    @Override
+    public long getConfigsLoaded() {
+        return configsLoaded.sum();
+    }
+
+    @Override
+    public long getConfigLoadTimeNanos() {
+        return configLoadTimeNanos.sum();
+    }
+
+    @Override
+    public long getConfigsParsed() {
+        return configsParsed.sum();
+    }
+
+    @Override
+    public long getConfigParseTimeNanos() {
+        return configParseTimeNanos.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public void reset() {
+        documentsSelected.reset();
+        nodesScanned.reset();
+        nodesSelected.reset();
+        predicateEvaluations.reset();
+        selectTimeNanos.reset();
+        maxSelectTimeNanos.reset();
+        propertyHits.clear();
+        configsLoaded.reset();
+        configLoadTimeNanos.reset();
+        configsParsed.reset();
+        configParseTimeNanos.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+    }
+
+    private double mean(long total, long count) {
+        return count == 0 ? 0 : (double)total / count;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{documents=" + this.getDocumentsSelected() +
+                ", nodesScanned=" + this.getNodesScanned() + ", nodesSelected=" + this.getNodesSelected() +
+                ", predicateEvaluations=" + this.getPredicateEvaluations() +
+                ", meanSelectTimeNanos=" + this.getMeanSelectTimeNanos() +
+                ", configsLoaded=" + this.getConfigsLoaded() + ", cacheHits=" + this.getCacheHits() +
+                ", cacheMisses=" + this.getCacheMisses() + '}';
+    }
+}
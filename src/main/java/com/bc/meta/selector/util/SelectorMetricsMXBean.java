@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link SelectorMetricsJmx}. Times are in nanoseconds.
+ */
+public interface SelectorMetricsMXBean {
+
+    long getDocumentsSelected();
+
+    long getNodesScanned();
+
+    long getNodesSelected();
+
+    double getMeanNodesScannedPerDocument();
+
+    long getPredicateEvaluations();
+
+    long getSelectTimeNanos();
+
+    double getMeanSelectTimeNanos();
+
+    long getMaxSelectTimeNanos();
+
+    /**
+     * @return The number of times each property was selected, by property name
+     */
+    Map<String, Long> getPropertyHitCounts();
+
+    long getConfigsLoaded();
+
+    long getConfigLoadTimeNanos();
+
+    long getConfigsParsed();
+
+    long getConfigParseTimeNanos();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    /**
+     * Resets all counters to zero
+     */
+    void reset();
+}
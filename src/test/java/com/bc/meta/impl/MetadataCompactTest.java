@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.impl;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.Metadata;
+import com.bc.meta.selector.HeadFixture;
+import com.bc.meta.selector.PropertySchema;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.scanner.HeadTag;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+
+public class MetadataCompactTest {
+
+    public MetadataCompactTest() { }
+
+    @Test
+    public void testSameAsMetadataImpl() throws Exception {
+
+        System.out.println("testSameAsMetadataImpl");
+
+        final Selector<HeadTag> selector = HeadFixture.selector();
+
+        final List<String> names = new ArrayList<>(ArticleMetaNames.values());
+        final PropertySchema schema = selector.schema(names);
+
+        final Metadata expected = new MetadataImpl(selector.select(
+                HeadFixture.scan(), names, Collectors.toMap()));
+        final Metadata compact = selector.select(
+                HeadFixture.scan(), schema, Collectors.toMetadata(schema));
+
+        System.out.println(compact);
+
+        assertEquals(expected.toMap(), compact.toMap());
+        assertEquals(compact.toMap(), MetadataCompact.of(schema, expected.toMap()).toMap());
+        for(String name : names) {
+            if(schema.isMultiValue(schema.getId(name))) {
+                assertEquals(expected.getValues(name), compact.getValues(name));
+            }else{
+                assertEquals(expected.getValue(name, "none"), compact.getValue(name, "none"));
+            }
+        }
+        assertEquals(new LinkedHashSet<>(Arrays.asList("tag1", "tag2", "tag3")), 
+                compact.getValues(ArticleMetaNames.TAG_SET));
+        assertEquals(Collections.EMPTY_SET, compact.getValues(ArticleMetaNames.PUBLISHER));
+        assertEquals("none", compact.getValue("unknown", "none"));
+        assertEquals("tag1, tag2, tag3", compact.combineValues(ArticleMetaNames.TAG_SET, null));
+        assertFalse(compact.toMap().containsKey(ArticleMetaNames.PUBLISHER));
+    }
+
+    @Test
+    public void testMapView() {
+
+        System.out.println("testMapView");
+
+        final PropertySchema schema = PropertySchema.of(
+                Arrays.asList("a", "b", "c"), (name) -> "c".equals(name), (name) -> Integer.MAX_VALUE);
+
+        final Metadata metadata = new MetadataCompact(schema, new Object[]{"1", null, new Object[]{"x", "y"}});
+
+        final Map<String, ?> map = metadata.toMap();
+        assertEquals(2, map.size());
+        assertEquals(Arrays.asList("a", "c"), new ArrayList<>(map.keySet()));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("x", "y")), map.get("c"));
+        assertEquals("x", metadata.getValue("c", null));
+        assertEquals(Collections.singleton("1"), metadata.getValues("a"));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.impl.ArticleMetaNameIsMultiValue;
+import com.bc.meta.selector.impl.FilterBuilderImpl;
+import com.bc.meta.selector.scanner.AttributeContextHeadTag;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.scanner.HeadTagScanner;
+import com.bc.meta.selector.util.SampleConfigPaths;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The head document and the {@link HeadTag} selectors shared by the tests.
+ * <p>
+ * The document, <code>head.html</code>, has a value for most of the 
+ * {@link ArticleMetaNames}, duplicate tags, and tags no property is 
+ * configured for.
+ * </p>
+ */
+public final class HeadFixture {
+
+    public static final String HTML = load("head.html");
+
+    private HeadFixture() { }
+
+    /**
+     * @return A new iterator over the tags of the head of {@link #HTML}
+     */
+    public static Iterator<HeadTag> scan() {
+        return new HeadTagScanner(HTML);
+    }
+
+    /**
+     * @return The tags of the head of {@link #HTML}
+     */
+    public static List<HeadTag> tags() {
+        final List<HeadTag> output = new ArrayList<>();
+        scan().forEachRemaining(output::add);
+        return Collections.unmodifiableList(output);
+    }
+
+    /**
+     * @return A filter builder for the sample article configs and all the
+     * {@link ArticleMetaNames}
+     */
+    public static FilterBuilderImpl<HeadTag, Object> filterBuilder() {
+        return filterBuilder(new AttributeContextHeadTag());
+    }
+
+    public static FilterBuilderImpl<HeadTag, Object> filterBuilder(AttributeTestProvider<HeadTag> attributeContext) {
+        final FilterBuilderImpl<HeadTag, Object> output = new FilterBuilderImpl<>();
+        output.attributeContext(attributeContext)
+                .configFilePaths(SampleConfigPaths.APP_ARTICLE_LIST)
+                .jsonParser(new JsonParserImpl())
+                .propertyNames(ArticleMetaNames.values());
+        return output;
+    }
+
+    /**
+     * @return A selector builder whose {@link SelectorBuilder#filter() filter}
+     * is configured as by {@link #filterBuilder()}, and which may be further 
+     * configured before being built
+     */
+    public static SelectorBuilder<HeadTag, String, Object> selectorBuilder() {
+        final AttributeContextHeadTag attributeContext = new AttributeContextHeadTag();
+        final SelectorBuilder<HeadTag, String, Object> output = Selector.builder();
+        return output.filter()
+                .attributeContext(attributeContext)
+                .configFilePaths(SampleConfigPaths.APP_ARTICLE_LIST)
+                .jsonParser(new JsonParserImpl())
+                .propertyNames(ArticleMetaNames.values())
+                .back()
+                .multiValueTest(new ArticleMetaNameIsMultiValue())
+                .nodeValueExtractor(attributeContext);
+    }
+
+    public static Selector<HeadTag> selector() throws IOException, ParseException {
+        return selectorBuilder().build();
+    }
+
+    private static String load(String name) {
+        try(InputStream in = Objects.requireNonNull(
+                HeadFixture.class.getResourceAsStream(name), "Not found: " + name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
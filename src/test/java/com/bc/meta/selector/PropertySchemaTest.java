@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.impl.ArticleMetaNameIsMultiValue;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.scanner.HeadTag;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PropertySchemaTest {
+
+    public PropertySchemaTest() { }
+
+    @Test
+    public void testSchema() {
+
+        System.out.println("testSchema");
+
+        final PropertySchema schema = PropertySchema.of(
+                Arrays.asList(ArticleMetaNames.TITLE, ArticleMetaNames.TAG_SET, ArticleMetaNames.TITLE), 
+                new ArticleMetaNameIsMultiValue(), (name) -> 5);
+
+        assertEquals(2, schema.size());
+        assertEquals(1, schema.getId(ArticleMetaNames.TAG_SET));
+        assertEquals(-1, schema.getId(ArticleMetaNames.AUTHOR));
+        assertFalse(schema.isMultiValue(0));
+        assertTrue(schema.isMultiValue(1));
+        assertEquals(1, schema.getMultiValueLimit(0));
+        assertEquals(5, schema.getMultiValueLimit(1));
+        assertTrue(schema.hasNames(Arrays.asList(ArticleMetaNames.TITLE, ArticleMetaNames.TAG_SET)));
+    }
+
+    @Test
+    public void testSelectBySchema() throws Exception {
+
+        System.out.println("testSelectBySchema");
+
+        final Selector<HeadTag> indexed = HeadFixture.selector();
+        final Function<String, Predicate<HeadTag>> index = HeadFixture.filterBuilder().build();
+        // Hides the index, so that each property's test is applied in turn
+        final Selector<HeadTag> interpreted = HeadFixture.selectorBuilder()
+                .nodeTestProvider((name) -> index.apply(name)).build();
+
+        final List<String> names = new ArrayList<>(ArticleMetaNames.values());
+
+        for(Selector<HeadTag> selector : Arrays.asList(indexed, interpreted)) {
+
+            final Map<String, Object> expected = selector.select(
+                    HeadFixture.scan(), names, Collectors.toMap());
+
+            final PropertySchema schema = selector.schema(names);
+            assertSame(schema, selector.schema(names));
+
+            final Map<String, Object> bySchema = selector.select(
+                    HeadFixture.scan(), schema, Collectors.toSlots(schema));
+
+            System.out.println(bySchema);
+
+            assertEquals(expected, bySchema);
+            assertEquals(expected, selector.select(
+                    HeadFixture.scan(), schema, Collectors.toMap()));
+        }
+    }
+
+    @Test
+    public void testAlternatingNames() throws Exception {
+
+        System.out.println("testAlternatingNames");
+
+        final Selector<HeadTag> selector = HeadFixture.selector();
+
+        final List<String> titles = Arrays.asList(ArticleMetaNames.TITLE, ArticleMetaNames.DESCRIPTION);
+        final List<String> tags = Arrays.asList(ArticleMetaNames.TAG_SET, ArticleMetaNames.KEYWORDS);
+
+        final PropertySchema titlesSchema = selector.schema(titles);
+        final PropertySchema tagsSchema = selector.schema(tags);
+        for(int i=0; i<3; i++) {
+            assertSame(titlesSchema, selector.schema(new ArrayList<>(titles)));
+            assertSame(tagsSchema, selector.schema(tags));
+        }
+
+        // More lists of names than are kept compiled
+        final List<String> all = new ArrayList<>(ArticleMetaNames.values());
+        for(int i=0; i<all.size(); i++) {
+            final List<String> names = all.subList(i, all.size());
+            final Map<String, Object> expected = selector.select(
+                    HeadFixture.scan(), new ArrayList<>(names), Collectors.toMap());
+            final PropertySchema schema = selector.schema(names);
+            assertEquals(expected, selector.select(
+                    HeadFixture.scan(), schema, Collectors.toSlots(schema)));
+        }
+    }
+
+    @Test
+    public void testDefaultSchema() throws Exception {
+
+        System.out.println("testDefaultSchema");
+
+        final Selector<HeadTag> delegate = HeadFixture.selector();
+        final Selector<HeadTag> selector = new Selector<HeadTag>() {
+            @Override
+            public <RESULT> RESULT select(Iterator<HeadTag> nodeIterator, 
+                    Collection<String> names, Collector<RESULT> collector) {
+                return delegate.select(nodeIterator, names, collector);
+            }
+        };
+
+        final List<String> names = new ArrayList<>(ArticleMetaNames.values());
+        final PropertySchema schema = selector.schema(names);
+
+        assertTrue(schema.hasNames(names));
+        for(int id=0; id<schema.size(); id++) {
+            assertFalse(schema.isMultiValue(id));
+        }
+        assertEquals(delegate.select(HeadFixture.scan(), names, Collectors.toMap()),
+                selector.select(HeadFixture.scan(), schema, Collectors.toMap()));
+    }
+}
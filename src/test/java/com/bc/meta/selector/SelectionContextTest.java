@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.scanner.HeadTagScanner;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SelectionContextTest {
+
+    private static final List<String> NAMES = Arrays.asList(ArticleMetaNames.TITLE, 
+            ArticleMetaNames.DESCRIPTION, ArticleMetaNames.AUTHOR, ArticleMetaNames.DATE_PUBLISHED);
+
+    /** 
+     * The bytes a regex candidate node may allocate per document: the Matcher 
+     * of each regex test it is put to, about 400 bytes in all for the sample rules
+     */
+    private static final long REGEX_CANDIDATE_BUDGET = 512;
+
+    /** An iterator which may be reset, so that iterating allocates nothing */
+    private static final class ArrayIterator<E> implements Iterator<E> {
+        private final E [] elements;
+        private int next;
+        private ArrayIterator(E [] elements) {
+            this.elements = elements;
+        }
+        private ArrayIterator<E> reset() {
+            next = 0;
+            return this;
+        }
+        @Override
+        public boolean hasNext() {
+            return next < elements.length;
+        }
+        @Override
+        public E next() {
+            if(next >= elements.length) {
+                throw new NoSuchElementException();
+            }
+            return elements[next++];
+        }
+    }
+
+    public SelectionContextTest() { }
+
+    @Test
+    public void testSelectIntoContext() throws Exception {
+
+        System.out.println("testSelectIntoContext");
+
+        final Selector<HeadTag> selector = HeadFixture.selector();
+
+        final PropertySchema schema = selector.schema(NAMES);
+        final SelectionContext context = new SelectionContext(schema);
+
+        final Map<String, Object> expected = selector.select(HeadFixture.scan(), NAMES, Collectors.toMap());
+
+        for(int i=0; i<3; i++) {
+            selector.select(HeadFixture.scan(), context);
+            for(String name : NAMES) {
+                assertEquals(expected.get(name), context.get(schema.getId(name)));
+            }
+        }
+
+        selector.select(new HeadTagScanner("<head><meta name=\"author\" content=\"Other\"></head>"), context);
+        assertNull(context.get(schema.getId(ArticleMetaNames.TITLE)));
+        assertEquals("Other", context.getOrDefault(ArticleMetaNames.AUTHOR, null));
+    }
+
+    @Test
+    public void testAllocationPerDocument() throws Exception {
+
+        System.out.println("testAllocationPerDocument");
+
+        if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("Thread allocation is not measurable, skipping");
+            return;
+        }
+
+        final com.sun.management.ThreadMXBean threadMXBean = 
+                (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        if(!threadMXBean.isThreadAllocatedMemorySupported() || !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            System.out.println("Thread allocation is not measurable, skipping");
+            return;
+        }
+
+        final Selector<HeadTag> selector = HeadFixture.selector();
+
+        final List<HeadTag> tags = HeadFixture.tags();
+        final ArrayIterator<HeadTag> nodes = new ArrayIterator<>(tags.toArray(new HeadTag[0]));
+
+        // Regex attribute tests create a Matcher for each test, and the 
+        // article:tag tags are candidates of regex rules. Each is allowed 
+        // REGEX_CANDIDATE_BUDGET bytes per document; nothing else may allocate
+        final long regexCandidates = tags.stream()
+                .filter((tag) -> "article:tag".equals(tag.getAttributeValue("property"))).count();
+        final long budget = regexCandidates * REGEX_CANDIDATE_BUDGET;
+
+        final SelectionContext context = new SelectionContext(selector.schema(NAMES));
+
+        // Warm up, so that the measured code is compiled
+        for(int i=0; i<20_000; i++) {
+            selector.select(nodes.reset(), context);
+        }
+
+        final int documents = 10_000;
+        final long threadId = Thread.currentThread().getId();
+
+        final long mb4 = threadMXBean.getThreadAllocatedBytes(threadId);
+        for(int i=0; i<documents; i++) {
+            selector.select(nodes.reset(), context);
+        }
+        final long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - mb4;
+
+        System.out.println("Allocated " + allocated + " bytes for " + documents + 
+                " documents, budget: " + budget + " bytes per document");
+
+        assertEquals("The title", context.getOrDefault(ArticleMetaNames.TITLE, null));
+        // Allow for the measurement itself, but for nothing per document beyond the budget
+        assertTrue("Allocated " + allocated + " bytes for " + documents + " documents", 
+                allocated < documents * (budget + 1));
+    }
+}
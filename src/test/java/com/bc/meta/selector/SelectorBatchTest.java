@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bc.meta.selector;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.scanner.HeadTagScanner;
+import com.bc.meta.selector.util.SelectionExecutors;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class SelectorBatchTest {
+
+    private static final int DOCUMENT_COUNT = 200;
+
+    public SelectorBatchTest() { }
+
+    @Test
+    public void testSelectAll() throws IOException, ParseException {
+
+        System.out.println("testSelectAll");
+
+        final Selector<HeadTag> selector = this.getSelector();
+
+        final Set<String> names = ArticleMetaNames.values();
+
+        final List<Supplier<Iterator<HeadTag>>> documents = this.getDocuments();
+
+        final List<Map<String, Object>> expected = new ArrayList<>(documents.size());
+        for(Supplier<Iterator<HeadTag>> document : documents) {
+            expected.add(selector.select(document.get(), names, Collectors.toMap()));
+        }
+
+        assertEquals(expected, selector.selectAll(documents, names, () -> Collectors.toMap()));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try{
+            assertEquals(expected, selector.selectAll(documents, names, () -> Collectors.toMap(), executor));
+        }finally{
+            executor.shutdown();
+        }
+
+        assertEquals(expected, selector.selectAll(documents.parallelStream(), names, () -> Collectors.toMap()));
+    }
+
+    @Test
+    public void testSelectAsync() throws IOException, ParseException {
+
+        System.out.println("testSelectAsync");
+
+        final Selector<HeadTag> selector = this.getSelector();
+
+        final Set<String> names = ArticleMetaNames.values();
+
+        final List<Supplier<Iterator<HeadTag>>> documents = this.getDocuments();
+
+        final List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>(documents.size());
+        for(Supplier<Iterator<HeadTag>> document : documents) {
+            futures.add(selector.selectAsync(document, names, Collectors.toMap(), SelectionExecutors.perTask()));
+        }
+
+        for(int i=0; i<documents.size(); i++) {
+            assertEquals(selector.select(documents.get(i).get(), names, Collectors.toMap()), futures.get(i).join());
+        }
+
+        final CompletableFuture<Map<String, Object>> failed = selector.selectAsync(
+                () -> { throw new IllegalStateException(); }, names, Collectors.toMap());
+        try{
+            failed.join();
+            fail("Expected an exception");
+        }catch(CompletionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testSelectAllThrowsFirstFailure() throws IOException, ParseException {
+
+        System.out.println("testSelectAllThrowsFirstFailure");
+
+        final Selector<HeadTag> selector = this.getSelector();
+
+        final List<Supplier<Iterator<HeadTag>>> documents = new ArrayList<>(this.getDocuments());
+        documents.add(1, () -> { throw new IllegalStateException("1"); });
+        documents.add(3, () -> { throw new IllegalStateException("3"); });
+
+        try{
+            selector.selectAll(documents, ArticleMetaNames.values(), () -> Collectors.toMap());
+            fail("Expected an exception");
+        }catch(IllegalStateException expected) {
+            assertEquals("1", expected.getMessage());
+        }
+    }
+
+    private Selector<HeadTag> getSelector() throws IOException, ParseException {
+
+        return HeadFixture.selector();
+    }
+
+    private List<Supplier<Iterator<HeadTag>>> getDocuments() {
+        final List<Supplier<Iterator<HeadTag>>> documents = new ArrayList<>(DOCUMENT_COUNT);
+        for(int i=0; i<DOCUMENT_COUNT; i++) {
+            final String html = this.getHtml(i);
+            documents.add(() -> new HeadTagScanner(html));
+        }
+        return documents;
+    }
+
+    private String getHtml(int i) {
+        final StringBuilder html = new StringBuilder("<html><head>\n")
+                .append("<title>Title ").append(i).append("</title>\n")
+                .append("<meta name=\"description\" content=\"Description ").append(i).append("\">\n");
+        if(i % 2 == 0) {
+            html.append("<meta property=\"og:title\" content=\"OG title ").append(i).append("\">\n");
+        }
+        if(i % 3 == 0) {
+            html.append("<meta name=\"author\" content=\"Author ").append(i).append("\">\n");
+        }
+        for(int k=0; k<i % 4; k++) {
+            html.append("<meta property=\"article:tag\" content=\"tag").append(k).append("\">\n");
+        }
+        return html.append("</head><body><p>Body</p></body></html>").toString();
+    }
+}
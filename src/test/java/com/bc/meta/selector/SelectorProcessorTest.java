@@ -0,0 +1,297 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.scanner.HeadTagScanner;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class SelectorProcessorTest {
+
+    /**
+     * Publishes documents synchronously, on the thread which requests them.
+     */
+    private static final class DocumentPublisher implements Flow.Publisher<Iterable<HeadTag>> {
+        private final List<String> documents;
+        private final AtomicInteger parsed = new AtomicInteger();
+        private DocumentPublisher(List<String> documents) {
+            this.documents = documents;
+        }
+        @Override
+        public void subscribe(Flow.Subscriber<? super Iterable<HeadTag>> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private int next;
+                private long demand;
+                private boolean emitting;
+                private boolean cancelled;
+                @Override
+                public void request(long n) {
+                    demand += n;
+                    if(emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while(demand > 0 && !cancelled && next < documents.size()) {
+                        --demand;
+                        final String html = documents.get(next++);
+                        final Iterable<HeadTag> document = () -> {
+                            parsed.incrementAndGet();
+                            return new HeadTagScanner(html);
+                        };
+                        subscriber.onNext(document);
+                    }
+                    emitting = false;
+                    if(!cancelled && next == documents.size()) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    /** Runs selection on the calling thread, so that demand can be asserted */
+    private static final Executor DIRECT = Runnable::run;
+
+    private static final class ResultSubscriber implements Flow.Subscriber<Map<String, Object>> {
+        private final List<Map<String, Object>> results = new ArrayList<>();
+        private final List<Thread> threads = new ArrayList<>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private final int initialDemand;
+        private final boolean requestOnNext;
+        private Flow.Subscription subscription;
+        private boolean completed;
+        private Throwable error;
+        private ResultSubscriber(int initialDemand, boolean requestOnNext) {
+            this.initialDemand = initialDemand;
+            this.requestOnNext = requestOnNext;
+        }
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialDemand);
+        }
+        @Override
+        public void onNext(Map<String, Object> item) {
+            results.add(item);
+            threads.add(Thread.currentThread());
+            if(requestOnNext) {
+                subscription.request(1);
+            }
+        }
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+        @Override
+        public void onComplete() {
+            completed = true;
+            terminated.countDown();
+        }
+    }
+
+    public SelectorProcessorTest() { }
+
+    @Test
+    public void testOneResultPerDocument() throws IOException, ParseException, InterruptedException {
+
+        System.out.println("testOneResultPerDocument");
+
+        final Selector<HeadTag> selector = this.getSelector();
+
+        final List<String> documents = this.getDocuments(50);
+
+        final SelectorProcessor<HeadTag, Map<String, Object>> processor = new SelectorProcessor<>(
+                selector, ArticleMetaNames.values(), () -> Collectors.toMap());
+
+        final ResultSubscriber subscriber = new ResultSubscriber(1, true);
+        processor.subscribe(subscriber);
+        new DocumentPublisher(documents).subscribe(processor);
+
+        assertTrue(subscriber.terminated.await(10, TimeUnit.SECONDS));
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+        assertEquals(documents.size(), subscriber.results.size());
+        assertTrue(!subscriber.threads.contains(Thread.currentThread()));
+        for(int i=0; i<documents.size(); i++) {
+            assertEquals(selector.select(new HeadTagScanner(documents.get(i)), 
+                    ArticleMetaNames.values(), Collectors.toMap()), subscriber.results.get(i));
+        }
+    }
+
+    @Test
+    public void testBackpressure() throws IOException, ParseException {
+
+        System.out.println("testBackpressure");
+
+        final DocumentPublisher publisher = new DocumentPublisher(this.getDocuments(10));
+
+        final SelectorProcessor<HeadTag, Map<String, Object>> processor = new SelectorProcessor<>(
+                this.getSelector(), ArticleMetaNames.values(), () -> Collectors.toMap(), DIRECT);
+
+        final ResultSubscriber subscriber = new ResultSubscriber(3, false);
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        assertEquals(3, subscriber.results.size());
+        assertEquals(3, publisher.parsed.get());
+
+        subscriber.subscription.request(2);
+
+        assertEquals(5, subscriber.results.size());
+        assertEquals(5, publisher.parsed.get());
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(5);
+
+        assertEquals(5, publisher.parsed.get());
+        assertTrue(!subscriber.completed);
+    }
+
+    @Test
+    public void testSelectionFailure() throws IOException, ParseException {
+
+        System.out.println("testSelectionFailure");
+
+        final SelectorProcessor<HeadTag, Map<String, Object>> processor = new SelectorProcessor<>(
+                this.getSelector(), ArticleMetaNames.values(), () -> Collectors.toMap(), DIRECT);
+
+        final ResultSubscriber subscriber = new ResultSubscriber(Integer.MAX_VALUE, false);
+        processor.subscribe(subscriber);
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) { }
+            @Override
+            public void cancel() { }
+        });
+        processor.onNext(() -> { throw new IllegalStateException(); });
+        processor.onNext(() -> new HeadTagScanner(""));
+        processor.onComplete();
+
+        assertTrue(subscriber.error instanceof IllegalStateException);
+        assertTrue(subscriber.results.isEmpty());
+        assertTrue(!subscriber.completed);
+    }
+
+    @Test
+    public void testNonPositiveRequest() throws IOException, ParseException {
+
+        System.out.println("testNonPositiveRequest");
+
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        final SelectorProcessor<HeadTag, Map<String, Object>> processor = new SelectorProcessor<>(
+                this.getSelector(), ArticleMetaNames.values(), () -> Collectors.toMap(), tasks::add);
+
+        final ResultSubscriber subscriber = new ResultSubscriber(1, false);
+        processor.subscribe(subscriber);
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) { }
+            @Override
+            public void cancel() { }
+        });
+        processor.onNext(() -> new HeadTagScanner(this.getDocuments(1).get(0)));
+        subscriber.subscription.request(0);
+
+        // Not signalled on the requesting thread, but after the pending onNext
+        assertNull(subscriber.error);
+        while(!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+        assertEquals(1, subscriber.results.size());
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void testCancelDuringSelection() throws IOException, ParseException {
+
+        System.out.println("testCancelDuringSelection");
+
+        final SelectorProcessor<HeadTag, Map<String, Object>> processor = new SelectorProcessor<>(
+                this.getSelector(), ArticleMetaNames.values(), () -> Collectors.toMap(), DIRECT);
+
+        final ResultSubscriber subscriber = new ResultSubscriber(1, false);
+        processor.subscribe(subscriber);
+        processor.onNext(() -> {
+            subscriber.subscription.cancel();
+            return new HeadTagScanner(this.getDocuments(1).get(0));
+        });
+
+        assertTrue(subscriber.results.isEmpty());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testNullDocument() throws IOException, ParseException {
+
+        System.out.println("testNullDocument");
+
+        final SelectorProcessor<HeadTag, Map<String, Object>> processor = new SelectorProcessor<>(
+                this.getSelector(), ArticleMetaNames.values(), () -> Collectors.toMap(), DIRECT);
+
+        final ResultSubscriber subscriber = new ResultSubscriber(1, false);
+        processor.subscribe(subscriber);
+        try{
+            processor.onNext(null);
+            fail("Expected NullPointerException");
+        }catch(NullPointerException expected) { }
+
+        assertNull(subscriber.error);
+        assertTrue(!subscriber.completed);
+    }
+
+    private Selector<HeadTag> getSelector() throws IOException, ParseException {
+
+        return HeadFixture.selector();
+    }
+
+    private List<String> getDocuments(int count) {
+        final List<String> documents = new ArrayList<>(count);
+        for(int i=0; i<count; i++) {
+            documents.add("<html><head><title>Title " + i + "</title>" +
+                    "<meta name=\"description\" content=\"Description " + i + "\">" +
+                    "<meta property=\"article:tag\" content=\"tag" + (i % 3) + "\">" +
+                    "</head><body></body></html>");
+        }
+        return documents;
+    }
+}
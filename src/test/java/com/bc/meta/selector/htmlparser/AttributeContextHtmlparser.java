@@ -21,17 +21,20 @@ import java.util.Map;
 import java.util.WeakHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
+import java.util.Vector;
+import org.htmlparser.Attribute;
 import org.htmlparser.Node;
 import org.htmlparser.Tag;
 import org.htmlparser.filters.HasAttributeFilter;
 import org.htmlparser.filters.HasAttributeRegexFilter;
+import com.bc.meta.selector.AttributeProvider;
 import com.bc.meta.selector.AttributeTestProvider;
 
 /**
  * @author Chinomso Bassey Ikwuagwu on Jun 15, 2018 10:39:50 AM
  */
 public class AttributeContextHtmlparser 
-        implements AttributeTestProvider<Node>, BiFunction<String, Node, String> {
+        implements AttributeTestProvider<Node>, AttributeProvider<Node>, BiFunction<String, Node, String> {
     
     private final boolean useCache;
     
@@ -74,6 +77,22 @@ public class AttributeContextHtmlparser
         return test;
     }
 
+    @Override
+    public int getAttributeCount(Node node) {
+        final Vector attributes = node instanceof Tag ? ((Tag)node).getAttributesEx() : null;
+        return attributes == null ? 0 : attributes.size();
+    }
+
+    @Override
+    public String getAttributeName(Node node, int index) {
+        return ((Attribute)((Tag)node).getAttributesEx().get(index)).getName();
+    }
+
+    @Override
+    public String getAttributeValue(Node node, int index) {
+        return ((Attribute)((Tag)node).getAttributesEx().get(index)).getValue();
+    }
+
     @Override
     public String apply(String propertyName, Node node) {
         final String value;
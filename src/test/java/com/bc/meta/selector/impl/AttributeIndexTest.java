@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.impl;
+
+import com.bc.meta.selector.FilterContext;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.scanner.AttributeContextHeadTag;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.util.AttributeRule;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class AttributeIndexTest {
+
+    private final Predicate<HeadTag> none = (tag) -> false;
+
+    private final AttributeContextHeadTag attributeContext = new AttributeContextHeadTag();
+
+    public AttributeIndexTest() { }
+
+    @Test
+    public void testSameAsPredicates() {
+
+        System.out.println("testSameAsPredicates");
+
+        final Map config = this.getConfig();
+        final AttributeIndex<HeadTag> index = this.newIndex(config);
+        final FilterContext<HeadTag> filterCtx = new FilterContextImpl<>(attributeContext, config);
+
+        final BitSet matched = new BitSet();
+
+        int matches = 0;
+
+        for(HeadTag node : this.getNodes()) {
+
+            matched.clear();
+            index.match(node, matched);
+
+            for(Object name : config.keySet()) {
+                final int id = index.getId(name.toString());
+                final boolean expected = filterCtx.or(name.toString(), none).test(node);
+                assertEquals(name + " " + node, expected, matched.get(id));
+                assertEquals(name + " " + node, expected, index.apply(name.toString()).test(node));
+                if(expected) {
+                    ++matches;
+                }
+            }
+        }
+
+        // Every rule of the config matches at least one node
+        assertTrue(matches >= 8);
+    }
+
+    @Test
+    public void testPropertyWithoutRules() {
+
+        System.out.println("testPropertyWithoutRules");
+
+        final AttributeIndex<HeadTag> index = this.newIndex(this.getConfig());
+
+        assertSame(none, index.apply("locale"));
+        assertEquals(-1, index.getId("unknown"));
+        assertEquals(null, index.apply("unknown"));
+
+        final BitSet matched = new BitSet();
+        for(HeadTag node : this.getNodes()) {
+            index.match(node, matched);
+        }
+        assertTrue(!matched.get(index.getId("locale")));
+    }
+
+    @Test
+    public void testFirstMatchInNameOrder() {
+
+        System.out.println("testFirstMatchInNameOrder");
+
+        final AttributeIndex<HeadTag> index = this.newIndex(this.getConfig());
+
+        final Selector<HeadTag> indexed = new SelectorImpl<>(index, attributeContext, (name) -> false);
+        // Hides the index, so that each property's test is applied in turn
+        final Selector<HeadTag> interpreted = new SelectorImpl<>(
+                (name) -> index.apply(name), attributeContext, (name) -> false);
+
+        final List<HeadTag> nodes = Arrays.asList(
+                this.meta("property", "og:title", "content", "First"),
+                this.meta("property", "og:title", "content", "Second"));
+
+        for(Selector<HeadTag> selector : Arrays.asList(indexed, interpreted)) {
+
+            // Each node goes to the first incomplete name it matches, in the order requested
+            final Map<String, Object> titleFirst = selector.select(
+                    nodes.iterator(), Arrays.asList("title", "headline"), Collectors.toMap());
+            assertEquals("First", titleFirst.get("title"));
+            assertEquals("Second", titleFirst.get("headline"));
+
+            final Map<String, Object> headlineFirst = selector.select(
+                    nodes.iterator(), Arrays.asList("headline", "title"), Collectors.toMap());
+            assertEquals("First", headlineFirst.get("headline"));
+            assertEquals("Second", headlineFirst.get("title"));
+        }
+
+        final List<String> names = new ArrayList<>(this.getConfig().keySet());
+        assertEquals(interpreted.select(this.getNodes().iterator(), names, Collectors.toMap()), 
+                indexed.select(this.getNodes().iterator(), names, Collectors.toMap()));
+    }
+
+    /**
+     * Covers exact rules, rules of more than one condition, regex rules with 
+     * and without a required literal, mixed case attribute names, two properties 
+     * with the same rule and a property with no rules.
+     */
+    private Map getConfig() {
+        final Map<String, List<Map>> config = new LinkedHashMap<>();
+        config.put("title", Arrays.asList(this.rule("property", "og:title"), this.rule("Name", "title")));
+        config.put("headline", Arrays.asList(this.rule("property", "og:title")));
+        config.put("image", Arrays.asList(this.rule("property", "og:image", "content", "regex(\\.jpe?g$)")));
+        config.put("type", Arrays.asList(this.rule("itemprop", "type", "itemscope", "article")));
+        config.put("author", Arrays.asList(this.rule("name", "regex(^author$)")));
+        config.put("keywords", Arrays.asList(this.rule("name", "regex(^(keywords|tags)$)")));
+        config.put("locale", Collections.EMPTY_LIST);
+        return config;
+    }
+
+    private List<HeadTag> getNodes() {
+        return Arrays.asList(
+                this.meta("property", "og:title", "content", "The title"),
+                this.meta("name", "title", "content", "A title"),
+                this.meta("PROPERTY", "og:title", "content", "Upper case"),
+                this.meta("property", "og:image", "content", "a.jpg"),
+                this.meta("property", "og:image", "content", "a.png"),
+                this.meta("itemprop", "type", "itemscope", "article"),
+                this.meta("itemprop", "type", "itemscope", "person"),
+                this.meta("itemprop", "type"),
+                this.meta("name", "author", "content", "The author"),
+                this.meta("name", "AUTHOR", "content", "Upper case"),
+                this.meta("name", "co-author", "content", "Not the author"),
+                this.meta("name", "tags", "content", "a, b"),
+                this.meta("name", "description", "content", "The description"),
+                new HeadTag("link", new String[]{"rel", "href"}, new String[]{"canonical", "/page"}, null),
+                new HeadTag("html"));
+    }
+
+    private AttributeIndex<HeadTag> newIndex(Map config) {
+        final Map<String, List<AttributeRule>> rules = new LinkedHashMap<>();
+        for(Object name : config.keySet()) {
+            final List<AttributeRule> propertyRules = new ArrayList<>();
+            for(Object rule : (List)config.get(name)) {
+                propertyRules.add(AttributeRule.of((Map)rule));
+            }
+            rules.put(name.toString(), propertyRules);
+        }
+        return new AttributeIndex<>(attributeContext, rules, none);
+    }
+
+    private Map<String, String> rule(String... nameValuePairs) {
+        final Map<String, String> output = new LinkedHashMap<>();
+        for(int i=0; i<nameValuePairs.length; i+=2) {
+            output.put(nameValuePairs[i], nameValuePairs[i + 1]);
+        }
+        return output;
+    }
+
+    private HeadTag meta(String... nameValuePairs) {
+        final String [] names = new String[nameValuePairs.length / 2];
+        final String [] values = new String[names.length];
+        for(int i=0; i<names.length; i++) {
+            names[i] = nameValuePairs[i * 2];
+            values[i] = nameValuePairs[i * 2 + 1];
+        }
+        return new HeadTag("meta", names, values, null);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.impl;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.selector.HeadFixture;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.SelectorBuilder;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.scanner.HeadTagScanner;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class CollectorsTest {
+
+    public static class Article {
+        private String title;
+        private Set<String> tagSet;
+        private int count;
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+        public Set<String> getTagSet() { return tagSet; }
+        public void setTagSet(Set<String> tagSet) { this.tagSet = tagSet; }
+        public void setTagSet(Object tagSet) { throw new AssertionError("Less specific setter used"); }
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+    }
+
+    public CollectorsTest() { }
+
+    @Test
+    public void testCollectIntoBean() {
+
+        System.out.println("testCollectIntoBean");
+
+        final Article article = new Article();
+        final Selector.Collector<Article> collector = Collectors.toBean(article);
+
+        assertNull(collector.getOrDefault("title", null));
+        assertEquals("none", collector.getOrDefault("title", "none"));
+
+        collector.put("title", "The title");
+        collector.put("tagSet", new LinkedHashSet<>(Arrays.asList("a", "b")));
+        collector.put("count", 3);
+
+        assertEquals("The title", collector.getOrDefault("title", null));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("a", "b")), collector.getOrDefault("tagSet", null));
+        assertEquals(3, collector.getOrDefault("count", null));
+        assertSame(article, collector.buildResult());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testNoSuchProperty() {
+
+        System.out.println("testNoSuchProperty");
+
+        Collectors.toBean(new Article()).put("author", Collections.emptySet());
+    }
+
+    @Test
+    public void testSelectIntoBean() throws Exception {
+
+        System.out.println("testSelectIntoBean");
+
+        final SelectorBuilder<HeadTag, String, Object> builder = HeadFixture.selectorBuilder();
+        builder.filter().propertyNames(ArticleMetaNames.TITLE, ArticleMetaNames.TAG_SET);
+        final Selector<HeadTag> selector = builder.build();
+
+        final Article article = selector.select(new HeadTagScanner(
+                "<head><meta property=\"og:title\" content=\"The title\">" +
+                "<meta property=\"article:tag\" content=\"tag1\">" +
+                "<meta property=\"article:tag\" content=\"tag2\"></head>"), 
+                Arrays.asList(ArticleMetaNames.TITLE, ArticleMetaNames.TAG_SET), 
+                Collectors.toBean(new Article()));
+
+        assertEquals("The title", article.getTitle());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("tag1", "tag2")), article.getTagSet());
+    }
+}
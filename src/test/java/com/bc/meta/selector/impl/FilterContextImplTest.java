@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.impl;
+
+import com.bc.meta.selector.FilterContext;
+import com.bc.meta.selector.scanner.AttributeContextHeadTag;
+import com.bc.meta.selector.scanner.HeadTag;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class FilterContextImplTest {
+
+    private final Predicate<HeadTag> none = (tag) -> false;
+
+    public FilterContextImplTest() { }
+
+    @Test
+    public void testPredicatesAreCompiledOnce() {
+
+        System.out.println("testPredicatesAreCompiledOnce");
+
+        final FilterContext<HeadTag> filterCtx = this.newFilterContext();
+
+        assertEquals(2, filterCtx.getCount("title"));
+        assertSame(filterCtx.get("title", 0, none), filterCtx.get("title", 0, none));
+        assertSame(none, filterCtx.get("title", 1, none));
+        assertEquals(1, filterCtx.getAll("title").size());
+        assertEquals(0, filterCtx.getCount("unknown"));
+
+        final HeadTag tag = new HeadTag("meta",
+                new String[]{"property", "content"}, new String[]{"og:title", "x"}, null);
+        assertTrue(filterCtx.get("title", 0, none).test(tag));
+    }
+
+    @Test
+    public void testCompositeAndPair() {
+
+        System.out.println("testCompositeAndPair");
+
+        final FilterContext<HeadTag> lhs = this.newFilterContext();
+        final FilterContext<HeadTag> rhs = this.newFilterContext();
+
+        final FilterContext<HeadTag> composite = new FilterContextComposite<>(false, lhs, rhs);
+        final FilterContext<HeadTag> pair = lhs.or(rhs);
+
+        final HeadTag tag = new HeadTag("meta",
+                new String[]{"name", "content"}, new String[]{"title", "x"}, null);
+
+        for(FilterContext<HeadTag> filterCtx : Arrays.asList(composite, pair)) {
+            assertEquals(2, filterCtx.getCount("title"));
+            assertSame(filterCtx.get("title", 0, none), filterCtx.get("title", 0, none));
+            assertFalse(filterCtx.get("title", 0, none).test(tag));
+        }
+        // A rule without conditions in the delegates falls back to the output if none
+        assertTrue(composite.get("title", 1, (t) -> true).test(tag));
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+
+        System.out.println("testSerialization");
+
+        final FilterContext<HeadTag> lhs = this.newFilterContext();
+        final FilterContext<HeadTag> composite = new FilterContextComposite<>(false, lhs, this.newFilterContext());
+
+        final HeadTag tag = new HeadTag("meta",
+                new String[]{"property", "content"}, new String[]{"og:title", "x"}, null);
+
+        for(FilterContext<HeadTag> filterCtx : Arrays.asList(lhs, composite)) {
+            // Compiled before serialization, then compiled again after
+            assertTrue(filterCtx.get("title", 0, none).test(tag));
+            final FilterContext<HeadTag> copy = this.copy(filterCtx);
+            assertEquals(2, copy.getCount("title"));
+            assertSame(copy.get("title", 0, none), copy.get("title", 0, none));
+            assertTrue(copy.get("title", 0, none).test(tag));
+        }
+    }
+
+    private <T> T copy(T object) throws IOException, ClassNotFoundException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T)in.readObject();
+        }
+    }
+
+    private FilterContext<HeadTag> newFilterContext() {
+        final Map<String, String> rule = new LinkedHashMap<>();
+        rule.put("property", "og:title");
+        final List<Map> rules = Arrays.asList(rule, Collections.emptyMap());
+        final Map config = new HashMap();
+        config.put("title", rules);
+        return new FilterContextImpl<>(new AttributeContextHeadTag(), config);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.impl;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.impl.ArticleMetaNameIsMultiValue;
+import com.bc.meta.selector.AttributeTestProvider;
+import com.bc.meta.selector.HeadFixture;
+import com.bc.meta.selector.JsonParserImpl;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.scanner.AttributeContextHeadTag;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.util.AttributeRule;
+import com.bc.meta.selector.util.PropertiesParser;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class MatcherSourceGeneratorTest {
+
+    public MatcherSourceGeneratorTest() { }
+
+    @Test
+    public void testToConstantName() {
+
+        System.out.println("testToConstantName");
+
+        final MatcherSourceGenerator generator = new MatcherSourceGenerator();
+
+        assertEquals("TAG_SET", generator.toConstantName("tagSet"));
+        assertEquals("OG_TITLE", generator.toConstantName("og:title"));
+        assertEquals("P_1ST", generator.toConstantName("1st"));
+        assertEquals(Arrays.asList("TITLE", "TITLE_2", "PROPERTY_COUNT_2"), generator.getConstantNames(
+                new LinkedHashSet<>(Arrays.asList("title", "TITLE", "propertyCount"))));
+    }
+
+    @Test
+    public void testGeneratedMatcher() throws Exception {
+
+        System.out.println("testGeneratedMatcher");
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(compiler == null) {
+            System.out.println("No system Java compiler, skipping");
+            return;
+        }
+
+        final FilterBuilderImpl<HeadTag, Object> filterBuilder = HeadFixture.filterBuilder();
+
+        final Map<String, List<AttributeRule>> rules = filterBuilder.buildRules(new PropertiesParser(
+                new PropertiesParser.DefaultStreamProvider(), new JsonParserImpl(), "UTF-8", false));
+
+        // Each condition is compiled into a test once, no index is built
+        int conditions = 0;
+        for(List<AttributeRule> propertyRules : rules.values()) {
+            for(AttributeRule rule : propertyRules) {
+                conditions += rule.getCount();
+            }
+        }
+        final AtomicInteger testsProvided = new AtomicInteger();
+        final AttributeContextHeadTag attributeContext = new AttributeContextHeadTag() {
+            @Override
+            public Predicate<HeadTag> getAttributeTest(String attributeName, String attributeValue) {
+                testsProvided.incrementAndGet();
+                return super.getAttributeTest(attributeName, attributeValue);
+            }
+            @Override
+            public Predicate<HeadTag> getAttributeRegexTest(String attributeName, String attributeValue) {
+                testsProvided.incrementAndGet();
+                return super.getAttributeRegexTest(attributeName, attributeValue);
+            }
+        };
+
+        final AttributeIndex<HeadTag> generated = this.generate(compiler, "ArticleMatcher", rules, attributeContext);
+
+        assertEquals(0, generated.getClass().getField(new MatcherSourceGenerator().toConstantName(
+                rules.keySet().iterator().next())).getInt(null));
+
+        assertEquals(conditions, testsProvided.get());
+
+        assertEquals(this.select(filterBuilder.build()), this.select(generated));
+    }
+
+    @Test
+    public void testGeneratedRules() throws Exception {
+
+        System.out.println("testGeneratedRules");
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(compiler == null) {
+            System.out.println("No system Java compiler, skipping");
+            return;
+        }
+
+        // Rules indexed on an exact condition which is not the first, with remainders, and scanned
+        final Map<String, List<AttributeRule>> rules = new LinkedHashMap<>();
+        rules.put("emptyFirst", Arrays.asList(this.rule("name", "", "property", "og:title")));
+        rules.put("remainder", Arrays.asList(this.rule("property", "og:title", "content", "regex(Title)")));
+        rules.put("literal", Arrays.asList(this.rule("property", "regex(article:tag)")));
+        rules.put("scanned", Arrays.asList(this.rule("name", "regex(^d.*)")));
+        rules.put("none", Collections.emptyList());
+
+        final AttributeContextHeadTag attributeContext = new AttributeContextHeadTag();
+        final AttributeIndex<HeadTag> interpreted = new AttributeIndex<>(attributeContext, rules, (node) -> false);
+        final AttributeIndex<HeadTag> generated = this.generate(compiler, "RulesMatcher", rules, attributeContext);
+
+        final List<HeadTag> tags = new ArrayList<>(HeadFixture.tags());
+        tags.add(new HeadTag("meta", new String[]{"name", "property"}, new String[]{"", "og:title"}, null));
+        tags.add(new HeadTag("meta", new String[]{"name", "property"}, new String[]{"x", "og:title"}, null));
+
+        int matches = 0;
+        for(HeadTag tag : tags) {
+            final BitSet expected = new BitSet();
+            interpreted.match(tag, expected);
+            final BitSet actual = new BitSet();
+            generated.match(tag, actual);
+            assertEquals(tag.toString(), expected, actual);
+            matches += actual.cardinality();
+        }
+        assertTrue(matches > 0);
+
+        for(String name : rules.keySet()) {
+            assertEquals(interpreted.getId(name), generated.getId(name));
+            for(HeadTag tag : tags) {
+                assertEquals(interpreted.apply(name).test(tag), generated.apply(name).test(tag));
+            }
+        }
+    }
+
+    private AttributeRule rule(String... nameValues) {
+        final Map<String, String> attrCfg = new LinkedHashMap<>();
+        for(int i=0; i<nameValues.length; i+=2) {
+            attrCfg.put(nameValues[i], nameValues[i + 1]);
+        }
+        return AttributeRule.of(attrCfg);
+    }
+
+    private AttributeIndex<HeadTag> generate(JavaCompiler compiler, String simpleName, 
+            Map<String, List<AttributeRule>> rules, AttributeContextHeadTag attributeContext) throws Exception {
+
+        final String source = new MatcherSourceGenerator().generate("generated." + simpleName, rules);
+
+        System.out.println(source);
+
+        final Path dir = Files.createTempDirectory("bcmetaselector");
+        final Path sourceFile = dir.resolve("generated/" + simpleName + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+
+        final int status = compiler.run(null, null, null, "-cp", System.getProperty("java.class.path"),
+                "-d", dir.toString(), sourceFile.toString());
+        assertEquals(source, 0, status);
+
+        try(URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, this.getClass().getClassLoader())) {
+            final Class<?> type = classLoader.loadClass("generated." + simpleName);
+            return (AttributeIndex<HeadTag>)type.getConstructor(AttributeTestProvider.class)
+                    .newInstance(attributeContext);
+        }
+    }
+
+    private Map<String, Object> select(Function<String, Predicate<HeadTag>> nodeTestProvider) 
+            throws IOException, ParseException {
+        final Selector<HeadTag> selector = Selector.<HeadTag, String, Object>builder()
+                .nodeTestProvider(nodeTestProvider)
+                .multiValueTest(new ArticleMetaNameIsMultiValue())
+                .nodeValueExtractor(new AttributeContextHeadTag())
+                .build();
+        final Map<String, Object> result = selector.select(HeadFixture.scan(), 
+                ArticleMetaNames.values(), Collectors.toMap());
+        System.out.println(result);
+        return result;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PredicatesTest {
+
+    private final Predicate<String> a = (s) -> s.contains("a");
+    private final Predicate<String> b = (s) -> s.contains("b");
+    private final Predicate<String> c = (s) -> s.contains("c");
+
+    private static final int TESTS_PER_REORDER = Predicates.AdaptiveAnyOf.REORDER_SAMPLES;
+
+    /** Samples every test and times every operand alike, so that the order follows the hits */
+    private final BooleanSupplier always = () -> true;
+    private final LongSupplier stopped = () -> 0L;
+
+    public PredicatesTest() { }
+
+    @Test
+    public void testFlatten() {
+
+        System.out.println("testFlatten");
+
+        final Predicate<String> any = Predicates.or(Predicates.or(a, b), Predicates.or(b, c));
+        assertEquals(Arrays.asList(a, b, c), ((Predicates.AnyOf<String>)any).getOperands());
+        assertTrue(any.test("c"));
+        assertFalse(any.test("d"));
+
+        final Predicate<String> all = Predicates.and(a, b).and(c);
+        assertEquals(Arrays.asList(a, b, c), ((Predicates.AllOf<String>)all).getOperands());
+        assertTrue(all.test("abc"));
+        assertFalse(all.test("ab"));
+
+        // Junctions of a different kind are operands
+        final Predicate<String> mixed = Predicates.or(all, a);
+        assertEquals(Arrays.asList(all, a), ((Predicates.AnyOf<String>)mixed).getOperands());
+    }
+
+    @Test
+    public void testNormalize() {
+
+        System.out.println("testNormalize");
+
+        assertSame(a, Predicates.and(a, null));
+        assertSame(a, Predicates.or(null, a));
+        assertSame(a, Predicates.anyOf(Arrays.asList(a, null, a)));
+        assertNull(Predicates.allOf(Collections.emptyList()));
+        assertEquals(Predicates.and(a, b), Predicates.allOf(Arrays.asList(a, b)));
+    }
+
+    @Test
+    public void testAdaptive() {
+
+        System.out.println("testAdaptive");
+
+        final Predicate<String> any = Predicates.anyOf(Arrays.asList(a, b, c));
+        final Predicates.AdaptiveAnyOf<String> adaptive = 
+                (Predicates.AdaptiveAnyOf<String>)Predicates.adaptive(any, always, stopped);
+        assertSame(a, Predicates.adaptive(a));
+        assertTrue(Predicates.adaptive(any) instanceof Predicates.AdaptiveAnyOf);
+
+        for(int i=0; i<TESTS_PER_REORDER * 4; i++) {
+            final String input = i % 10 == 0 ? "x" : "c";
+            assertEquals(any.test(input), adaptive.test(input));
+        }
+
+        // The operand which most often matches is now tried first
+        assertSame(c, adaptive.getOrderedOperands().get(0));
+        assertEquals(Arrays.asList(a, b, c), adaptive.getOperands());
+        assertTrue(adaptive.test("a"));
+        assertFalse(adaptive.test("x"));
+    }
+
+    @Test
+    public void testAdaptiveConcurrently() throws Exception {
+
+        System.out.println("testAdaptiveConcurrently");
+
+        final Predicate<String> any = Predicates.anyOf(Arrays.asList(a, b, c));
+        final Predicates.AdaptiveAnyOf<String> adaptive = 
+                (Predicates.AdaptiveAnyOf<String>)Predicates.adaptive(any, always, stopped);
+
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try{
+            final List<Future<Integer>> futures = new ArrayList<>(threads);
+            for(int t=0; t<threads; t++) {
+                final int seed = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int mismatches = 0;
+                    for(int i=0; i<TESTS_PER_REORDER * 4; i++) {
+                        final String input = (i + seed) % 10 == 0 ? "x" : (i + seed) % 10 == 1 ? "ab" : "c";
+                        if(any.test(input) != adaptive.test(input)) {
+                            ++mismatches;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            start.countDown();
+            for(Future<Integer> future : futures) {
+                assertEquals(0, (int)future.get(30, TimeUnit.SECONDS));
+            }
+        }finally{
+            executor.shutdown();
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(a, b, c)), new HashSet<>(adaptive.getOrderedOperands()));
+
+        // Whatever the concurrent samples, a full re-order window of hits on c puts c first
+        for(int i=0; i<TESTS_PER_REORDER * 2; i++) {
+            assertTrue(adaptive.test("c"));
+        }
+        assertSame(c, adaptive.getOrderedOperands().get(0));
+    }
+
+    @Test
+    public void testAdaptiveSerialization() throws IOException, ClassNotFoundException {
+
+        System.out.println("testAdaptiveSerialization");
+
+        final Predicate<String> x = (Predicate<String> & Serializable)(s) -> s.contains("x");
+        final Predicate<String> y = (Predicate<String> & Serializable)(s) -> s.contains("y");
+        final Predicate<String> adaptive = Predicates.adaptive(Predicates.or(x, y));
+        for(int i=0; i<Predicates.AdaptiveAnyOf.SAMPLE_PERIOD * 4; i++) {
+            adaptive.test("y");
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(adaptive);
+        }
+        final Predicate<String> copy;
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Predicate<String>)in.readObject();
+        }
+
+        assertTrue(copy instanceof Predicates.AdaptiveAnyOf);
+        assertTrue(copy.test("y"));
+        assertFalse(copy.test("z"));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.impl;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.selector.HeadFixture;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.scanner.HeadTag;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class SelectorImplTest {
+
+    private static final List<String> NAMES = Arrays.asList(
+            ArticleMetaNames.TITLE, ArticleMetaNames.DESCRIPTION, ArticleMetaNames.TAG_SET);
+
+    /** Counts the nodes pulled from it */
+    private static final class CountingIterator<E> implements Iterator<E> {
+        private final Iterator<E> delegate;
+        private int count;
+        private CountingIterator(List<E> elements) {
+            this.delegate = elements.iterator();
+        }
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+        @Override
+        public E next() {
+            final E next = delegate.next();
+            ++count;
+            return next;
+        }
+    }
+
+    private final List<HeadTag> nodes = Arrays.asList(
+            this.meta("property", "og:title", "The title"),
+            this.meta("name", "description", "The description"),
+            this.meta("property", "article:tag", "tag1"),
+            this.meta("property", "article:tag", "tag2"),
+            this.meta("property", "article:tag", "tag3"),
+            this.meta("name", "author", "The author"),
+            this.meta("property", "og:title", "Another title"));
+
+    public SelectorImplTest() { }
+
+    @Test
+    public void testStopWhenComplete() throws IOException, ParseException {
+
+        System.out.println("testStopWhenComplete");
+
+        final Selector<HeadTag> selector = HeadFixture.selector();
+
+        final CountingIterator<HeadTag> iterator = new CountingIterator<>(nodes);
+        final Map<String, Object> result = selector.select(iterator, 
+                Arrays.asList(ArticleMetaNames.TITLE, ArticleMetaNames.DESCRIPTION), Collectors.toMap());
+
+        assertEquals("The title", result.get(ArticleMetaNames.TITLE));
+        assertEquals("The description", result.get(ArticleMetaNames.DESCRIPTION));
+        assertEquals(2, iterator.count);
+    }
+
+    @Test
+    public void testMultiValueLimit() throws IOException, ParseException {
+
+        System.out.println("testMultiValueLimit");
+
+        final Selector<HeadTag> limited = HeadFixture.selectorBuilder()
+                .multiValueLimit((name) -> 2).build();
+
+        final CountingIterator<HeadTag> iterator = new CountingIterator<>(nodes);
+        final Map<String, Object> result = limited.select(iterator, NAMES, Collectors.toMap());
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList("tag1", "tag2")), result.get(ArticleMetaNames.TAG_SET));
+        // Complete once the limit of the only multi-value property is reached
+        assertEquals(4, iterator.count);
+
+        // Without a limit a multi-value property is never complete
+        final CountingIterator<HeadTag> unlimited = new CountingIterator<>(nodes);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("tag1", "tag2", "tag3")), HeadFixture.selector()
+                .select(unlimited, NAMES, Collectors.toMap()).get(ArticleMetaNames.TAG_SET));
+        assertEquals(nodes.size(), unlimited.count);
+    }
+
+    @Test
+    public void testDoNotStopWhenComplete() throws IOException, ParseException {
+
+        System.out.println("testDoNotStopWhenComplete");
+
+        final Selector<HeadTag> selector = HeadFixture.selectorBuilder()
+                .multiValueLimit((name) -> 2).stopWhenComplete(false).build();
+
+        final CountingIterator<HeadTag> iterator = new CountingIterator<>(nodes);
+        final Map<String, Object> result = selector.select(iterator, NAMES, Collectors.toMap());
+
+        assertEquals(nodes.size(), iterator.count);
+        // Complete properties take no more values
+        assertEquals("The title", result.get(ArticleMetaNames.TITLE));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("tag1", "tag2")), result.get(ArticleMetaNames.TAG_SET));
+    }
+
+    @Test
+    public void testTerminator() throws IOException, ParseException {
+
+        System.out.println("testTerminator");
+
+        final Selector<HeadTag> selector = HeadFixture.selectorBuilder()
+                .terminator((tag) -> "description".equals(tag.getAttributeValue("name"))).build();
+
+        final CountingIterator<HeadTag> iterator = new CountingIterator<>(nodes);
+        final Map<String, Object> result = selector.select(iterator, NAMES, Collectors.toMap());
+
+        assertEquals("The title", result.get(ArticleMetaNames.TITLE));
+        // The terminator is not selected, and nothing after it is pulled
+        assertFalse(result.containsKey(ArticleMetaNames.DESCRIPTION));
+        assertFalse(result.containsKey(ArticleMetaNames.TAG_SET));
+        assertEquals(2, iterator.count);
+    }
+
+    @Test
+    public void testMaxNodes() throws IOException, ParseException {
+
+        System.out.println("testMaxNodes");
+
+        final Selector<HeadTag> selector = HeadFixture.selectorBuilder().maxNodes(3).build();
+
+        final CountingIterator<HeadTag> iterator = new CountingIterator<>(nodes);
+        final Map<String, Object> result = selector.select(iterator, NAMES, Collectors.toMap());
+
+        assertEquals(3, iterator.count);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("tag1")), result.get(ArticleMetaNames.TAG_SET));
+
+        final CountingIterator<HeadTag> none = new CountingIterator<>(nodes);
+        assertTrue(HeadFixture.selectorBuilder().maxNodes(0).build()
+                .select(none, NAMES, Collectors.toMap()).isEmpty());
+        assertEquals(0, none.count);
+
+        try{
+            HeadFixture.selectorBuilder().maxNodes(-1);
+            fail("Expected an exception");
+        }catch(IllegalArgumentException expected) { }
+    }
+
+    private HeadTag meta(String name, String value, String content) {
+        return new HeadTag("meta", new String[]{name, "content"}, new String[]{value, content}, null);
+    }
+}
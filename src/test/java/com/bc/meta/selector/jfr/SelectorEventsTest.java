@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.jfr;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.selector.HeadFixture;
+import com.bc.meta.selector.SelectionContext;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.SelectorBuilder;
+import com.bc.meta.selector.scanner.HeadTag;
+import com.bc.meta.selector.util.ConfigCache;
+import com.bc.meta.selector.util.SampleConfigPaths;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SelectorEventsTest {
+
+    public SelectorEventsTest() { }
+
+    @Test
+    public void testEventsAreRecorded() throws IOException, ParseException {
+
+        System.out.println("testEventsAreRecorded");
+
+        final Path file = Files.createTempFile(this.getClass().getSimpleName(), ".jfr");
+
+        try(Recording recording = new Recording()) {
+
+            recording.enable(SelectEvent.class).withoutThreshold();
+            recording.enable(FilterBuildEvent.class).withoutThreshold();
+            recording.enable(ConfigParseEvent.class).withoutThreshold();
+            recording.enable(AttributeTestEvent.class).withoutThreshold();
+            recording.start();
+
+            final SelectorBuilder<HeadTag, String, Object> builder = HeadFixture.selectorBuilder();
+
+            builder.filter().configCache(new ConfigCache(ConfigCache.DEFAULT_MAX_SIZE));
+
+            final Selector<HeadTag> selector = builder.build();
+
+            final SelectionContext context = new SelectionContext(
+                    selector.schema(ArticleMetaNames.values()));
+
+            selector.select(HeadFixture.scan(), context.documentId("doc-1"));
+
+            assertEquals("The title", context.getOrDefault(ArticleMetaNames.TITLE, null));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        try{
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            final List<RecordedEvent> selects = this.filter(events, "com.bc.meta.selector.Select");
+            assertEquals(1, selects.size());
+            assertEquals("doc-1", selects.get(0).getString("documentId"));
+            assertEquals(HeadFixture.tags().size(), selects.get(0).getInt("nodesScanned"));
+            // description, og:title, author, 4 x article:tag, datePublished and keywords
+            assertEquals(9, selects.get(0).getInt("nodesSelected"));
+            assertEquals(ArticleMetaNames.values().size(), selects.get(0).getInt("properties"));
+
+            final List<RecordedEvent> builds = this.filter(events, "com.bc.meta.selector.FilterBuild");
+            assertEquals(1, builds.size());
+            assertEquals(SampleConfigPaths.APP_ARTICLE_LIST.size(), builds.get(0).getInt("configFiles"));
+
+            final List<RecordedEvent> parses = this.filter(events, "com.bc.meta.selector.ConfigParse");
+            assertTrue(parses.size() >= SampleConfigPaths.APP_ARTICLE_LIST.size());
+
+            assertTrue(!this.filter(events, "com.bc.meta.selector.AttributeTestCreate").isEmpty());
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testNullEventsAreIgnored() {
+
+        System.out.println("testNullEventsAreIgnored");
+
+        assertTrue(JfrEvents.isAvailable());
+
+        // As returned where jdk.jfr is absent, or the event is not recorded
+        JfrEvents.commitSelect(null, "doc-1", 1, 1, 1);
+        JfrEvents.commitFilterBuild(null, 1, 1, null, true);
+        JfrEvents.commitConfigParse(null, "location", null, false, 1);
+        JfrEvents.commitAttributeTest(null, "name", "value", false);
+    }
+
+    private List<RecordedEvent> filter(List<RecordedEvent> events, String name) {
+        final List<RecordedEvent> output = new ArrayList<>();
+        for(RecordedEvent event : events) {
+            if(name.equals(event.getEventType().getName())) {
+                output.add(event);
+            }
+        }
+        return output;
+    }
+}
@@ -17,22 +17,33 @@
 package com.bc.meta.selector.jsoup;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.WeakHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
+import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Element;
+import com.bc.meta.selector.AttributeProvider;
 import com.bc.meta.selector.AttributeTestProvider;
 /**
  * @author Chinomso Bassey Ikwuagwu on Jun 16, 2018 5:36:58 PM
  */
-public class AttributeContextJsoup implements AttributeTestProvider<Element>, BiFunction<String, Element, String> {
+public class AttributeContextJsoup implements AttributeTestProvider<Element>, 
+        AttributeProvider<Element>, BiFunction<String, Element, String> {
     
     private final boolean useCache;
     
     private final Map<String, Predicate<Element>> testCache;
 
+    private static final class LastAttributes {
+        private Element node;
+        private List<Attribute> attributes;
+    }
+
+    private final ThreadLocal<LastAttributes> lastAttributes = ThreadLocal.withInitial(LastAttributes::new);
+
     public AttributeContextJsoup(boolean useCache) {
         this.useCache = useCache;
         this.testCache = !useCache ? Collections.EMPTY_MAP : 
@@ -71,6 +82,35 @@ public class AttributeContextJsoup implements AttributeTestProvider<Element>, Bi
         return test;
     }
 
+    @Override
+    public int getAttributeCount(Element node) {
+        return this.getAttributes(node).size();
+    }
+
+    @Override
+    public String getAttributeName(Element node, int index) {
+        return this.getAttributes(node).get(index).getKey();
+    }
+
+    @Override
+    public String getAttributeValue(Element node, int index) {
+        return this.getAttributes(node).get(index).getValue();
+    }
+
+    /**
+     * Jsoup has no indexed access to attributes, and <code>asList()</code> 
+     * creates a new list on each call. The attributes of a node are read in 
+     * sequence, so the list of the last node read by each thread is kept.
+     */
+    private List<Attribute> getAttributes(Element node) {
+        final LastAttributes last = lastAttributes.get();
+        if(last.node != node) {
+            last.node = node;
+            last.attributes = node.attributes().asList();
+        }
+        return last.attributes;
+    }
+
     @Override
     public String apply(String propertyName, Element node) {
         
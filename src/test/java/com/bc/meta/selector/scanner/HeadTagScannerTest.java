@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bc.meta.selector.scanner;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.selector.HeadFixture;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.impl.Collectors;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class HeadTagScannerTest {
+
+    private static final String HTML = "<!DOCTYPE html>\n" +
+            "<!-- <meta name=\"author\" content=\"commented out\"> -->\n" +
+            "<html lang=\"en\"><head>\n" +
+            "<meta charset=utf-8>\n" +
+            "<title> Hello &amp;\n World </title>\n" +
+            "<script>var s = '<meta name=\"author\" content=\"in a script\">';</script>\n" +
+            "<META Name='description' content=\"A &quot;quoted&quot; &#x41;&#66; value\">\n" +
+            "<meta property=\"og:title\" content=\"The title\">\n" +
+            "<meta property=\"article:tag\" content=\"tag1\">\n" +
+            "<meta property=\"article:tag\" content=\"tag2\">\n" +
+            "<link rel=\"canonical\" href=\"http://www.example.com/page\">\n" +
+            "</head>\n<body>\n" +
+            "<meta name=\"author\" content=\"in the body\">\n" +
+            "<p>Some text</p>\n" +
+            "</body></html>";
+
+    public HeadTagScannerTest() { }
+
+    @Test
+    public void testScanStopsAtEndOfHead() {
+
+        System.out.println("testScanStopsAtEndOfHead");
+
+        final List<HeadTag> tags = this.toList(new HeadTagScanner(HTML));
+
+        assertEquals(10, tags.size());
+        assertEquals("html", tags.get(0).getName());
+        assertEquals("Hello & World", tags.get(3).getText());
+        assertEquals("script", tags.get(4).getName());
+        assertEquals("description", tags.get(5).getAttributeValue("name"));
+        assertEquals("A \"quoted\" AB value", tags.get(5).getAttributeValue("content"));
+        assertEquals("http://www.example.com/page", tags.get(9).getAttributeValue("href"));
+    }
+
+    @Test
+    public void testScanEntireDocument() {
+
+        System.out.println("testScanEntireDocument");
+
+        final List<HeadTag> tags = this.toList(new HeadTagScanner(new StringReader(HTML), false));
+
+        assertEquals(13, tags.size());
+        assertEquals("in the body", tags.get(11).getAttributeValue("content"));
+        assertEquals("p", tags.get(12).getName());
+    }
+
+    @Test
+    public void testScanStopsAtBodyContent() {
+
+        System.out.println("testScanStopsAtBodyContent");
+
+        final List<HeadTag> tags = this.toList(new HeadTagScanner(
+                "<meta name=\"a\" content=\"1\"><div><meta name=\"b\" content=\"2\">"));
+
+        assertEquals(1, tags.size());
+        assertEquals("1", tags.get(0).getAttributeValue("content"));
+        assertNull(tags.get(0).getAttributeValue("b"));
+    }
+
+    @Test
+    public void testReadFailure() {
+
+        System.out.println("testReadFailure");
+
+        final IOException cause = new IOException();
+        final Reader reader = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                throw cause;
+            }
+            @Override
+            public void close() { }
+        };
+
+        try{
+            new HeadTagScanner(reader).hasNext();
+            fail("Expected an exception");
+        }catch(UncheckedIOException expected) {
+            assertSame(cause, expected.getCause());
+        }
+    }
+
+    @Test
+    public void testSelect() throws IOException, ParseException {
+
+        System.out.println("testSelect");
+
+        final Selector<HeadTag> selector = HeadFixture.selector();
+
+        final Map<String, Object> result = selector.select(
+                new HeadTagScanner(HTML), ArticleMetaNames.values(), Collectors.toMap());
+
+        System.out.println(result);
+
+        assertEquals("The title", result.get(ArticleMetaNames.TITLE));
+        assertEquals("A \"quoted\" AB value", result.get(ArticleMetaNames.DESCRIPTION));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("tag1", "tag2")), result.get(ArticleMetaNames.TAG_SET));
+        assertNull(result.get(ArticleMetaNames.AUTHOR));
+    }
+
+    private List<HeadTag> toList(Iterator<HeadTag> iter) {
+        final List<HeadTag> result = new ArrayList<>();
+        while(iter.hasNext()) {
+            result.add(iter.next());
+        }
+        return result;
+    }
+}
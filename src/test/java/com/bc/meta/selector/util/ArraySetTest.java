@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ArraySetTest {
+
+    public ArraySetTest() { }
+
+    @Test
+    public void testSameAsLinkedHashSet() {
+
+        System.out.println("testSameAsLinkedHashSet");
+
+        final Set<String> expected = new LinkedHashSet<>();
+        final Set<String> set = new ArraySet<>();
+
+        for(int i=0; i<ArraySet.HASH_THRESHOLD * 3; i++) {
+            final String value = "v" + (i * 7 % 11);
+            assertEquals(expected.add(value), set.add(value));
+            assertEquals(expected, set);
+            assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+            assertEquals(expected.hashCode(), set.hashCode());
+        }
+
+        assertTrue(set.contains("v3"));
+        assertFalse(set.contains("v11"));
+        assertTrue(set.add(null));
+        assertFalse(set.add(null));
+        assertTrue(set.contains(null));
+    }
+
+    @Test
+    public void testRemove() {
+
+        System.out.println("testRemove");
+
+        final Set<String> set = new ArraySet<>(Arrays.asList("a", "b", "c", "b"));
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(set));
+
+        assertTrue(set.remove("b"));
+        assertFalse(set.remove("b"));
+        assertEquals(Arrays.asList("a", "c"), new ArrayList<>(set));
+
+        final Iterator<String> iter = set.iterator();
+        iter.next();
+        iter.remove();
+        assertEquals(Arrays.asList("c"), new ArrayList<>(set));
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertTrue(set.add("a"));
+    }
+}
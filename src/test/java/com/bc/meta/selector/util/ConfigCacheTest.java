@@ -0,0 +1,272 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.selector.JsonParserImpl;
+import com.bc.meta.selector.impl.FilterBuilderImpl;
+import com.bc.meta.selector.scanner.AttributeContextHeadTag;
+import com.bc.meta.selector.scanner.HeadTag;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class ConfigCacheTest {
+
+    public ConfigCacheTest() { }
+
+    @Test
+    public void testConcurrentLoadsAreDeduplicated() throws Exception {
+
+        System.out.println("testConcurrentLoadsAreDeduplicated");
+
+        final ConfigCache cache = new ConfigCache(10);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Map config = Collections.singletonMap("a", "b");
+
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try{
+            final List<Future<Map>> futures = new ArrayList<>(threads);
+            for(int i=0; i<threads; i++) {
+                futures.add(executor.submit(() -> cache.get("key", () -> {
+                    loads.incrementAndGet();
+                    try{
+                        release.await(10, TimeUnit.SECONDS);
+                    }catch(InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return config;
+                })));
+            }
+            while(cache.getHitCount() + cache.getMissCount() < threads) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for(Future<Map> future : futures) {
+                assertSame(config, future.get());
+            }
+        }finally{
+            executor.shutdown();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(threads - 1, cache.getHitCount());
+    }
+
+    @Test
+    public void testEvictionAndFailures() throws IOException, ParseException {
+
+        System.out.println("testEvictionAndFailures");
+
+        final ConfigCache cache = new ConfigCache(2);
+
+        for(int i=0; i<3; i++) {
+            final int n = i;
+            cache.get(i, () -> Collections.singletonMap("n", n));
+        }
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3, cache.getMissCount());
+
+        try{
+            cache.get("failing", () -> { throw new IOException(); });
+            fail("Expected an exception");
+        }catch(IOException expected) { }
+
+        assertEquals(Collections.singletonMap("a", 1), cache.get("failing", () -> Collections.singletonMap("a", 1)));
+    }
+
+    @Test
+    public void testCircularReferences() throws Exception {
+
+        System.out.println("testCircularReferences");
+
+        final ConfigCache cache = new ConfigCache(10);
+
+        try{
+            cache.get("x", () -> cache.get("y", () -> cache.get("x", () -> Collections.EMPTY_MAP)));
+            fail("Expected IllegalStateException");
+        }catch(IllegalStateException expected) { }
+
+        // Each thread loads one key, then includes the key the other loads
+        final CountDownLatch bothLoading = new CountDownLatch(2);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try{
+            final List<Future<Map>> futures = new ArrayList<>(2);
+            for(String [] keys : new String[][]{{"a", "b"}, {"b", "a"}}) {
+                futures.add(executor.submit(() -> cache.get(keys[0], () -> {
+                    bothLoading.countDown();
+                    try{
+                        bothLoading.await(10, TimeUnit.SECONDS);
+                    }catch(InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return cache.get(keys[1], () -> Collections.EMPTY_MAP);
+                })));
+            }
+            for(Future<Map> future : futures) {
+                try{
+                    future.get(10, TimeUnit.SECONDS);
+                    fail("Expected IllegalStateException");
+                }catch(ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IllegalStateException);
+                }
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testParsersShareCache() throws IOException, ParseException {
+
+        System.out.println("testParsersShareCache");
+
+        final ConfigCache cache = new ConfigCache(ConfigCache.DEFAULT_MAX_SIZE);
+        final AtomicInteger opened = new AtomicInteger();
+        final PropertiesParser.DefaultStreamProvider resources = new PropertiesParser.DefaultStreamProvider();
+        final Function<String, InputStream> streamProvider = (location) -> {
+            opened.incrementAndGet();
+            return resources.apply(location);
+        };
+
+        final Map first = new PropertiesParser(streamProvider, new ConfigJsonReader(), 
+                StandardCharsets.UTF_8.name(), cache).parse(SampleConfigPaths.APP_ARTICLE);
+        final int openedOnce = opened.get();
+        final long hits = cache.getHitCount();
+
+        final Map second = new PropertiesParser(streamProvider, new ConfigJsonReader(), 
+                StandardCharsets.UTF_8.name(), cache).parse(SampleConfigPaths.APP_ARTICLE);
+
+        assertSame(first, second);
+        assertEquals(openedOnce, opened.get());
+        assertEquals(hits + 1, cache.getHitCount());
+
+        // Parsers of another class may parse differently
+        final Map third = new PropertiesParser(streamProvider, new JsonParserImpl(), 
+                StandardCharsets.UTF_8.name(), cache).parse(SampleConfigPaths.APP_ARTICLE);
+        assertTrue(third != first);
+        assertEquals(openedOnce * 2, opened.get());
+
+        assertSame(third, new PropertiesParser(streamProvider, new JsonParserImpl(), 
+                StandardCharsets.UTF_8.name(), cache).parse(SampleConfigPaths.APP_ARTICLE));
+    }
+
+    @Test
+    public void testCacheSurvivesCollectedBuilders() throws IOException, ParseException, InterruptedException {
+
+        System.out.println("testCacheSurvivesCollectedBuilders");
+
+        final ConfigCache cache = new ConfigCache(ConfigCache.DEFAULT_MAX_SIZE);
+
+        this.buildFilter(cache);
+        final int size = cache.size();
+        final long misses = cache.getMissCount();
+        assertTrue(size > 0);
+
+        // Each build parses with a new default parser, the last one collectable
+        for(int i=0; i<2; i++) {
+            this.collectGarbage();
+            this.buildFilter(cache);
+            assertEquals(size, cache.size());
+            assertEquals(misses, cache.getMissCount());
+        }
+    }
+
+    private void buildFilter(ConfigCache cache) throws IOException, ParseException {
+        new FilterBuilderImpl<HeadTag, Object>()
+                .attributeContext(new AttributeContextHeadTag())
+                .configFilePaths(SampleConfigPaths.APP_ARTICLE_LIST)
+                .propertyNames(ArticleMetaNames.values())
+                .configCache(cache)
+                .build();
+    }
+
+    private void collectGarbage() throws InterruptedException {
+        final WeakReference<Object> ref = new WeakReference<>(new Object());
+        for(int i=0; i<50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+    }
+
+    @Test
+    public void testSourceIsNotRetained() throws IOException, ParseException, InterruptedException {
+
+        System.out.println("testSourceIsNotRetained");
+
+        final ConfigCache cache = new ConfigCache(ConfigCache.DEFAULT_MAX_SIZE);
+        final PropertiesParser.DefaultStreamProvider resources = new PropertiesParser.DefaultStreamProvider();
+        Function<String, InputStream> streamProvider = new Function<String, InputStream>() {
+            @Override
+            public InputStream apply(String location) {
+                return resources.apply(location);
+            }
+        };
+        new PropertiesParser(streamProvider, new ConfigJsonReader(), 
+                StandardCharsets.UTF_8.name(), cache).parse(SampleConfigPaths.APP_ARTICLE);
+        final int size = cache.size();
+        assertTrue(size > 0);
+
+        final WeakReference<Object> ref = new WeakReference<>(streamProvider);
+        streamProvider = null;
+        for(int i=0; i<50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(ref.get());
+
+        // The entries of the collected source are purged by later parses
+        final PropertiesParser parser = new PropertiesParser(resources, new ConfigJsonReader(), 
+                StandardCharsets.UTF_8.name(), cache);
+        for(int i=0; i<50 && cache.size() != size; i++) {
+            parser.parse(SampleConfigPaths.APP_ARTICLE);
+            Thread.sleep(10);
+        }
+
+        assertEquals(size, cache.size());
+    }
+}
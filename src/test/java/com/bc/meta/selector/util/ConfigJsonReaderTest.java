@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import com.bc.meta.selector.JsonParserImpl;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class ConfigJsonReaderTest {
+
+    private final List<String> configFilePaths = Arrays.asList(
+            SampleConfigPaths.APP_ARTICLE, SampleConfigPaths.BASIC, 
+            SampleConfigPaths.OPENGRAPH_CUSTOM, SampleConfigPaths.SCHEMA_ARTICLE, 
+            SampleConfigPaths.SCHEMA_CREATIVEWORK, SampleConfigPaths.SCHEMA_THING, 
+            SampleConfigPaths.TWITTERCARD_CUSTOM);
+
+    public ConfigJsonReaderTest() { }
+
+    @Test
+    public void testSameAsExternalParser() throws IOException, ParseException {
+
+        System.out.println("testSameAsExternalParser");
+
+        final PropertiesParser.DefaultStreamProvider streamProvider = new PropertiesParser.DefaultStreamProvider();
+
+        final PropertiesParser external = new PropertiesParser(streamProvider, 
+                new JsonParserImpl(), StandardCharsets.UTF_8.name(), false);
+
+        final PropertiesParser builtIn = new PropertiesParser(streamProvider, 
+                new ConfigJsonReader(), StandardCharsets.UTF_8.name(), false);
+
+        for(String path : configFilePaths) {
+
+            final Map expected = external.parse(path);
+            final Map actual = builtIn.parse(path);
+
+            assertEquals(path, expected, actual);
+
+            for(Object rules : actual.values()) {
+                for(Object rule : (List)rules) {
+                    assertTrue(path + ": " + rule, rule instanceof AttributeRule);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSkipsCommentsAndFilteredKeys() throws IOException, ParseException {
+
+        System.out.println("testSkipsCommentsAndFilteredKeys");
+
+        final String json = "{\"!--\":[{\"x\":\"y\"}, 1, true, null, {\"z\":[]}], " +
+                "\"other\":{\"a\":[1.5e3, -2, \"\\\"\\u0041\"]}, " +
+                "\"object\":{\"!--note\":\"skipped\", \"n\":12, \"properties\":{\"title\":[{\"property\":\"og:title\", \"name\":\"regex(title)\"}]}}}";
+
+        final Map all = new ConfigJsonReader().parse(new StringReader(json));
+        assertEquals(Arrays.asList("other", "object"), Arrays.asList(all.keySet().toArray()));
+        assertEquals(Arrays.asList(1500.0, -2L, "\"A"), ((Map)all.get("other")).get("a"));
+
+        final Map object = (Map)new ConfigJsonReader().parse(
+                new StringReader(json), "object"::equals).get("object");
+        assertFalse(object.containsKey("!--note"));
+        assertEquals(12L, object.get("n"));
+
+        final AttributeRule rule = (AttributeRule)((List)((Map)object.get("properties")).get("title")).get(0);
+        assertEquals("og:title", rule.get("property"));
+        assertEquals("regex(title)", rule.get("name"));
+        assertTrue(rule.isRegex(1));
+        assertEquals("title", rule.getValue(1));
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+
+        System.out.println("testMalformed");
+
+        for(String json : Arrays.asList("", "[]", "{\"a\":}", "{\"a\":1,}", "{\"a\":\"b\"", "{\"a\":tru}", "{} x")) {
+            try{
+                new ConfigJsonReader().parse(new StringReader(json));
+                fail("Expected a ParseException for: " + json);
+            }catch(ParseException expected) { }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class MultiPatternMatcherTest {
+
+    public MultiPatternMatcherTest() { }
+
+    @Test
+    public void testOverlappingPatterns() {
+
+        System.out.println("testOverlappingPatterns");
+
+        final MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("he", "she", "his", "hers"));
+
+        // Found via failure links: she -> he, and hers after she
+        assertEquals(Arrays.asList("she@3", "he@3", "hers@5"), 
+                this.find(matcher, Arrays.asList("he", "she", "his", "hers"), "ushers"));
+        assertEquals(Arrays.asList("his@2", "she@4", "he@4"), 
+                this.find(matcher, Arrays.asList("he", "she", "his", "hers"), "hishe"));
+
+        // Longest first, where several patterns end at the same character
+        final List<String> patterns = Arrays.asList("a", "aa", "aaa");
+        assertEquals(Arrays.asList("a@0", "aa@1", "a@1", "aaa@2", "aa@2", "a@2"), 
+                this.find(new MultiPatternMatcher(patterns), patterns, "aaa"));
+    }
+
+    @Test
+    public void testNonAscii() {
+
+        System.out.println("testNonAscii");
+
+        final List<String> patterns = Arrays.asList("caf\u00e9", "\u00e9a", "a\u00e9");
+        final MultiPatternMatcher matcher = new MultiPatternMatcher(patterns);
+
+        assertEquals(Arrays.asList("caf\u00e9@6", "\u00e9a@7"), this.find(matcher, patterns, "un caf\u00e9a"));
+        // The failure transition out of a non-ASCII state, to another one
+        assertEquals(Arrays.asList("\u00e9a@2", "a\u00e9@3"), this.find(matcher, patterns, "\u00e9\u00e9a\u00e9"));
+        // As Pattern.CASE_INSENSITIVE without UNICODE_CASE, only ASCII is folded
+        assertEquals(Collections.EMPTY_LIST, this.find(matcher, patterns, "CAF\u00c9"));
+        assertTrue(!Pattern.compile("caf\u00e9", Pattern.CASE_INSENSITIVE).matcher("CAF\u00c9").find());
+    }
+
+    @Test
+    public void testAsciiCaseFolding() {
+
+        System.out.println("testAsciiCaseFolding");
+
+        final List<String> patterns = Arrays.asList("OG:Title", "article:tag");
+        final MultiPatternMatcher matcher = new MultiPatternMatcher(patterns);
+
+        for(String input : Arrays.asList("og:title", "OG:TITLE", "Og:TiTlE", "ARTICLE:TAG", "x-article:Tag")) {
+            final boolean expected = Pattern.compile("og:title", Pattern.CASE_INSENSITIVE).matcher(input).find() ||
+                    Pattern.compile("article:tag", Pattern.CASE_INSENSITIVE).matcher(input).find();
+            assertTrue(input, expected);
+            assertEquals(input, 1, this.find(matcher, patterns, input).size());
+        }
+        // Not letters, so not folded
+        assertEquals(Collections.EMPTY_LIST, this.find(matcher, patterns, "og;title"));
+    }
+
+    @Test
+    public void testGetRequiredLiteral() {
+
+        System.out.println("testGetRequiredLiteral");
+
+        assertEquals("article:tag", MultiPatternMatcher.getRequiredLiteral("article:tag"));
+        assertEquals("", MultiPatternMatcher.getRequiredLiteral("a|b"));
+        assertEquals("", MultiPatternMatcher.getRequiredLiteral("(?x) article : tag"));
+        assertEquals("a", MultiPatternMatcher.getRequiredLiteral("ab?c"));
+        assertEquals("b", MultiPatternMatcher.getRequiredLiteral("a{2}b"));
+        assertEquals(".", MultiPatternMatcher.getRequiredLiteral("\\."));
+        assertEquals(".jp", MultiPatternMatcher.getRequiredLiteral("\\.jpe?g$"));
+        assertEquals("", MultiPatternMatcher.getRequiredLiteral("[abc]"));
+        assertEquals("", MultiPatternMatcher.getRequiredLiteral("\\Qx\\E"));
+        assertEquals("og:", MultiPatternMatcher.getRequiredLiteral("^og:(title|name)$"));
+        assertEquals("author", MultiPatternMatcher.getRequiredLiteral("^(?i)author\\b"));
+    }
+
+    /**
+     * Whenever a regex matches, its required literal must be found, or the
+     * rules of the regex would be skipped.
+     */
+    @Test
+    public void testRequiredLiteralIsSound() {
+
+        System.out.println("testRequiredLiteralIsSound");
+
+        final List<String> regexes = Arrays.asList("a|b", "(?x) a b c", "ab?c", "a{2}b", "\\.jpe?g$",
+                "[abc]x", "\\Qx.y\\E", "^og:(title|name)$", "(?i)author", "article:tag", "\\bnews\\b",
+                "a*b+c", "x\\d+y", "x\\u0041y", "(ab)?cd", "a.c", "\\\\d", "[a\\]]b");
+
+        final List<String> inputs = Arrays.asList("a", "b", "abc", "ac", "aab", "ab", "image.jpg", 
+                "IMAGE.JPEG", "x.y", "og:title", "OG:NAME", "Author", "article:TAG", "the news today", 
+                "aabbc", "bc", "x12y", "xAy", "cd", "abcd", "\\d", "]b", "axc");
+
+        int matches = 0;
+
+        for(String regex : regexes) {
+            final String literal = MultiPatternMatcher.getRequiredLiteral(regex);
+            final Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+            final MultiPatternMatcher matcher = literal.isEmpty() ? 
+                    null : new MultiPatternMatcher(Collections.singletonList(literal));
+            for(String input : inputs) {
+                if(pattern.matcher(input).find()) {
+                    ++matches;
+                    assertTrue(regex + " matches " + input + " but its literal '" + literal + "' is not found", 
+                            matcher == null || !this.find(matcher, Collections.singletonList(literal), input).isEmpty());
+                }
+            }
+        }
+
+        assertTrue(matches > regexes.size());
+    }
+
+    /**
+     * @return Each pattern found, with the index of the character at which it ends
+     */
+    private List<String> find(MultiPatternMatcher matcher, List<String> patterns, String text) {
+        final List<String> output = new ArrayList<>();
+        int state = MultiPatternMatcher.START;
+        for(int i=0; i<text.length(); i++) {
+            state = matcher.next(state, text.charAt(i));
+            for(int pattern : matcher.getMatches(state)) {
+                output.add(patterns.get(pattern) + '@' + i);
+            }
+        }
+        return output;
+    }
+}
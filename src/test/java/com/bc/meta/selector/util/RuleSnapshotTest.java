@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.impl.ArticleMetaNameIsMultiValue;
+import com.bc.meta.selector.AttributeTestProvider;
+import com.bc.meta.selector.FilterBuilder;
+import com.bc.meta.selector.HeadFixture;
+import com.bc.meta.selector.JsonParserImpl;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.impl.AttributeIndex;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.impl.FilterBuilderImpl;
+import com.bc.meta.selector.impl.SelectorImpl;
+import com.bc.meta.selector.scanner.AttributeContextHeadTag;
+import com.bc.meta.selector.scanner.HeadTag;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class RuleSnapshotTest {
+
+    public RuleSnapshotTest() { }
+
+    @Test
+    public void testWriteRead() throws IOException, ParseException {
+
+        System.out.println("testWriteRead");
+
+        final FilterBuilderImpl<HeadTag, Object> builder = HeadFixture.filterBuilder();
+
+        final Map<String, List<AttributeRule>> rules = builder.buildRules(new PropertiesParser(
+                new PropertiesParser.DefaultStreamProvider(), new JsonParserImpl(), "UTF-8", false));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RuleSnapshot.write(rules, out);
+
+        System.out.println("Snapshot size: " + out.size());
+
+        assertEquals(rules, RuleSnapshot.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    public void testCorruptSnapshot() throws IOException, ParseException {
+
+        System.out.println("testCorruptSnapshot");
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HeadFixture.filterBuilder().writeSnapshot(out);
+        final byte [] snapshot = out.toByteArray();
+
+        // Every truncation, and every byte flipped after the header
+        for(int length=0; length<snapshot.length; length++) {
+            this.assertReadFails(Arrays.copyOf(snapshot, length));
+        }
+        final Random random = new Random(7);
+        for(int i=5; i<snapshot.length; i++) {
+            final byte [] corrupt = snapshot.clone();
+            corrupt[i] = (byte)random.nextInt(256);
+            this.assertReadSucceedsOrFails(corrupt);
+        }
+
+        // A huge string count, string index and condition count
+        final byte [] header = Arrays.copyOf(snapshot, 5);
+        this.assertReadFails(concat(header, new byte[]{(byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07}));
+        this.assertReadFails(concat(header, new byte[]{(byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x0F}));
+        this.assertReadFails(concat(header, new byte[]{0, 1, 0x7F}));
+        this.assertReadFails(concat(header, new byte[]{1, 0, 1, 'a', 1, 0, 1, 
+            (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07}));
+        // A duplicate attribute name within a rule
+        this.assertReadFails(concat(header, new byte[]{1, 0, 1, 'a', 1, 0, 1, 2, 0, 0, 0, 0, 0, 0}));
+    }
+
+    private void assertReadFails(byte [] snapshot) {
+        try{
+            RuleSnapshot.read(new ByteArrayInputStream(snapshot));
+            fail("Expected IOException, snapshot length: " + snapshot.length);
+        }catch(IOException expected) { }
+    }
+
+    private void assertReadSucceedsOrFails(byte [] snapshot) {
+        try{
+            RuleSnapshot.read(new ByteArrayInputStream(snapshot));
+        }catch(IOException expected) { }
+    }
+
+    private static byte [] concat(byte [] a, byte [] b) {
+        final byte [] output = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, output, a.length, b.length);
+        return output;
+    }
+
+    @Test
+    public void testBuildFromSnapshot() throws IOException, ParseException {
+
+        System.out.println("testBuildFromSnapshot");
+
+        final AttributeContextHeadTag attributeContext = new AttributeContextHeadTag();
+
+        // Not an AttributeProvider, so the rules are not indexed
+        final AttributeTestProvider<HeadTag> unindexed = new AttributeTestProvider<HeadTag>() {
+            @Override
+            public Predicate<HeadTag> getAttributeTest(String name, String value) {
+                return attributeContext.getAttributeTest(name, value);
+            }
+            @Override
+            public Predicate<HeadTag> getAttributeRegexTest(String name, String value) {
+                return attributeContext.getAttributeRegexTest(name, value);
+            }
+        };
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HeadFixture.filterBuilder(attributeContext).writeSnapshot(out);
+        final byte [] snapshot = out.toByteArray();
+
+        final Map expected = this.select(HeadFixture.filterBuilder(attributeContext), attributeContext);
+
+        assertEquals(expected, this.select(HeadFixture.filterBuilder(attributeContext)
+                .jsonParser(null).configFilePaths()
+                .streamProvider((location) -> new ByteArrayInputStream(snapshot))
+                .snapshot("snapshot.bin"), attributeContext));
+
+        assertEquals(expected, this.select(HeadFixture.filterBuilder(unindexed)
+                .jsonParser(null).configFilePaths()
+                .streamProvider((location) -> new ByteArrayInputStream(snapshot))
+                .snapshot("snapshot.bin"), attributeContext));
+    }
+
+    @Test
+    public void testAdaptiveIsNotIndexed() throws IOException, ParseException {
+
+        System.out.println("testAdaptiveIsNotIndexed");
+
+        final AttributeContextHeadTag attributeContext = new AttributeContextHeadTag();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HeadFixture.filterBuilder(attributeContext).writeSnapshot(out);
+        final byte [] snapshot = out.toByteArray();
+
+        final FilterBuilderImpl<HeadTag, Object> fromConfigs = HeadFixture.filterBuilder(attributeContext);
+        fromConfigs.adaptive(true);
+        final FilterBuilderImpl<HeadTag, Object> fromSnapshot = HeadFixture.filterBuilder(attributeContext);
+        fromSnapshot.adaptive(true).jsonParser(null).configFilePaths()
+                .streamProvider((location) -> new ByteArrayInputStream(snapshot))
+                .snapshot("snapshot.bin");
+
+        final Map expected = this.select(HeadFixture.filterBuilder(attributeContext), attributeContext);
+
+        for(FilterBuilderImpl<HeadTag, Object> filterBuilder : Arrays.asList(fromConfigs, fromSnapshot)) {
+            assertFalse(filterBuilder.isIndexable());
+            final Function<String, Predicate<HeadTag>> filter = filterBuilder.build();
+            assertFalse(filter instanceof AttributeIndex);
+            assertEquals(expected, this.select(filterBuilder, attributeContext));
+        }
+    }
+
+    private Map select(FilterBuilder<HeadTag, Object> filterBuilder, 
+            AttributeContextHeadTag attributeContext) throws IOException, ParseException {
+        final Selector<HeadTag> selector = new SelectorImpl<>(filterBuilder.build(), 
+                attributeContext, new ArticleMetaNameIsMultiValue());
+        final Map result = selector.select(HeadFixture.scan(), ArticleMetaNames.values(), Collectors.toMap());
+        System.out.println(result);
+        return result;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 NUROX Ltd.
+ *
+ * Licensed under the NUROX Ltd Software License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.looseboxes.com/legal/licenses/software.html
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bc.meta.selector.util;
+
+import com.bc.meta.ArticleMetaNames;
+import com.bc.meta.selector.HeadFixture;
+import com.bc.meta.selector.Selector;
+import com.bc.meta.selector.SelectorBuilder;
+import com.bc.meta.selector.impl.Collectors;
+import com.bc.meta.selector.scanner.HeadTag;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.text.ParseException;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SelectorMetricsJmxTest {
+
+    public SelectorMetricsJmxTest() { }
+
+    @Test
+    public void testMetrics() throws IOException, ParseException, JMException {
+
+        System.out.println("testMetrics");
+
+        final SelectorMetricsJmx metrics = new SelectorMetricsJmx();
+        final ConfigCache cache = new ConfigCache(ConfigCache.DEFAULT_MAX_SIZE);
+
+        final Selector<HeadTag> selector = this.build(metrics, cache);
+        this.build(metrics, cache);
+
+        final long loaded = metrics.getConfigsLoaded();
+        assertTrue(loaded > 0);
+        assertEquals(loaded, metrics.getCacheMisses());
+        assertTrue(metrics.getCacheHits() >= SampleConfigPaths.APP_ARTICLE_LIST.size());
+        assertEquals(loaded, metrics.getConfigsParsed());
+        assertTrue(metrics.getConfigLoadTimeNanos() >= metrics.getConfigParseTimeNanos());
+
+        final int documents = 3;
+        for(int i=0; i<documents; i++) {
+            final Map<String, Object> result = selector.select(
+                    HeadFixture.scan(), ArticleMetaNames.values(), Collectors.toMap());
+            assertEquals("The title", result.get(ArticleMetaNames.TITLE));
+        }
+
+        System.out.println(metrics);
+
+        assertEquals(documents, metrics.getDocumentsSelected());
+        final int tags = HeadFixture.tags().size();
+        assertEquals(documents * tags, metrics.getNodesScanned());
+        assertEquals(tags, metrics.getMeanNodesScannedPerDocument(), 0.0);
+        // description, og:title, author, 4 x article:tag, datePublished and keywords
+        assertEquals(documents * 9, metrics.getNodesSelected());
+        assertTrue(metrics.getPredicateEvaluations() >= metrics.getNodesScanned());
+        assertTrue(metrics.getMaxSelectTimeNanos() > 0);
+        assertEquals(Long.valueOf(documents * 4), metrics.getPropertyHitCounts().get(ArticleMetaNames.TAG_SET));
+        assertEquals(Long.valueOf(documents), metrics.getPropertyHitCounts().get(ArticleMetaNames.TITLE));
+
+        final ObjectName name = metrics.register("com.bc.meta.selector:type=SelectorMetrics,name=test");
+        try{
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals((long)documents, server.getAttribute(name, "DocumentsSelected"));
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals(0L, server.getAttribute(name, "DocumentsSelected"));
+            assertTrue(metrics.getPropertyHitCounts().isEmpty());
+        }finally{
+            metrics.unregister(name);
+        }
+    }
+
+    private Selector<HeadTag> build(SelectorMetricsJmx metrics, ConfigCache cache) 
+            throws IOException, ParseException {
+
+        final SelectorBuilder<HeadTag, String, Object> builder = HeadFixture.selectorBuilder();
+
+        builder.filter().configCache(cache).metrics(metrics);
+
+        return builder.metrics(metrics).build();
+    }
+}